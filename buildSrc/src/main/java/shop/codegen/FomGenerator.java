@@ -0,0 +1,642 @@
+package shop.codegen;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the FOM and writes one Java class per object and interaction class, a
+ * {@code ShopFom} registry that resolves every handle once and maps class handles to
+ * table indexes, and a {@code ShopFomDispatcher} that routes callbacks to a
+ * {@code ShopFomListener}. Each generated class knows its attribute (or parameter) handles,
+ * maps a handle to its slot with one hash lookup, decodes a whole value map into a
+ * reusable {@code Values} holder and encodes values with {@code shop.utils.HlaCodec}.
+ * Interaction classes also get a typed {@code send} method.
+ */
+public class FomGenerator {
+
+    private final File fomFile;
+    private final File outputDir;
+    private final String packageName;
+
+    public FomGenerator(File fomFile, File outputDir, String packageName) {
+        this.fomFile = fomFile;
+        this.outputDir = outputDir;
+        this.packageName = packageName;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new FomGenerator(new File(args[0]), new File(args[1]), args.length > 2 ? args[2] : "shop.fom").generate();
+    }
+
+    public void generate() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(fomFile);
+        List<FomClass> objects = new ArrayList<>();
+        List<FomClass> interactions = new ArrayList<>();
+        for (Element root : children(document.getDocumentElement(), "objects")) {
+            collect(root, "objectClass", "attribute", "", false, objects);
+        }
+        for (Element root : children(document.getDocumentElement(), "interactions")) {
+            collect(root, "interactionClass", "parameter", "", true, interactions);
+        }
+        File packageDir = new File(outputDir, packageName.replace('.', File.separatorChar));
+        if (!packageDir.isDirectory() && !packageDir.mkdirs()) {
+            throw new IOException("Cannot create " + packageDir);
+        }
+        for (FomClass fomClass : objects) {
+            write(packageDir, fomClass.javaName(), objectClass(fomClass));
+        }
+        for (FomClass fomClass : interactions) {
+            write(packageDir, fomClass.javaName(), interactionClass(fomClass));
+        }
+        write(packageDir, "ShopFom", registry(objects, interactions));
+        write(packageDir, "ShopFomListener", listener(objects, interactions));
+        write(packageDir, "ShopFomDispatcher", dispatcher(objects, interactions));
+    }
+
+    private void collect(Element parent, String classTag, String memberTag, String prefix,
+                         boolean interaction, List<FomClass> out) {
+        for (Element element : children(parent, classTag)) {
+            String name = text(element, "name");
+            String qualifiedName = prefix.isEmpty() ? name : prefix + "." + name;
+            List<Member> members = new ArrayList<>();
+            for (Element member : children(element, memberTag)) {
+                members.add(new Member(text(member, "name"), text(member, "dataType")));
+            }
+            if (!prefix.isEmpty()) {
+                out.add(new FomClass(name, qualifiedName, members, interaction));
+            }
+            collect(element, classTag, memberTag, qualifiedName, interaction, out);
+        }
+    }
+
+    private String objectClass(FomClass fomClass) {
+        StringBuilder out = header(fomClass, "ObjectClassHandle", "AttributeHandle");
+        out.append("    public void publish(RTIambassador rtiamb) throws RTIexception {\n")
+                .append("        rtiamb.publishObjectClassAttributes(handle, attributeSet(rtiamb));\n")
+                .append("    }\n\n")
+                .append("    public void subscribe(RTIambassador rtiamb) throws RTIexception {\n")
+                .append("        rtiamb.subscribeObjectClassAttributes(handle, attributeSet(rtiamb));\n")
+                .append("    }\n\n")
+                .append("    public AttributeHandleSet attributeSet(RTIambassador rtiamb) throws RTIexception {\n")
+                .append("        AttributeHandleSet set = rtiamb.getAttributeHandleSetFactory().create();\n")
+                .append("        Collections.addAll(set, handles);\n")
+                .append("        return set;\n")
+                .append("    }\n\n")
+                .append("    public AttributeHandleValueMap createValueMap(RTIambassador rtiamb) throws RTIexception {\n")
+                .append("        return rtiamb.getAttributeHandleValueMapFactory().create(COUNT);\n")
+                .append("    }\n\n");
+        decode(out, fomClass, "AttributeHandleValueMap", "AttributeHandle");
+        encoders(out, fomClass, "AttributeHandleValueMap");
+        values(out, fomClass);
+        return out.append("}\n").toString();
+    }
+
+    private String interactionClass(FomClass fomClass) {
+        StringBuilder out = header(fomClass, "InteractionClassHandle", "ParameterHandle");
+        out.append("    public void publish(RTIambassador rtiamb) throws RTIexception {\n")
+                .append("        rtiamb.publishInteractionClass(handle);\n")
+                .append("    }\n\n")
+                .append("    public void subscribe(RTIambassador rtiamb) throws RTIexception {\n")
+                .append("        rtiamb.subscribeInteractionClass(handle);\n")
+                .append("    }\n\n");
+        out.append("    public void send(RTIambassador rtiamb");
+        for (Member member : fomClass.members) {
+            out.append(", ").append(member.javaType()).append(' ').append(member.name);
+        }
+        out.append(", byte[] tag, LogicalTime time)\n")
+                .append("            throws RTIexception {\n")
+                .append("        ParameterHandleValueMap parameters = rtiamb.getParameterHandleValueMapFactory().create(COUNT);\n");
+        for (Member member : fomClass.members) {
+            out.append("        put").append(capitalize(member.name)).append("(parameters, ")
+                    .append(member.name).append(");\n");
+        }
+        out.append("        rtiamb.sendInteraction(handle, parameters, tag, time);\n")
+                .append("    }\n\n");
+        decode(out, fomClass, "ParameterHandleValueMap", "ParameterHandle");
+        encoders(out, fomClass, "ParameterHandleValueMap");
+        values(out, fomClass);
+        return out.append("}\n").toString();
+    }
+
+    private StringBuilder header(FomClass fomClass, String classHandleType, String memberHandleType) {
+        String getClassHandle = fomClass.interaction ? "getInteractionClassHandle" : "getObjectClassHandle";
+        String getMemberHandle = fomClass.interaction ? "getParameterHandle" : "getAttributeHandle";
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(packageName).append(";\n\n")
+                .append("import hla.rti1516e.*;\n")
+                .append("import hla.rti1516e.exceptions.RTIexception;\n")
+                .append("import shop.utils.HlaCodec;\n\n")
+                .append(fomClass.interaction ? "" : "import java.util.Collections;\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.Map;\n\n")
+                .append("/**\n")
+                .append(" * Generated from FOM.xml for ").append(fomClass.qualifiedName).append(". Do not edit.\n")
+                .append(" */\n")
+                .append("@SuppressWarnings(\"unused\")\n")
+                .append("public final class ").append(fomClass.javaName()).append(" {\n\n")
+                .append("    public static final String NAME = \"").append(fomClass.qualifiedName).append("\";\n");
+        for (int i = 0; i < fomClass.members.size(); i++) {
+            out.append("    public static final int ").append(fomClass.members.get(i).constant())
+                    .append(" = ").append(i).append(";\n");
+        }
+        out.append("    public static final int COUNT = ").append(fomClass.members.size()).append(";\n\n")
+                .append("    public final ").append(classHandleType).append(" handle;\n");
+        for (Member member : fomClass.members) {
+            out.append("    public final ").append(memberHandleType).append(' ').append(member.name).append(";\n");
+        }
+        out.append("    private final ").append(memberHandleType).append("[] handles;\n")
+                .append("    private final Map<").append(memberHandleType).append(", Integer> slots = new HashMap<>();\n")
+                .append("    private long encodedBytes = 0;\n")
+                .append("    private long decodedBytes = 0;\n\n")
+                .append("    public ").append(fomClass.javaName()).append("(RTIambassador rtiamb) throws RTIexception {\n")
+                .append("        handle = rtiamb.").append(getClassHandle).append("(NAME);\n");
+        for (Member member : fomClass.members) {
+            out.append("        ").append(member.name).append(" = rtiamb.").append(getMemberHandle)
+                    .append("(handle, \"").append(member.name).append("\");\n");
+        }
+        out.append("        handles = new ").append(memberHandleType).append("[]{");
+        for (int i = 0; i < fomClass.members.size(); i++) {
+            out.append(i == 0 ? "" : ", ").append(fomClass.members.get(i).name);
+        }
+        out.append("};\n")
+                .append("        for (int i = 0; i < handles.length; i++) {\n")
+                .append("            slots.put(handles[i], i);\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Returns the slot constant of the handle, or -1 if it does not belong to this class.\n")
+                .append("     */\n")
+                .append("    public int slotOf(").append(memberHandleType).append(" memberHandle) {\n")
+                .append("        Integer slot = slots.get(memberHandle);\n")
+                .append("        return slot == null ? -1 : slot;\n")
+                .append("    }\n\n")
+                .append("    public ").append(memberHandleType).append(" handleOf(int slot) {\n")
+                .append("        return handles[slot];\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Bytes produced by the put methods so far.\n")
+                .append("     */\n")
+                .append("    public long getEncodedBytes() {\n")
+                .append("        return encodedBytes;\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Bytes of known values read by decode so far.\n")
+                .append("     */\n")
+                .append("    public long getDecodedBytes() {\n")
+                .append("        return decodedBytes;\n")
+                .append("    }\n\n");
+        return out;
+    }
+
+    private void decode(StringBuilder out, FomClass fomClass, String mapType, String memberHandleType) {
+        out.append("    /**\n")
+                .append("     * Decodes every known value of the map into {@code values}. Fields that are not in\n")
+                .append("     * the map keep their previous value and are not marked present.\n")
+                .append("     */\n")
+                .append("    public Values decode(").append(mapType).append(" map, Values values) {\n")
+                .append("        values.present = 0;\n")
+                .append("        for (Map.Entry<").append(memberHandleType).append(", byte[]> entry : map.entrySet()) {\n")
+                .append("            int slot = slotOf(entry.getKey());\n")
+                .append("            switch (slot) {\n");
+        for (Member member : fomClass.members) {
+            out.append("                case ").append(member.constant()).append(":\n")
+                    .append("                    values.").append(member.name).append(" = ")
+                    .append(member.decodeExpression("entry.getValue()")).append(";\n")
+                    .append("                    break;\n");
+        }
+        out.append("                default:\n")
+                .append("                    continue;\n")
+                .append("            }\n")
+                .append("            values.present |= 1 << slot;\n")
+                .append("            decodedBytes += entry.getValue().length;\n")
+                .append("        }\n")
+                .append("        return values;\n")
+                .append("    }\n\n");
+    }
+
+    private void encoders(StringBuilder out, FomClass fomClass, String mapType) {
+        for (Member member : fomClass.members) {
+            out.append("    public void put").append(capitalize(member.name)).append('(').append(mapType)
+                    .append(" map, ").append(member.javaType()).append(" value) {\n")
+                    .append("        byte[] bytes = ").append(member.encodeExpression("value")).append(";\n")
+                    .append("        encodedBytes += bytes.length;\n")
+                    .append("        map.put(").append(member.name).append(", bytes);\n")
+                    .append("    }\n\n");
+        }
+    }
+
+    private void values(StringBuilder out, FomClass fomClass) {
+        out.append("    public static final class Values {\n");
+        for (Member member : fomClass.members) {
+            out.append("        public ").append(member.javaType()).append(' ').append(member.name).append(";\n");
+        }
+        out.append("        public int present;\n\n")
+                .append("        public boolean has(int slot) {\n")
+                .append("            return (present & 1 << slot) != 0;\n")
+                .append("        }\n\n");
+        for (Member member : fomClass.members) {
+            out.append("        public ").append(member.javaType()).append(' ').append(member.name)
+                    .append("Or(").append(member.javaType()).append(" fallback) {\n")
+                    .append("            return has(").append(member.constant()).append(") ? ").append(member.name)
+                    .append(" : fallback;\n")
+                    .append("        }\n\n");
+        }
+        out.append("        public void reset() {\n");
+        for (Member member : fomClass.members) {
+            out.append("            ").append(member.name).append(" = ").append(member.defaultValue()).append(";\n");
+        }
+        out.append("            present = 0;\n")
+                .append("        }\n\n")
+                .append("        @Override\n")
+                .append("        public String toString() {\n")
+                .append("            StringBuilder builder = new StringBuilder(\"").append(fomClass.name).append("{\");\n");
+        for (Member member : fomClass.members) {
+            out.append("            if (has(").append(member.constant()).append(")) {\n")
+                    .append("                builder.append(\" ").append(member.name).append("=\").append(")
+                    .append(member.javaType().equals("byte[]") ? "java.util.Arrays.toString(" + member.name + ")" : member.name)
+                    .append(");\n")
+                    .append("            }\n");
+        }
+        out.append("            return builder.append(\" }\").toString();\n")
+                .append("        }\n")
+                .append("    }\n");
+    }
+
+    private String listener(List<FomClass> objects, List<FomClass> interactions) {
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(packageName).append(";\n\n")
+                .append("import hla.rti1516e.LogicalTime;\n")
+                .append("import hla.rti1516e.ObjectInstanceHandle;\n\n")
+                .append("/**\n")
+                .append(" * Generated from FOM.xml. Callbacks of {@link ShopFomDispatcher}, one set per class;\n")
+                .append(" * implement only the ones the federate subscribes to. Do not edit.\n")
+                .append(" */\n")
+                .append("public interface ShopFomListener {\n");
+        for (FomClass fomClass : objects) {
+            out.append("\n    default void discover").append(fomClass.name)
+                    .append("(ObjectInstanceHandle handle, String objectName) {\n    }\n\n")
+                    .append("    default void reflect").append(fomClass.name).append("(ObjectInstanceHandle handle, ")
+                    .append(fomClass.javaName()).append(".Values values, LogicalTime time) {\n    }\n\n")
+                    .append("    default void remove").append(fomClass.name)
+                    .append("(ObjectInstanceHandle handle, LogicalTime time) {\n    }\n");
+        }
+        for (FomClass fomClass : interactions) {
+            out.append("\n    default void receive").append(fomClass.name).append('(')
+                    .append(fomClass.javaName()).append(".Values values, LogicalTime time) {\n    }\n");
+        }
+        return out.append("}\n").toString();
+    }
+
+    private String dispatcher(List<FomClass> objects, List<FomClass> interactions) {
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(packageName).append(";\n\n")
+                .append("import hla.rti1516e.*;\n\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.Map;\n\n")
+                .append("/**\n")
+                .append(" * Generated from FOM.xml. Routes RTI callbacks to a {@link ShopFomListener} with one\n")
+                .append(" * hash lookup for the class and a switch over the class index, then decodes the values\n")
+                .append(" * into a holder that is reused for every callback of that class. Do not edit.\n")
+                .append(" */\n")
+                .append("public final class ShopFomDispatcher {\n\n")
+                .append("    private final ShopFom fom;\n")
+                .append("    private final ShopFomListener listener;\n")
+                .append("    private final Map<ObjectInstanceHandle, Integer> instanceClasses = new HashMap<>();\n")
+                .append("    private long callbacks = 0;\n")
+                .append("    private long discoveries = 0;\n")
+                .append("    private long reflections = 0;\n")
+                .append("    private long removals = 0;\n")
+                .append("    private long interactions = 0;\n");
+        for (FomClass fomClass : objects) {
+            valuesField(out, fomClass);
+        }
+        for (FomClass fomClass : interactions) {
+            valuesField(out, fomClass);
+        }
+        out.append("\n    public ShopFomDispatcher(ShopFom fom, ShopFomListener listener) {\n")
+                .append("        this.fom = fom;\n")
+                .append("        this.listener = listener;\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Returns false if the class is not in the FOM.\n")
+                .append("     */\n")
+                .append("    public boolean discover(ObjectInstanceHandle handle, ObjectClassHandle objectClass, String objectName) {\n")
+                .append("        callbacks++;\n")
+                .append("        int index = fom.indexOf(objectClass);\n")
+                .append("        switch (index) {\n");
+        for (FomClass fomClass : objects) {
+            out.append("            case ShopFom.").append(constant(fomClass.name)).append("_OBJECT:\n")
+                    .append("                instanceClasses.put(handle, index);\n")
+                    .append("                discoveries++;\n")
+                    .append("                listener.discover").append(fomClass.name).append("(handle, objectName);\n")
+                    .append("                return true;\n");
+        }
+        out.append("            default:\n")
+                .append("                return false;\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Returns false if the instance was never discovered.\n")
+                .append("     */\n")
+                .append("    public boolean reflect(ObjectInstanceHandle handle, AttributeHandleValueMap attributes, LogicalTime time) {\n")
+                .append("        Integer index = instanceClasses.get(handle);\n")
+                .append("        if (index == null) {\n")
+                .append("            return false;\n")
+                .append("        }\n")
+                .append("        callbacks++;\n")
+                .append("        reflections++;\n")
+                .append("        switch (index) {\n");
+        for (FomClass fomClass : objects) {
+            out.append("            case ShopFom.").append(constant(fomClass.name)).append("_OBJECT:\n")
+                    .append("                listener.reflect").append(fomClass.name).append("(handle, fom.")
+                    .append(fomClass.fieldName()).append(".decode(attributes, ").append(fomClass.fieldName())
+                    .append("Values), time);\n")
+                    .append("                return true;\n");
+        }
+        out.append("            default:\n")
+                .append("                return false;\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Returns false if the instance was never discovered.\n")
+                .append("     */\n")
+                .append("    public boolean remove(ObjectInstanceHandle handle, LogicalTime time) {\n")
+                .append("        Integer index = instanceClasses.remove(handle);\n")
+                .append("        if (index == null) {\n")
+                .append("            return false;\n")
+                .append("        }\n")
+                .append("        callbacks++;\n")
+                .append("        removals++;\n")
+                .append("        switch (index) {\n");
+        for (FomClass fomClass : objects) {
+            out.append("            case ShopFom.").append(constant(fomClass.name)).append("_OBJECT:\n")
+                    .append("                listener.remove").append(fomClass.name).append("(handle, time);\n")
+                    .append("                return true;\n");
+        }
+        out.append("            default:\n")
+                .append("                return false;\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Parameters missing from the map are decoded as zero. Returns false if the class is\n")
+                .append("     * not in the FOM.\n")
+                .append("     */\n")
+                .append("    public boolean receive(InteractionClassHandle interactionClass, ParameterHandleValueMap parameters,\n")
+                .append("                           LogicalTime time) {\n")
+                .append("        callbacks++;\n")
+                .append("        interactions++;\n")
+                .append("        switch (fom.indexOf(interactionClass)) {\n");
+        for (FomClass fomClass : interactions) {
+            String values = fomClass.fieldName() + "Values";
+            out.append("            case ShopFom.").append(constant(fomClass.name)).append("_INTERACTION:\n")
+                    .append("                ").append(values).append(".reset();\n")
+                    .append("                listener.receive").append(fomClass.name).append("(fom.")
+                    .append(fomClass.fieldName()).append(".decode(parameters, ").append(values)
+                    .append("), time);\n")
+                    .append("                return true;\n");
+        }
+        out.append("            default:\n")
+                .append("                return false;\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("    public int instanceCount() {\n")
+                .append("        return instanceClasses.size();\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Discoveries, reflections, removals and interactions routed so far.\n")
+                .append("     */\n")
+                .append("    public long getCallbacks() {\n")
+                .append("        return callbacks;\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Instances discovered so far, including ones that have been removed since.\n")
+                .append("     */\n")
+                .append("    public long getDiscoveries() {\n")
+                .append("        return discoveries;\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Reflections of discovered instances routed so far.\n")
+                .append("     */\n")
+                .append("    public long getReflections() {\n")
+                .append("        return reflections;\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Removals of discovered instances routed so far.\n")
+                .append("     */\n")
+                .append("    public long getRemovals() {\n")
+                .append("        return removals;\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Interactions received so far, including classes that are not in the FOM.\n")
+                .append("     */\n")
+                .append("    public long getInteractions() {\n")
+                .append("        return interactions;\n")
+                .append("    }\n")
+                .append("}\n");
+        return out.toString();
+    }
+
+    private void valuesField(StringBuilder out, FomClass fomClass) {
+        out.append("    private final ").append(fomClass.javaName()).append(".Values ").append(fomClass.fieldName())
+                .append("Values = new ").append(fomClass.javaName()).append(".Values();\n");
+    }
+
+    private String registry(List<FomClass> objects, List<FomClass> interactions) {
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(packageName).append(";\n\n")
+                .append("import hla.rti1516e.InteractionClassHandle;\n")
+                .append("import hla.rti1516e.ObjectClassHandle;\n")
+                .append("import hla.rti1516e.RTIambassador;\n")
+                .append("import hla.rti1516e.exceptions.RTIexception;\n\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.Map;\n\n")
+                .append("/**\n")
+                .append(" * Generated from FOM.xml. Resolves every class, attribute and parameter handle once\n")
+                .append(" * and maps class handles to the index constants below. Do not edit.\n")
+                .append(" */\n")
+                .append("public final class ShopFom {\n\n");
+        for (int i = 0; i < objects.size(); i++) {
+            out.append("    public static final int ").append(constant(objects.get(i).name)).append("_OBJECT = ")
+                    .append(i).append(";\n");
+        }
+        for (int i = 0; i < interactions.size(); i++) {
+            out.append("    public static final int ").append(constant(interactions.get(i).name))
+                    .append("_INTERACTION = ").append(i).append(";\n");
+        }
+        out.append("\n");
+        for (FomClass fomClass : objects) {
+            out.append("    public final ").append(fomClass.javaName()).append(' ')
+                    .append(fomClass.fieldName()).append(";\n");
+        }
+        for (FomClass fomClass : interactions) {
+            out.append("    public final ").append(fomClass.javaName()).append(' ')
+                    .append(fomClass.fieldName()).append(";\n");
+        }
+        out.append("    private final Map<ObjectClassHandle, Integer> objectIndexes = new HashMap<>();\n")
+                .append("    private final Map<InteractionClassHandle, Integer> interactionIndexes = new HashMap<>();\n\n")
+                .append("    public ShopFom(RTIambassador rtiamb) throws RTIexception {\n");
+        for (FomClass fomClass : objects) {
+            out.append("        ").append(fomClass.fieldName()).append(" = new ").append(fomClass.javaName())
+                    .append("(rtiamb);\n")
+                    .append("        objectIndexes.put(").append(fomClass.fieldName()).append(".handle, ")
+                    .append(constant(fomClass.name)).append("_OBJECT);\n");
+        }
+        for (FomClass fomClass : interactions) {
+            out.append("        ").append(fomClass.fieldName()).append(" = new ").append(fomClass.javaName())
+                    .append("(rtiamb);\n")
+                    .append("        interactionIndexes.put(").append(fomClass.fieldName()).append(".handle, ")
+                    .append(constant(fomClass.name)).append("_INTERACTION);\n");
+        }
+        out.append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Returns the *_OBJECT constant of the class, or -1 if it is not in the FOM.\n")
+                .append("     */\n")
+                .append("    public int indexOf(ObjectClassHandle objectClass) {\n")
+                .append("        Integer index = objectIndexes.get(objectClass);\n")
+                .append("        return index == null ? -1 : index;\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Returns the *_INTERACTION constant of the class, or -1 if it is not in the FOM.\n")
+                .append("     */\n")
+                .append("    public int indexOf(InteractionClassHandle interactionClass) {\n")
+                .append("        Integer index = interactionIndexes.get(interactionClass);\n")
+                .append("        return index == null ? -1 : index;\n")
+                .append("    }\n\n");
+        byteTotal(out, "Encoded", objects, interactions);
+        byteTotal(out, "Decoded", objects, interactions);
+        return out.append("}\n").toString();
+    }
+
+    private void byteTotal(StringBuilder out, String direction, List<FomClass> objects, List<FomClass> interactions) {
+        List<FomClass> classes = new ArrayList<>(objects);
+        classes.addAll(interactions);
+        out.append(direction.equals("Encoded") ? "" : "\n")
+                .append("    /**\n")
+                .append("     * ").append(direction).append(" bytes of all classes so far.\n")
+                .append("     */\n")
+                .append("    public long get").append(direction).append("Bytes() {\n")
+                .append("        return ");
+        for (int i = 0; i < classes.size(); i++) {
+            out.append(i == 0 ? "" : "\n                + ").append(classes.get(i).fieldName())
+                    .append(".get").append(direction).append("Bytes()");
+        }
+        out.append(";\n")
+                .append("    }\n");
+    }
+
+    private void write(File packageDir, String className, String source) throws IOException {
+        Files.write(new File(packageDir, className + ".java").toPath(), source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Element> children(Element parent, String tag) {
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && tag.equals(((Element) node).getTagName())) {
+                result.add((Element) node);
+            }
+        }
+        return result;
+    }
+
+    private static String text(Element parent, String tag) {
+        List<Element> elements = children(parent, tag);
+        return elements.isEmpty() ? "" : elements.get(0).getTextContent().trim();
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String constant(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    private static final class FomClass {
+        private final String name;
+        private final String qualifiedName;
+        private final List<Member> members;
+        private final boolean interaction;
+
+        private FomClass(String name, String qualifiedName, List<Member> members, boolean interaction) {
+            this.name = name;
+            this.qualifiedName = qualifiedName;
+            this.members = members;
+            this.interaction = interaction;
+        }
+
+        private String javaName() {
+            return name + (interaction ? "Interaction" : "Object");
+        }
+
+        private String fieldName() {
+            return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    private static final class Member {
+        private final String name;
+        private final String dataType;
+
+        private Member(String name, String dataType) {
+            this.name = name;
+            this.dataType = dataType;
+        }
+
+        private String constant() {
+            return FomGenerator.constant(name);
+        }
+
+        private String javaType() {
+            switch (dataType) {
+                case "HLAinteger32BE":
+                    return "int";
+                case "HLAboolean":
+                    return "boolean";
+                default:
+                    return "byte[]";
+            }
+        }
+
+        private String decodeExpression(String bytes) {
+            switch (dataType) {
+                case "HLAinteger32BE":
+                    return "HlaCodec.decodeInt(" + bytes + ")";
+                case "HLAboolean":
+                    return "HlaCodec.decodeBoolean(" + bytes + ")";
+                default:
+                    return bytes;
+            }
+        }
+
+        private String defaultValue() {
+            switch (dataType) {
+                case "HLAinteger32BE":
+                    return "0";
+                case "HLAboolean":
+                    return "false";
+                default:
+                    return "null";
+            }
+        }
+
+        private String encodeExpression(String value) {
+            switch (dataType) {
+                case "HLAinteger32BE":
+                    return "HlaCodec.encodeInt(" + value + ")";
+                case "HLAboolean":
+                    return "HlaCodec.encodeBoolean(" + value + ")";
+                default:
+                    return value;
+            }
+        }
+    }
+}
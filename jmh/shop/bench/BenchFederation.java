@@ -0,0 +1,136 @@
+package shop.bench;
+
+import hla.rti1516e.AttributeHandleValueMap;
+import hla.rti1516e.CallbackModel;
+import hla.rti1516e.NullFederateAmbassador;
+import hla.rti1516e.ObjectClassHandle;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.OrderType;
+import hla.rti1516e.ParameterHandleValueMap;
+import hla.rti1516e.RTIambassador;
+import hla.rti1516e.RtiFactory;
+import hla.rti1516e.exceptions.RTIexception;
+import hla.rti1516e.time.HLAfloat64Time;
+import hla.rti1516e.time.HLAfloat64TimeFactory;
+import shop.fom.ShopFom;
+import shop.rti.local.LocalRti;
+import shop.utils.FederateConfig;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fresh federation on the in-memory RTI for one benchmark trial.
+ * <p>
+ * A peer federate registers the synthetic clients, queues and checkouts, so their handles are
+ * real, and builds the attribute and parameter maps that the benchmarks pass to the federate
+ * under test. The federates log every tick to System.out, so {@link #silenceStdout()} swaps it
+ * for a discarding stream to measure the work rather than the terminal.
+ */
+public final class BenchFederation {
+
+    public static final OrderType TSO = OrderType.TIMESTAMP;
+    private static final AtomicInteger FEDERATIONS = new AtomicInteger();
+    private static final PrintStream STDOUT = System.out;
+
+    public final RtiFactory rtiFactory = LocalRti.getRtiFactory();
+    public final String name;
+    public final ShopFom fom;
+    public final HLAfloat64Time time;
+    public final byte[] tag = new byte[0];
+    private final RTIambassador peer;
+
+    public BenchFederation() throws RTIexception {
+        name = "Bench" + FEDERATIONS.incrementAndGet();
+        peer = rtiFactory.getRtiAmbassador();
+        peer.connect(new NullFederateAmbassador() {
+        }, CallbackModel.HLA_EVOKED);
+        peer.createFederationExecution(name, new URL[0]);
+        peer.joinFederationExecution("peer", name);
+        fom = new ShopFom(peer);
+        time = ((HLAfloat64TimeFactory) peer.getTimeFactory()).makeTime(1.0);
+    }
+
+    public static FederateConfig config() {
+        return FederateConfig.load(new String[]{"--log.debug=false"});
+    }
+
+    public ObjectInstanceHandle register(ObjectClassHandle objectClass) throws RTIexception {
+        return peer.registerObjectInstance(objectClass);
+    }
+
+    public AttributeHandleValueMap client(int clientId, boolean privileged, int endShoppingTime) throws RTIexception {
+        AttributeHandleValueMap values = fom.client.createValueMap(peer);
+        fom.client.putClientId(values, clientId);
+        fom.client.putIsPrivileged(values, privileged);
+        fom.client.putEndShoppingTime(values, endShoppingTime);
+        return values;
+    }
+
+    public AttributeHandleValueMap queue(int queueId, int maxSize, int currentSize) throws RTIexception {
+        AttributeHandleValueMap values = fom.queue.createValueMap(peer);
+        fom.queue.putQueueId(values, queueId);
+        fom.queue.putMaxSize(values, maxSize);
+        fom.queue.putCurrentSize(values, currentSize);
+        return values;
+    }
+
+    public AttributeHandleValueMap checkout(int checkoutId, boolean open, int queueId) throws RTIexception {
+        AttributeHandleValueMap values = fom.checkout.createValueMap(peer);
+        fom.checkout.putCheckoutId(values, checkoutId);
+        fom.checkout.putIsOpened(values, open);
+        fom.checkout.putQueueId(values, queueId);
+        return values;
+    }
+
+    public ParameterHandleValueMap chooseQueue(int checkoutId, int clientId) throws RTIexception {
+        ParameterHandleValueMap values = parameters(2);
+        fom.chooseQueue.putCheckoutId(values, checkoutId);
+        fom.chooseQueue.putClientId(values, clientId);
+        return values;
+    }
+
+    public ParameterHandleValueMap clientExit(int checkoutId, int clientId) throws RTIexception {
+        ParameterHandleValueMap values = parameters(2);
+        fom.clientExit.putCheckoutId(values, checkoutId);
+        fom.clientExit.putClientId(values, clientId);
+        return values;
+    }
+
+    public ParameterHandleValueMap endService(int checkoutId, int clientId) throws RTIexception {
+        ParameterHandleValueMap values = parameters(2);
+        fom.endService.putCheckoutId(values, checkoutId);
+        fom.endService.putClientId(values, clientId);
+        return values;
+    }
+
+    /**
+     * Delivers whatever the federate under test sent to the peer, such as provide-update requests.
+     */
+    public void drain() throws RTIexception {
+        while (peer.evokeCallback(0.0)) {
+        }
+    }
+
+    public static void silenceStdout() {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    public static void restoreStdout() {
+        System.setOut(STDOUT);
+    }
+
+    private ParameterHandleValueMap parameters(int capacity) throws RTIexception {
+        return peer.getParameterHandleValueMapFactory().create(capacity);
+    }
+}
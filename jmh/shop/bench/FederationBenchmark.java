@@ -0,0 +1,145 @@
+package shop.bench;
+
+import shop.fom.ShopFomDispatcher;
+import shop.rti.FederationLauncher;
+import shop.rti.ShopFederate;
+import shop.utils.CallbackWaiter;
+import shop.utils.FederateConfig;
+import shop.utils.TimeAdvance;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the whole shop federation on the in-memory RTI once per population size and checkout
+ * count, and writes one CSV row per federate and run.
+ * <p>
+ * Every run is headless and unpaced and ends at {@code sim.end-time}. The client federate keeps
+ * {@code load.clients} shoppers in the shop and the manager opens {@code load.checkouts}
+ * checkouts on the first tick. The sweep is set with {@code --bench.clients} and
+ * {@code --bench.checkouts} (comma separated), the report path with {@code --bench.report}; any
+ * other key is passed on to the federates.
+ * <p>
+ * The federate that stops scaling first is the one with the most compute time, i.e. time spent
+ * in its ticks outside grant waits (as counted by {@link shop.utils.TickMetrics}): every other
+ * federate waits for it.
+ */
+public final class FederationBenchmark {
+
+    private static final String HEADER = "clients,checkouts,end_time,startup_ms,wall_ms,ticks_per_s,heap_peak_mb,"
+            + "federate,grants,grant_wait_total_ms,grant_wait_avg_ms,grant_wait_max_ms,compute_ms,"
+            + "reflections,reflections_per_s,interactions,interactions_per_s";
+
+    private FederationBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        FederateConfig sweep = FederateConfig.load(args);
+        int[] clients = ints(sweep.get("bench.clients", "100,1000,10000,100000"));
+        int[] checkouts = ints(sweep.get("bench.checkouts", "1,8,32"));
+        File report = new File(sweep.get("bench.report", "build/reports/federation-benchmark.csv"));
+        double endTime = sweep.getDouble("sim.end-time", 0.0) > 0 ? sweep.getDouble("sim.end-time", 0.0) : 1000.0;
+        if (report.getParentFile() != null) {
+            report.getParentFile().mkdirs();
+        }
+
+        PrintStream out = System.out;
+        List<String> rows = new ArrayList<>();
+        for (int checkoutCount : checkouts) {
+            for (int clientCount : clients) {
+                FederateConfig config = FederateConfig.load(args);
+                config.set("rti.backend", "local");
+                config.set("pacing.mode", "afap");
+                config.set("log.debug", "false");
+                config.set("sim.end-time", String.valueOf(endTime));
+                config.set("load.clients", String.valueOf(clientCount));
+                config.set("load.checkouts", String.valueOf(checkoutCount));
+
+                out.printf(Locale.ROOT, "%d clients, %d checkouts, %.0f ticks...%n", clientCount, checkoutCount, endTime);
+                System.gc();
+                resetHeapPeak();
+                BenchFederation.silenceStdout();
+                long start = System.nanoTime();
+                long[] started = {start};
+                Map<String, ShopFederate> federates;
+                try {
+                    federates = FederationLauncher.run(config, running -> started[0] = System.nanoTime());
+                } finally {
+                    BenchFederation.restoreStdout();
+                }
+                long end = System.nanoTime();
+                double wallMillis = (end - start) / 1e6;
+                double startupMillis = (started[0] - start) / 1e6;
+                // throughput after the first grant at 1.0, rates over the whole run
+                double ticksPerSecond = (endTime - TimeAdvance.STEP) / ((end - started[0]) / 1e9);
+                double seconds = wallMillis / 1000;
+                double heapPeak = heapPeakMegabytes();
+
+                String run = String.format(Locale.ROOT, "%d,%d,%.0f,%.1f,%.1f,%.1f,%.1f", clientCount, checkoutCount,
+                        endTime, startupMillis, wallMillis, ticksPerSecond, heapPeak);
+                String slowest = null;
+                double slowestCompute = -1;
+                for (Map.Entry<String, ShopFederate> entry : federates.entrySet()) {
+                    CallbackWaiter waiter = entry.getValue().getCallbackWaiter();
+                    ShopFomDispatcher dispatcher = entry.getValue().getDispatcher();
+                    long reflections = dispatcher == null ? 0 : dispatcher.getReflections();
+                    long interactions = dispatcher == null ? 0 : dispatcher.getInteractions();
+                    // same per-tick figure as the launcher's critical path, without start-up and resign
+                    double compute = entry.getValue().getTickMetrics().getComputeMillis();
+                    if (compute > slowestCompute) {
+                        slowestCompute = compute;
+                        slowest = entry.getKey();
+                    }
+                    rows.add(String.format(Locale.ROOT, "%s,%s,%d,%.1f,%.3f,%.3f,%.1f,%d,%.1f,%d,%.1f", run,
+                            entry.getKey(), waiter.getGrants(), waiter.getTotalGrantWaitMillis(),
+                            waiter.getAverageGrantWaitMillis(), waiter.getMaxGrantWaitMillis(), compute,
+                            reflections, reflections / seconds, interactions, interactions / seconds));
+                }
+                out.printf(Locale.ROOT, "  %.0f ms (startup %.0f ms), %.1f ticks/s, heap peak %.1f MB, "
+                        + "busiest federate %s (%.0f ms)%n", wallMillis, startupMillis, ticksPerSecond, heapPeak,
+                        slowest, slowestCompute);
+            }
+        }
+
+        try (PrintWriter writer = new PrintWriter(report, "UTF-8")) {
+            writer.println(HEADER);
+            rows.forEach(writer::println);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot write benchmark report " + report + ": " + e.getMessage(), e);
+        }
+        out.println("Report written to " + report);
+    }
+
+    private static int[] ints(String values) {
+        return Arrays.stream(values.split(",")).map(String::trim).filter(value -> !value.isEmpty())
+                .mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static void resetHeapPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static double heapPeakMegabytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak / (1024.0 * 1024.0);
+    }
+}
@@ -0,0 +1,121 @@
+package shop.bench;
+
+import shop.fom.ShopFomDispatcher;
+import shop.rti.FederationLauncher;
+import shop.rti.ShopFederate;
+import shop.utils.FederateConfig;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the whole shop federation on the in-memory RTI for a long time with a fixed number of
+ * shoppers in the store and checks that memory stays flat while clients keep passing through.
+ * <p>
+ * The store keeps {@code --soak.clients} shoppers (default 1000) and opens {@code --soak.checkouts}
+ * checkouts (default 32) on the first tick.
+ * <p>
+ * Every {@code --soak.sample-seconds} the heap is collected and its used size printed together
+ * with the clients that have passed through the store and the live objects of every federate.
+ * The run ends at {@code sim.end-time} (default 25000, a little over a million clients with 32
+ * checkouts); the heap growth between the first and the last quarter of the samples is
+ * reported at the end. Any other key is passed on to the federates.
+ */
+public final class FederationSoak {
+
+    private FederationSoak() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        FederateConfig config = FederateConfig.load(args);
+        long sampleSeconds = Math.max(1, config.getLong("soak.sample-seconds", 10));
+        double endTime = config.getDouble("sim.end-time", 0.0) > 0 ? config.getDouble("sim.end-time", 0.0) : 25000.0;
+        config.set("rti.backend", "local");
+        config.set("pacing.mode", "afap");
+        config.set("log.debug", "false");
+        config.set("sim.end-time", String.valueOf(endTime));
+        config.set("load.clients", config.get("soak.clients", "1000"));
+        config.set("load.checkouts", config.get("soak.checkouts", "32"));
+
+        PrintStream out = System.out;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        List<double[]> samples = new ArrayList<>();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "soak-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        out.printf(Locale.ROOT, "%s clients in the store, %s checkouts, %.0f ticks, a sample every %d s%n",
+                config.get("load.clients", ""), config.get("load.checkouts", ""), endTime, sampleSeconds);
+        out.println("seconds,clients_through,heap_used_mb,live_objects");
+
+        long start = System.nanoTime();
+        Map<String, ShopFederate> federates;
+        BenchFederation.silenceStdout();
+        try {
+            federates = FederationLauncher.run(config, running -> sampler.scheduleAtFixedRate(() -> {
+                System.gc();
+                double heap = memory.getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0);
+                long through = clientsThrough(running);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                synchronized (samples) {
+                    samples.add(new double[]{seconds, through, heap});
+                }
+                out.printf(Locale.ROOT, "%.0f,%d,%.1f,%s%n", seconds, through, heap, liveObjects(running));
+            }, sampleSeconds, sampleSeconds, TimeUnit.SECONDS));
+        } finally {
+            sampler.shutdownNow();
+            BenchFederation.restoreStdout();
+        }
+
+        long through = clientsThrough(federates);
+        out.printf(Locale.ROOT, "%d clients passed through in %.0f s, live objects at the end: %s%n", through,
+                (System.nanoTime() - start) / 1e9, liveObjects(federates));
+        synchronized (samples) {
+            if (samples.size() < 8) {
+                out.println("Too few samples to judge the heap trend, run longer or sample more often");
+                return;
+            }
+            int quarter = samples.size() / 4;
+            double[] first = average(samples.subList(0, quarter));
+            double[] last = average(samples.subList(samples.size() - quarter, samples.size()));
+            double perMillion = (last[2] - first[2]) / Math.max(1, last[1] - first[1]) * 1_000_000;
+            out.printf(Locale.ROOT, "Heap used %.1f MB in the first quarter, %.1f MB in the last, %+.1f MB per million clients%n",
+                    first[2], last[2], perMillion);
+        }
+    }
+
+    /**
+     * Clients the checkout federate has discovered, i.e. every client ever registered.
+     */
+    private static long clientsThrough(Map<String, ShopFederate> federates) {
+        ShopFederate checkout = federates.get("checkout");
+        ShopFomDispatcher dispatcher = checkout == null ? null : checkout.getDispatcher();
+        return dispatcher == null ? 0 : dispatcher.getDiscoveries();
+    }
+
+    private static String liveObjects(Map<String, ShopFederate> federates) {
+        StringBuilder live = new StringBuilder();
+        federates.forEach((name, federate) -> live.append(live.length() == 0 ? "" : " ")
+                .append(name).append('=').append(federate.getLiveObjects()));
+        return live.toString();
+    }
+
+    private static double[] average(List<double[]> samples) {
+        double[] sum = new double[3];
+        for (double[] sample : samples) {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += sample[i] / samples.size();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,99 @@
+package shop.rti.checkout;
+
+import hla.rti1516e.AttributeHandleValueMap;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.exceptions.RTIexception;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import shop.bench.BenchFederation;
+import shop.object.Queue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The checkout federate's tick, which scans open checkouts for queues to serve and completes
+ * due services, and its queue reflections. Every queue keeps clients waiting, so each tick
+ * starts and ends services.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckoutFederateBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int clients;
+    @Param({"4", "32"})
+    int queues;
+    @Param({"4", "32"})
+    int checkouts;
+
+    private BenchFederation bench;
+    private CheckoutFederate federate;
+    private CheckoutAmbassador ambassador;
+    private ObjectInstanceHandle[] queueHandles;
+    private AttributeHandleValueMap[] queueUpdates;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchFederation.silenceStdout();
+        bench = new BenchFederation();
+        federate = new CheckoutFederate(BenchFederation.config());
+        ambassador = federate.attach(bench.rtiFactory, bench.name, "checkout");
+        for (int i = 0; i < checkouts; i++) {
+            federate.receiveOpenCheckoutInteraction(i);
+        }
+        queueHandles = new ObjectInstanceHandle[queues];
+        queueUpdates = new AttributeHandleValueMap[queues];
+        int waiting = Math.max(1, Math.min(Queue.MAX_SIZE, clients / queues));
+        for (int i = 0; i < queues; i++) {
+            queueHandles[i] = bench.register(bench.fom.queue.handle);
+            queueUpdates[i] = bench.queue(i, Queue.MAX_SIZE, 1 + i % waiting);
+            ambassador.discoverObjectInstance(queueHandles[i], bench.fom.queue.handle, "queue" + i);
+            reflect(queueHandles[i], bench.queue(i, Queue.MAX_SIZE, waiting));
+        }
+        for (int i = 0; i < clients; i++) {
+            ObjectInstanceHandle handle = bench.register(bench.fom.client.handle);
+            ambassador.discoverObjectInstance(handle, bench.fom.client.handle, "client" + i);
+            reflect(handle, bench.client(i, i % 4 == 0, 3));
+        }
+        federate.doThings();
+        bench.drain();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchFederation.restoreStdout();
+    }
+
+    @Benchmark
+    public void doThings() throws RTIexception {
+        ambassador.federateTime += 1;
+        federate.doThings();
+    }
+
+    @Benchmark
+    public void reflectQueue() throws Exception {
+        int i = next++ % queues;
+        reflect(queueHandles[i], queueUpdates[i]);
+    }
+
+    private void reflect(ObjectInstanceHandle handle, AttributeHandleValueMap values) throws Exception {
+        ambassador.reflectAttributeValues(handle, values, bench.tag, BenchFederation.TSO, null, bench.time,
+                BenchFederation.TSO, null);
+    }
+}
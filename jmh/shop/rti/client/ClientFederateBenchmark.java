@@ -0,0 +1,150 @@
+package shop.rti.client;
+
+import hla.rti1516e.AttributeHandleValueMap;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.ParameterHandleValueMap;
+import hla.rti1516e.exceptions.RTIexception;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import shop.bench.BenchFederation;
+import shop.object.Client;
+import shop.object.Queue;
+import shop.utils.FederateConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue selection for clients that finished shopping, and the client federate's callbacks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientFederateBenchmark {
+
+    @State(Scope.Thread)
+    public static class Shop {
+
+        @Param({"100", "1000", "10000"})
+        int clients;
+        @Param({"4", "32"})
+        int queues;
+        @Param({"4", "32"})
+        int checkouts;
+        @Param({"objects", "columns"})
+        String store;
+
+        BenchFederation bench;
+        ClientFederate federate;
+        ClientAmbassador ambassador;
+        int[] population;
+        ObjectInstanceHandle[] queueHandles;
+        AttributeHandleValueMap[] emptyQueues;
+        AttributeHandleValueMap[] queueUpdates;
+        ParameterHandleValueMap[] clientExits;
+        int next = 0;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            BenchFederation.silenceStdout();
+            bench = new BenchFederation();
+            FederateConfig config = BenchFederation.config();
+            config.set("client.store", store);
+            federate = new ClientFederate(config);
+            ambassador = federate.attach(bench.rtiFactory, bench.name, "client");
+            queueHandles = new ObjectInstanceHandle[queues];
+            emptyQueues = new AttributeHandleValueMap[queues];
+            queueUpdates = new AttributeHandleValueMap[queues];
+            for (int i = 0; i < queues; i++) {
+                queueHandles[i] = bench.register(bench.fom.queue.handle);
+                emptyQueues[i] = bench.queue(i, Queue.MAX_SIZE, 0);
+                queueUpdates[i] = bench.queue(i, Queue.MAX_SIZE, i % Queue.MAX_SIZE);
+                ambassador.discoverObjectInstance(queueHandles[i], bench.fom.queue.handle, "queue" + i);
+                reflect(queueHandles[i], emptyQueues[i]);
+            }
+            for (int i = 0; i < checkouts; i++) {
+                ObjectInstanceHandle handle = bench.register(bench.fom.checkout.handle);
+                ambassador.discoverObjectInstance(handle, bench.fom.checkout.handle, "checkout" + i);
+                reflect(handle, bench.checkout(i, true, i % queues));
+            }
+            clientExits = new ParameterHandleValueMap[clients];
+            population = new int[clients];
+            for (int i = 0; i < clients; i++) {
+                federate.createClientObject();
+                population[i] = federate.clients.slotOfId(i);
+                clientExits[i] = bench.clientExit(i % checkouts, i);
+            }
+            // let every client finish its first round of shopping
+            ambassador.federateTime = Client.MAX_SHOPPING_TIME + 1;
+            federate.doThings();
+            bench.drain();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            BenchFederation.restoreStdout();
+        }
+
+        void reflect(ObjectInstanceHandle handle, AttributeHandleValueMap values) throws Exception {
+            ambassador.reflectAttributeValues(handle, values, bench.tag, BenchFederation.TSO, null, bench.time,
+                    BenchFederation.TSO, null);
+        }
+    }
+
+    /**
+     * Every client finishes shopping on the next tick and all queues are empty again.
+     */
+    @State(Scope.Thread)
+    public static class EveryoneFinished {
+        // the benchmark reads the shop from here, as JMH may hand it a different Shop instance
+        Shop shop;
+
+        @Setup(Level.Invocation)
+        public void finishShopping(Shop shop) throws Exception {
+            this.shop = shop;
+            shop.bench.drain();
+            shop.ambassador.federateTime += 1;
+            shop.federate.clientsWithoutQueue.clear();
+            for (int client : shop.population) {
+                shop.federate.clients.setWaitingInQueue(client, false);
+                shop.federate.shoppingCalendar.schedule((long) shop.ambassador.federateTime, client);
+            }
+            for (int i = 0; i < shop.queues; i++) {
+                shop.reflect(shop.queueHandles[i], shop.emptyQueues[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void chooseQueues(EveryoneFinished everyoneFinished) throws RTIexception {
+        Shop shop = everyoneFinished.shop;
+        shop.federate.chooseQueues(shop.bench.time);
+    }
+
+    @Benchmark
+    public void reflectQueue(Shop shop) throws Exception {
+        int i = shop.next++ % shop.queues;
+        shop.reflect(shop.queueHandles[i], shop.queueUpdates[(i + shop.next) % shop.queues]);
+    }
+
+    @Benchmark
+    public void receiveClientExit(Shop shop) throws Exception {
+        shop.ambassador.receiveInteraction(shop.bench.fom.clientExit.handle, shop.clientExits[shop.next++ % shop.clients],
+                shop.bench.tag, BenchFederation.TSO, null, shop.bench.time, BenchFederation.TSO, null);
+        if (shop.federate.clientsToDelete.size() >= shop.clients) {
+            shop.federate.clientsToDelete.clear();
+        }
+    }
+}
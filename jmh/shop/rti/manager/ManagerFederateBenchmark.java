@@ -0,0 +1,107 @@
+package shop.rti.manager;
+
+import hla.rti1516e.AttributeHandleValueMap;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.ParameterHandleValueMap;
+import hla.rti1516e.exceptions.RTIexception;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import shop.bench.BenchFederation;
+import shop.object.Queue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The manager's tick, which sums queue capacity against waiting clients to open or close
+ * checkouts, and its callbacks. Half of the queues are empty, so closing is considered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ManagerFederateBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int clients;
+    @Param({"4", "32"})
+    int queues;
+    @Param({"4", "32"})
+    int checkouts;
+
+    private BenchFederation bench;
+    private ManagerFederate federate;
+    private ManagerAmbassador ambassador;
+    private ObjectInstanceHandle[] clientHandles;
+    private AttributeHandleValueMap[] clientUpdates;
+    private ParameterHandleValueMap endService;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchFederation.silenceStdout();
+        bench = new BenchFederation();
+        federate = new ManagerFederate(BenchFederation.config());
+        ambassador = federate.attach(bench.rtiFactory, bench.name, "manager");
+        for (int i = 0; i < queues; i++) {
+            ObjectInstanceHandle handle = bench.register(bench.fom.queue.handle);
+            ambassador.discoverObjectInstance(handle, bench.fom.queue.handle, "queue" + i);
+            reflect(handle, bench.queue(i, Queue.MAX_SIZE, i % 2 == 0 ? 0 : Queue.MAX_SIZE / 2));
+        }
+        for (int i = 0; i < checkouts; i++) {
+            ObjectInstanceHandle handle = bench.register(bench.fom.checkout.handle);
+            ambassador.discoverObjectInstance(handle, bench.fom.checkout.handle, "checkout" + i);
+            reflect(handle, bench.checkout(i, true, i % queues));
+        }
+        clientHandles = new ObjectInstanceHandle[clients];
+        clientUpdates = new AttributeHandleValueMap[clients];
+        for (int i = 0; i < clients; i++) {
+            clientHandles[i] = bench.register(bench.fom.client.handle);
+            clientUpdates[i] = bench.client(i, i % 4 == 0, 3);
+            ambassador.discoverObjectInstance(clientHandles[i], bench.fom.client.handle, "client" + i);
+            reflect(clientHandles[i], clientUpdates[i]);
+        }
+        endService = bench.endService(0, 0);
+        federate.doThings();
+        bench.drain();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchFederation.restoreStdout();
+    }
+
+    @Benchmark
+    public void doThings() throws RTIexception {
+        federate.doThings();
+    }
+
+    @Benchmark
+    public void reflectClient() throws Exception {
+        int i = next++ % clients;
+        reflect(clientHandles[i], clientUpdates[i]);
+    }
+
+    @Benchmark
+    public void receiveEndService() throws Exception {
+        ambassador.receiveInteraction(bench.fom.endService.handle, endService, bench.tag, BenchFederation.TSO, null,
+                bench.time, BenchFederation.TSO, null);
+    }
+
+    private void reflect(ObjectInstanceHandle handle, AttributeHandleValueMap values) throws Exception {
+        ambassador.reflectAttributeValues(handle, values, bench.tag, BenchFederation.TSO, null, bench.time,
+                BenchFederation.TSO, null);
+    }
+}
@@ -0,0 +1,130 @@
+package shop.rti.queue;
+
+import hla.rti1516e.AttributeHandleValueMap;
+import hla.rti1516e.InteractionClassHandle;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.ParameterHandleValueMap;
+import hla.rti1516e.exceptions.RTIexception;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import shop.bench.BenchFederation;
+import shop.object.Client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clients joining and leaving queues, and the queue federate's tick.
+ * <p>
+ * All clients start in a queue. Each operation serves the head of one queue and puts that
+ * client back at its tail, so the population stays the same.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueueFederateBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int clients;
+    @Param({"4", "32"})
+    int queues;
+    @Param({"4", "32"})
+    int checkouts;
+
+    private BenchFederation bench;
+    private QueueFederate federate;
+    private QueueAmbassador ambassador;
+    private ObjectInstanceHandle[] clientHandles;
+    private AttributeHandleValueMap[] clientUpdates;
+    private ParameterHandleValueMap[] chooseQueue;
+    private ParameterHandleValueMap[] endService;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchFederation.silenceStdout();
+        bench = new BenchFederation();
+        federate = new QueueFederate(BenchFederation.config());
+        ambassador = federate.attach(bench.rtiFactory, bench.name, "queue");
+        for (int i = 0; i < queues; i++) {
+            federate.receiveOpenCheckoutInteraction(i);
+        }
+        federate.doThings();
+        for (int i = 0; i < checkouts; i++) {
+            bench.register(bench.fom.checkout.handle);
+        }
+        clientHandles = new ObjectInstanceHandle[clients];
+        clientUpdates = new AttributeHandleValueMap[clients];
+        chooseQueue = new ParameterHandleValueMap[clients];
+        for (int i = 0; i < clients; i++) {
+            clientHandles[i] = bench.register(bench.fom.client.handle);
+            clientUpdates[i] = bench.client(i, i % 4 == 0, 3);
+            chooseQueue[i] = bench.chooseQueue(i % queues, i);
+            ambassador.discoverObjectInstance(clientHandles[i], bench.fom.client.handle, "client" + i);
+            reflect(clientHandles[i], clientUpdates[i]);
+            federate.addNewClientToQueue(i % queues, i, bench.time);
+        }
+        endService = new ParameterHandleValueMap[queues];
+        for (int i = 0; i < queues; i++) {
+            endService[i] = bench.endService(i, 0);
+        }
+        federate.doThings();
+        bench.drain();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchFederation.restoreStdout();
+    }
+
+    @Benchmark
+    public void removeThenAddClient() {
+        int queueId = next++ % queues;
+        federate.removeClientFromQueue(queueId, 0);
+        Client served = federate.clientsToDelete.remove(federate.clientsToDelete.size() - 1);
+        federate.addNewClientToQueue(queueId, served.getClientId(), bench.time);
+    }
+
+    @Benchmark
+    public void receiveEndServiceThenChooseQueue() throws Exception {
+        int queueId = next++ % queues;
+        receive(bench.fom.endService.handle, endService[queueId]);
+        Client served = federate.clientsToDelete.remove(federate.clientsToDelete.size() - 1);
+        receive(bench.fom.chooseQueue.handle, chooseQueue[served.getClientId()]);
+    }
+
+    @Benchmark
+    public void reflectClient() throws Exception {
+        int i = next++ % clients;
+        reflect(clientHandles[i], clientUpdates[i]);
+    }
+
+    @Benchmark
+    public void doThings() throws RTIexception {
+        federate.doThings();
+    }
+
+    private void reflect(ObjectInstanceHandle handle, AttributeHandleValueMap values) throws Exception {
+        ambassador.reflectAttributeValues(handle, values, bench.tag, BenchFederation.TSO, null, bench.time,
+                BenchFederation.TSO, null);
+    }
+
+    private void receive(InteractionClassHandle interactionClass, ParameterHandleValueMap values)
+            throws Exception {
+        ambassador.receiveInteraction(interactionClass, values, bench.tag, BenchFederation.TSO, null, bench.time,
+                BenchFederation.TSO, null);
+    }
+}
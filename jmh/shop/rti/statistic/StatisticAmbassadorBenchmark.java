@@ -0,0 +1,117 @@
+package shop.rti.statistic;
+
+import hla.rti1516e.AttributeHandleValueMap;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.ParameterHandleValueMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import shop.bench.BenchFederation;
+import shop.object.Queue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The statistic federate's reflections and interactions, which also feed its counters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticAmbassadorBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int clients;
+    @Param({"4", "32"})
+    int queues;
+    @Param({"4", "32"})
+    int checkouts;
+
+    private BenchFederation bench;
+    private StatisticAmbassador ambassador;
+    private ObjectInstanceHandle[] clientHandles;
+    private AttributeHandleValueMap[] clientUpdates;
+    private ObjectInstanceHandle[] queueHandles;
+    private AttributeHandleValueMap[] queueUpdates;
+    private ObjectInstanceHandle[] checkoutHandles;
+    private AttributeHandleValueMap[] checkoutUpdates;
+    private ParameterHandleValueMap[] chooseQueue;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchFederation.silenceStdout();
+        bench = new BenchFederation();
+        StatisticFederate federate = new StatisticFederate(BenchFederation.config());
+        ambassador = federate.attach(bench.rtiFactory, bench.name, "statistic");
+        queueHandles = new ObjectInstanceHandle[queues];
+        queueUpdates = new AttributeHandleValueMap[queues];
+        for (int i = 0; i < queues; i++) {
+            queueHandles[i] = bench.register(bench.fom.queue.handle);
+            queueUpdates[i] = bench.queue(i, Queue.MAX_SIZE, i % Queue.MAX_SIZE);
+            ambassador.discoverObjectInstance(queueHandles[i], bench.fom.queue.handle, "queue" + i);
+        }
+        checkoutHandles = new ObjectInstanceHandle[checkouts];
+        checkoutUpdates = new AttributeHandleValueMap[checkouts];
+        for (int i = 0; i < checkouts; i++) {
+            checkoutHandles[i] = bench.register(bench.fom.checkout.handle);
+            checkoutUpdates[i] = bench.checkout(i, i % 2 == 0, i % queues);
+            ambassador.discoverObjectInstance(checkoutHandles[i], bench.fom.checkout.handle, "checkout" + i);
+        }
+        clientHandles = new ObjectInstanceHandle[clients];
+        clientUpdates = new AttributeHandleValueMap[clients];
+        chooseQueue = new ParameterHandleValueMap[clients];
+        for (int i = 0; i < clients; i++) {
+            clientHandles[i] = bench.register(bench.fom.client.handle);
+            clientUpdates[i] = bench.client(i, i % 4 == 0, 3);
+            chooseQueue[i] = bench.chooseQueue(i % queues, i);
+            ambassador.discoverObjectInstance(clientHandles[i], bench.fom.client.handle, "client" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchFederation.restoreStdout();
+    }
+
+    @Benchmark
+    public void reflectClient() throws Exception {
+        int i = next++ % clients;
+        reflect(clientHandles[i], clientUpdates[i]);
+    }
+
+    @Benchmark
+    public void reflectQueue() throws Exception {
+        int i = next++ % queues;
+        reflect(queueHandles[i], queueUpdates[i]);
+    }
+
+    @Benchmark
+    public void reflectCheckout() throws Exception {
+        int i = next++ % checkouts;
+        reflect(checkoutHandles[i], checkoutUpdates[i]);
+    }
+
+    @Benchmark
+    public void receiveChooseQueue() throws Exception {
+        ambassador.receiveInteraction(bench.fom.chooseQueue.handle, chooseQueue[next++ % clients], bench.tag,
+                BenchFederation.TSO, null, bench.time, BenchFederation.TSO, null);
+    }
+
+    private void reflect(ObjectInstanceHandle handle, AttributeHandleValueMap values) throws Exception {
+        ambassador.reflectAttributeValues(handle, values, bench.tag, BenchFederation.TSO, null, bench.time,
+                BenchFederation.TSO, null);
+    }
+}
@@ -0,0 +1,66 @@
+package shop.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes the attributes of a whole client population, as one tick of updates
+ * does. Ids past the codec's cache show what larger populations cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HlaCodecBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int clients;
+
+    private byte[][] ids;
+    private byte[][] flags;
+
+    @Setup
+    public void setUp() {
+        ids = new byte[clients][];
+        flags = new byte[clients][];
+        for (int i = 0; i < clients; i++) {
+            ids[i] = HlaCodec.encodeInt(i);
+            flags[i] = HlaCodec.encodeBoolean(i % 4 == 0);
+        }
+    }
+
+    @Benchmark
+    public void encodeClients(Blackhole blackhole) {
+        for (int i = 0; i < clients; i++) {
+            blackhole.consume(HlaCodec.encodeInt(i));
+            blackhole.consume(HlaCodec.encodeBoolean(i % 4 == 0));
+            blackhole.consume(HlaCodec.encodeInt(i + 3));
+        }
+    }
+
+    @Benchmark
+    public int decodeClients() {
+        int sum = 0;
+        for (int i = 0; i < clients; i++) {
+            sum += HlaCodec.decodeInt(ids[i]);
+            if (HlaCodec.decodeBoolean(flags[i])) {
+                sum++;
+            }
+        }
+        return sum;
+    }
+}
@@ -3,15 +3,23 @@ package shop.object;
 import hla.rti1516e.ObjectInstanceHandle;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-
-import java.util.concurrent.atomic.AtomicInteger;
+import lombok.ToString;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@EqualsAndHashCode(exclude = "dirtyAttributes")
+@ToString(exclude = "dirtyAttributes")
 public class Checkout {
-    public static final AtomicInteger count = new AtomicInteger(0);
+    public static final int MAX_SERVICE_TIME = 6;
+
+    //DIRTY ATTRIBUTE FLAGS
+    public static final int CHECKOUT_ID = 1;
+    public static final int QUEUE_ID = 1 << 1;
+    public static final int IS_OPENED = 1 << 2;
+    public static final int ALL_ATTRIBUTES = CHECKOUT_ID | QUEUE_ID | IS_OPENED;
 
     //FOM VARIABLES
     int checkoutId;
@@ -19,6 +27,7 @@ public class Checkout {
     boolean open;
     //ADDITIONAL VARIABLES
     private ObjectInstanceHandle rtiHandler;
+    private int dirtyAttributes = ALL_ATTRIBUTES;
 
     public Checkout(ObjectInstanceHandle rtiHandler) {
         this.rtiHandler = rtiHandler;
@@ -29,4 +38,41 @@ public class Checkout {
         this.queueId = queueId;
         this.open = open;
     }
+
+    public void setCheckoutId(int checkoutId) {
+        if (this.checkoutId != checkoutId) {
+            this.checkoutId = checkoutId;
+            dirtyAttributes |= CHECKOUT_ID;
+        }
+    }
+
+    public void setQueueId(int queueId) {
+        if (this.queueId != queueId) {
+            this.queueId = queueId;
+            dirtyAttributes |= QUEUE_ID;
+        }
+    }
+
+    public void setOpen(boolean open) {
+        if (this.open != open) {
+            this.open = open;
+            dirtyAttributes |= IS_OPENED;
+        }
+    }
+
+    public boolean isDirty() {
+        return dirtyAttributes != 0;
+    }
+
+    public boolean isDirty(int attribute) {
+        return (dirtyAttributes & attribute) != 0;
+    }
+
+    public void markDirty(int attributes) {
+        dirtyAttributes |= attributes;
+    }
+
+    public void clearDirty() {
+        dirtyAttributes = 0;
+    }
 }
@@ -3,19 +3,26 @@ package shop.object;
 import hla.rti1516e.ObjectInstanceHandle;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-
-import java.util.concurrent.atomic.AtomicInteger;
+import lombok.ToString;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@EqualsAndHashCode(exclude = "dirtyAttributes")
+@ToString(exclude = "dirtyAttributes")
 public class Client {
-    public static final AtomicInteger count = new AtomicInteger(0);
     public static final int MAX_SHOPPING_TIME = 3;
     public static final int CLIENT_ARRIVAL_PROBABILITY = 2;
     public static final int PRIVILEGED_CLIENT_PROBABILITY = 4;
 
+    //DIRTY ATTRIBUTE FLAGS
+    public static final int CLIENT_ID = 1;
+    public static final int IS_PRIVILEGED = 1 << 1;
+    public static final int END_SHOPPING_TIME = 1 << 2;
+    public static final int ALL_ATTRIBUTES = CLIENT_ID | IS_PRIVILEGED | END_SHOPPING_TIME;
+
     //FOM VARIABLES
     int clientId;
     boolean isPrivileged;
@@ -24,6 +31,7 @@ public class Client {
     private ObjectInstanceHandle rtiHandler;
     private boolean waitingInQueue;
     private int arrivalTime = -1;
+    private int dirtyAttributes = ALL_ATTRIBUTES;
 
     public Client(ObjectInstanceHandle rtiHandler) {
         this.rtiHandler = rtiHandler;
@@ -34,4 +42,45 @@ public class Client {
         this.isPrivileged = isPrivileged;
         this.endShoppingTime = endShoppingTime;
     }
+
+    public void setClientId(int clientId) {
+        if (this.clientId != clientId) {
+            this.clientId = clientId;
+            dirtyAttributes |= CLIENT_ID;
+        }
+    }
+
+    public void setPrivileged(boolean isPrivileged) {
+        if (this.isPrivileged != isPrivileged) {
+            this.isPrivileged = isPrivileged;
+            dirtyAttributes |= IS_PRIVILEGED;
+        }
+    }
+
+    public void setEndShoppingTime(int endShoppingTime) {
+        if (this.endShoppingTime != endShoppingTime) {
+            this.endShoppingTime = endShoppingTime;
+            dirtyAttributes |= END_SHOPPING_TIME;
+        }
+    }
+
+    public boolean hasFinishedShopping(double time) {
+        return endShoppingTime <= time;
+    }
+
+    public boolean isDirty() {
+        return dirtyAttributes != 0;
+    }
+
+    public boolean isDirty(int attribute) {
+        return (dirtyAttributes & attribute) != 0;
+    }
+
+    public void markDirty(int attributes) {
+        dirtyAttributes |= attributes;
+    }
+
+    public void clearDirty() {
+        dirtyAttributes = 0;
+    }
 }
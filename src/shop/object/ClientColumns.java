@@ -0,0 +1,275 @@
+package shop.object;
+
+import hla.rti1516e.ObjectInstanceHandle;
+import shop.utils.IntList;
+
+import java.util.Arrays;
+
+/**
+ * {@link ClientStore} that keeps every client field in a primitive array indexed by slot.
+ * <p>
+ * Removed slots go on a free list and are reused before the arrays grow, so a steady
+ * population keeps the same arrays for the whole run and adds nothing for the GC to trace
+ * but the instance handles. Handles and ids are found through open-addressing tables that
+ * hold slots only; the key itself is read back from the columns.
+ */
+public class ClientColumns implements ClientStore {
+
+    private static final byte LIVE = 1;
+    private static final byte PRIVILEGED = 1 << 1;
+    private static final byte WAITING_IN_QUEUE = 1 << 2;
+
+    private ObjectInstanceHandle[] handles;
+    private int[] clientIds;
+    private int[] endShoppingTimes;
+    private int[] arrivalTimes;
+    private byte[] flags;
+    private byte[] dirtyAttributes;
+    private final IntList freeSlots = new IntList();
+    private final IntList dirtySlots = new IntList();
+    private final SlotIndex byHandle;
+    private final SlotIndex byId;
+    private int used = 0;
+    private int size = 0;
+
+    public ClientColumns(int capacity) {
+        capacity = Math.max(16, capacity);
+        handles = new ObjectInstanceHandle[capacity];
+        clientIds = new int[capacity];
+        endShoppingTimes = new int[capacity];
+        arrivalTimes = new int[capacity];
+        flags = new byte[capacity];
+        dirtyAttributes = new byte[capacity];
+        byHandle = new SlotIndex(capacity) {
+            @Override
+            int hashOf(int slot) {
+                return handles[slot].hashCode();
+            }
+        };
+        byId = new SlotIndex(capacity) {
+            @Override
+            int hashOf(int slot) {
+                return clientIds[slot];
+            }
+        };
+    }
+
+    @Override
+    public int add(ObjectInstanceHandle handle, int clientId, boolean privileged, int endShoppingTime, int arrivalTime) {
+        if (handle == null) {
+            throw new IllegalArgumentException("Client " + clientId + " has no object instance handle");
+        }
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.removeLast();
+        } else {
+            if (used == handles.length) {
+                grow();
+            }
+            slot = used++;
+        }
+        handles[slot] = handle;
+        clientIds[slot] = clientId;
+        endShoppingTimes[slot] = endShoppingTime;
+        arrivalTimes[slot] = arrivalTime;
+        flags[slot] = privileged ? LIVE | PRIVILEGED : LIVE;
+        dirtyAttributes[slot] = Client.ALL_ATTRIBUTES;
+        dirtySlots.add(slot);
+        byHandle.insert(slot);
+        byId.insert(slot);
+        size++;
+        return slot;
+    }
+
+    @Override
+    public void remove(int slot) {
+        if ((flags[slot] & LIVE) == 0) {
+            return;
+        }
+        byHandle.delete(slot);
+        byId.delete(slot);
+        handles[slot] = null;
+        flags[slot] = 0;
+        dirtyAttributes[slot] = 0;
+        freeSlots.add(slot);
+        size--;
+    }
+
+    @Override
+    public int slotOf(ObjectInstanceHandle handle) {
+        int[] table = byHandle.table;
+        int mask = table.length - 1;
+        for (int i = SlotIndex.spread(handle.hashCode()) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int slot = table[i] - 1;
+            if (handle.equals(handles[slot])) {
+                return slot;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    @Override
+    public int slotOfId(int clientId) {
+        int[] table = byId.table;
+        int mask = table.length - 1;
+        for (int i = SlotIndex.spread(clientId) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int slot = table[i] - 1;
+            if (clientIds[slot] == clientId) {
+                return slot;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ObjectInstanceHandle getHandle(int slot) {
+        return handles[slot];
+    }
+
+    @Override
+    public int getClientId(int slot) {
+        return clientIds[slot];
+    }
+
+    @Override
+    public boolean isPrivileged(int slot) {
+        return (flags[slot] & PRIVILEGED) != 0;
+    }
+
+    @Override
+    public int getEndShoppingTime(int slot) {
+        return endShoppingTimes[slot];
+    }
+
+    @Override
+    public int getArrivalTime(int slot) {
+        return arrivalTimes[slot];
+    }
+
+    @Override
+    public boolean isWaitingInQueue(int slot) {
+        return (flags[slot] & WAITING_IN_QUEUE) != 0;
+    }
+
+    @Override
+    public void setWaitingInQueue(int slot, boolean waiting) {
+        flags[slot] = (byte) (waiting ? flags[slot] | WAITING_IN_QUEUE : flags[slot] & ~WAITING_IN_QUEUE);
+    }
+
+    @Override
+    public int getDirtyAttributes(int slot) {
+        return dirtyAttributes[slot];
+    }
+
+    @Override
+    public void markDirty(int slot, int attributes) {
+        if ((flags[slot] & LIVE) == 0 || attributes == 0) {
+            return;
+        }
+        if (dirtyAttributes[slot] == 0) {
+            dirtySlots.add(slot);
+        }
+        dirtyAttributes[slot] |= attributes;
+    }
+
+    @Override
+    public void clearDirty(int slot) {
+        dirtyAttributes[slot] = 0;
+    }
+
+    @Override
+    public void drainDirty(IntList out) {
+        for (int i = 0; i < dirtySlots.size(); i++) {
+            out.add(dirtySlots.get(i));
+        }
+        dirtySlots.clear();
+    }
+
+    @Override
+    public String toString(int slot) {
+        return "Client(clientId=" + clientIds[slot] + ", isPrivileged=" + isPrivileged(slot)
+                + ", endShoppingTime=" + endShoppingTimes[slot] + ", rtiHandler=" + handles[slot]
+                + ", waitingInQueue=" + isWaitingInQueue(slot) + ", arrivalTime=" + arrivalTimes[slot] + ")";
+    }
+
+    private void grow() {
+        int capacity = handles.length * 2;
+        handles = Arrays.copyOf(handles, capacity);
+        clientIds = Arrays.copyOf(clientIds, capacity);
+        endShoppingTimes = Arrays.copyOf(endShoppingTimes, capacity);
+        arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        dirtyAttributes = Arrays.copyOf(dirtyAttributes, capacity);
+    }
+
+    /**
+     * Linear-probing table of slot + 1 (0 is empty), kept at most half full. Deletion shifts the
+     * following entries back instead of leaving tombstones, so lookups never slow down with churn.
+     */
+    private abstract static class SlotIndex {
+        int[] table;
+        private int entries = 0;
+
+        SlotIndex(int capacity) {
+            table = new int[Integer.highestOneBit(Math.max(2, capacity) - 1) << 2];
+        }
+
+        abstract int hashOf(int slot);
+
+        static int spread(int hash) {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        void insert(int slot) {
+            if ((entries + 1) * 2 > table.length) {
+                rehash(table.length * 2);
+            }
+            int mask = table.length - 1;
+            int i = spread(hashOf(slot)) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = slot + 1;
+            entries++;
+        }
+
+        void delete(int slot) {
+            int mask = table.length - 1;
+            int i = spread(hashOf(slot)) & mask;
+            while (table[i] != slot + 1) {
+                if (table[i] == 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = 0;
+            entries--;
+            for (int next = (i + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+                int home = spread(hashOf(table[next] - 1)) & mask;
+                // move the entry into the hole unless its home lies cyclically in (i, next]
+                if (((next - home) & mask) >= ((next - i) & mask)) {
+                    table[i] = table[next];
+                    table[next] = 0;
+                    i = next;
+                }
+            }
+        }
+
+        private void rehash(int capacity) {
+            int[] old = table;
+            table = new int[capacity];
+            entries = 0;
+            for (int entry : old) {
+                if (entry != 0) {
+                    insert(entry - 1);
+                }
+            }
+        }
+    }
+}
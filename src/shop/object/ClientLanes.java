@@ -0,0 +1,141 @@
+package shop.object;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two-lane waiting line: privileged clients are served before everybody else and each
+ * lane is FIFO. Nodes are linked in place and indexed by clientId, so enqueue, dequeue,
+ * size and removal of a client who leaves the line are all O(1).
+ */
+public class ClientLanes {
+
+    private final Lane privileged = new Lane();
+    private final Lane regular = new Lane();
+    private final Map<Integer, Node> byClientId = new HashMap<>();
+
+    /**
+     * Appends the client to its lane. Returns false if the client is already waiting.
+     */
+    public boolean add(Client client) {
+        if (byClientId.containsKey(client.getClientId())) {
+            return false;
+        }
+        Node node = new Node(client, client.isPrivileged() ? privileged : regular);
+        node.lane.append(node);
+        byClientId.put(client.getClientId(), node);
+        return true;
+    }
+
+    /**
+     * Removes and returns the next client to be served, or null if the line is empty.
+     */
+    public Client poll() {
+        Lane lane = privileged.head != null ? privileged : regular;
+        Node node = lane.head;
+        if (node == null) {
+            return null;
+        }
+        lane.unlink(node);
+        byClientId.remove(node.client.getClientId());
+        return node.client;
+    }
+
+    public Client peek() {
+        Node node = privileged.head != null ? privileged.head : regular.head;
+        return node == null ? null : node.client;
+    }
+
+    public Client remove(int clientId) {
+        Node node = byClientId.remove(clientId);
+        if (node == null) {
+            return null;
+        }
+        node.lane.unlink(node);
+        return node.client;
+    }
+
+    public boolean contains(int clientId) {
+        return byClientId.containsKey(clientId);
+    }
+
+    public int size() {
+        return privileged.size + regular.size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int privilegedSize() {
+        return privileged.size;
+    }
+
+    /**
+     * Returns the clients in service order.
+     */
+    public List<Client> toList() {
+        List<Client> list = new ArrayList<>(size());
+        privileged.copyTo(list);
+        regular.copyTo(list);
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+
+    private static final class Lane {
+        private Node head;
+        private Node tail;
+        private int size;
+
+        private void append(Node node) {
+            node.prev = tail;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        private void unlink(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        private void copyTo(List<Client> list) {
+            for (Node node = head; node != null; node = node.next) {
+                list.add(node.client);
+            }
+        }
+    }
+
+    private static final class Node {
+        private final Client client;
+        private final Lane lane;
+        private Node prev;
+        private Node next;
+
+        private Node(Client client, Lane lane) {
+            this.client = client;
+            this.lane = lane;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package shop.object;
+
+import hla.rti1516e.ObjectInstanceHandle;
+import shop.utils.IntList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ClientStore} that keeps a {@link Client} object per slot.
+ */
+public class ClientObjects implements ClientStore {
+
+    private final List<Client> slots = new ArrayList<>();
+    private final IntList freeSlots = new IntList();
+    private final Map<ObjectInstanceHandle, Integer> slotByHandle = new HashMap<>();
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+    private final IntList dirtySlots = new IntList();
+    private int size = 0;
+
+    @Override
+    public int add(ObjectInstanceHandle handle, int clientId, boolean privileged, int endShoppingTime, int arrivalTime) {
+        Client client = new Client(clientId, privileged, endShoppingTime);
+        client.setRtiHandler(handle);
+        client.setArrivalTime(arrivalTime);
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = slots.size();
+            slots.add(client);
+        } else {
+            slot = freeSlots.removeLast();
+            slots.set(slot, client);
+        }
+        slotByHandle.put(handle, slot);
+        slotById.put(clientId, slot);
+        dirtySlots.add(slot);
+        size++;
+        return slot;
+    }
+
+    @Override
+    public void remove(int slot) {
+        Client client = slots.get(slot);
+        if (client == null) {
+            return;
+        }
+        slots.set(slot, null);
+        slotByHandle.remove(client.getRtiHandler());
+        slotById.remove(client.getClientId());
+        freeSlots.add(slot);
+        size--;
+    }
+
+    @Override
+    public int slotOf(ObjectInstanceHandle handle) {
+        Integer slot = slotByHandle.get(handle);
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    @Override
+    public int slotOfId(int clientId) {
+        Integer slot = slotById.get(clientId);
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ObjectInstanceHandle getHandle(int slot) {
+        return slots.get(slot).getRtiHandler();
+    }
+
+    @Override
+    public int getClientId(int slot) {
+        return slots.get(slot).getClientId();
+    }
+
+    @Override
+    public boolean isPrivileged(int slot) {
+        return slots.get(slot).isPrivileged();
+    }
+
+    @Override
+    public int getEndShoppingTime(int slot) {
+        return slots.get(slot).getEndShoppingTime();
+    }
+
+    @Override
+    public int getArrivalTime(int slot) {
+        return slots.get(slot).getArrivalTime();
+    }
+
+    @Override
+    public boolean isWaitingInQueue(int slot) {
+        return slots.get(slot).isWaitingInQueue();
+    }
+
+    @Override
+    public void setWaitingInQueue(int slot, boolean waiting) {
+        slots.get(slot).setWaitingInQueue(waiting);
+    }
+
+    @Override
+    public int getDirtyAttributes(int slot) {
+        Client client = slots.get(slot);
+        return client == null ? 0 : client.getDirtyAttributes();
+    }
+
+    @Override
+    public void markDirty(int slot, int attributes) {
+        Client client = slots.get(slot);
+        if (client == null || attributes == 0) {
+            return;
+        }
+        if (!client.isDirty()) {
+            dirtySlots.add(slot);
+        }
+        client.markDirty(attributes);
+    }
+
+    @Override
+    public void clearDirty(int slot) {
+        Client client = slots.get(slot);
+        if (client != null) {
+            client.clearDirty();
+        }
+    }
+
+    @Override
+    public void drainDirty(IntList out) {
+        for (int i = 0; i < dirtySlots.size(); i++) {
+            out.add(dirtySlots.get(i));
+        }
+        dirtySlots.clear();
+    }
+
+    @Override
+    public String toString(int slot) {
+        return String.valueOf(slots.get(slot));
+    }
+}
@@ -0,0 +1,68 @@
+package shop.object;
+
+import hla.rti1516e.ObjectInstanceHandle;
+import shop.utils.IntList;
+
+/**
+ * The client federate's own shoppers, addressed by slot. A slot is an int that stays valid
+ * until the client is removed and is then reused for a later client.
+ * <p>
+ * {@link ClientObjects} keeps a {@link Client} per slot; {@link ClientColumns} keeps every field
+ * in primitive arrays, for populations of a million shoppers and more.
+ */
+public interface ClientStore {
+
+    int NO_SLOT = -1;
+
+    /**
+     * Adds a registered client, whose handle must not be null. All of its attributes are dirty, so it
+     * is sent on the next update.
+     */
+    int add(ObjectInstanceHandle handle, int clientId, boolean privileged, int endShoppingTime, int arrivalTime);
+
+    void remove(int slot);
+
+    /**
+     * Returns {@link #NO_SLOT} for a handle that is not (or no longer) in the store.
+     */
+    int slotOf(ObjectInstanceHandle handle);
+
+    /**
+     * Returns {@link #NO_SLOT} for an id that is not (or no longer) in the store.
+     */
+    int slotOfId(int clientId);
+
+    int size();
+
+    ObjectInstanceHandle getHandle(int slot);
+
+    int getClientId(int slot);
+
+    boolean isPrivileged(int slot);
+
+    int getEndShoppingTime(int slot);
+
+    int getArrivalTime(int slot);
+
+    boolean isWaitingInQueue(int slot);
+
+    void setWaitingInQueue(int slot, boolean waiting);
+
+    /**
+     * The {@link Client} attribute flags not yet sent, 0 for a removed slot.
+     */
+    int getDirtyAttributes(int slot);
+
+    void markDirty(int slot, int attributes);
+
+    void clearDirty(int slot);
+
+    /**
+     * Moves the slots marked dirty since the previous call to {@code out}, so that only those are
+     * visited when updating. A slot may show up twice or may have been removed since; check
+     * {@link #getDirtyAttributes(int)}.
+     */
+    void drainDirty(IntList out);
+
+    String toString(int slot);
+}
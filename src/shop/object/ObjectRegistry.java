@@ -0,0 +1,143 @@
+package shop.object;
+
+import hla.rti1516e.ObjectInstanceHandle;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Replicated object store indexed both by RTI instance handle and by FOM id.
+ * Objects are inserted on discover (or after local registration), re-indexed
+ * once their id is reflected and evicted on remove. Iteration keeps insertion order.
+ */
+public class ObjectRegistry<T> implements Iterable<T> {
+
+    private final Map<ObjectInstanceHandle, T> byHandle = new LinkedHashMap<>();
+    private final Map<ObjectInstanceHandle, Integer> idByHandle = new HashMap<>();
+    private final Map<Integer, T> byId = new HashMap<>();
+    private final Set<ObjectInstanceHandle> discovered = new LinkedHashSet<>();
+    private final Function<ObjectInstanceHandle, T> factory;
+    private final Function<T, ObjectInstanceHandle> handleOf;
+    private final ToIntFunction<T> idOf;
+
+    public ObjectRegistry(Function<ObjectInstanceHandle, T> factory,
+                          Function<T, ObjectInstanceHandle> handleOf,
+                          ToIntFunction<T> idOf) {
+        this.factory = factory;
+        this.handleOf = handleOf;
+        this.idOf = idOf;
+    }
+
+    public static ObjectRegistry<Client> forClients() {
+        return new ObjectRegistry<>(Client::new, Client::getRtiHandler, Client::getClientId);
+    }
+
+    public static ObjectRegistry<Queue> forQueues() {
+        return new ObjectRegistry<>(Queue::new, Queue::getRtiHandler, Queue::getQueueId);
+    }
+
+    public static ObjectRegistry<Checkout> forCheckouts() {
+        return new ObjectRegistry<>(Checkout::new, Checkout::getRtiHandler, Checkout::getCheckoutId);
+    }
+
+    /**
+     * Creates a replica for a newly discovered instance. Its FOM id is unknown
+     * until the first reflection, so it is only indexed by handle.
+     */
+    public T discover(ObjectInstanceHandle handle) {
+        T object = factory.apply(handle);
+        byHandle.put(handle, object);
+        discovered.add(handle);
+        return object;
+    }
+
+    /**
+     * Returns the handles discovered since the previous call, so the owner
+     * can be asked for one full attribute update of each.
+     */
+    public List<ObjectInstanceHandle> drainDiscovered() {
+        if (discovered.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ObjectInstanceHandle> handles = new ArrayList<>(discovered);
+        discovered.clear();
+        return handles;
+    }
+
+    /**
+     * Adds a locally registered object whose handle and id are already set.
+     */
+    public T add(T object) {
+        byHandle.put(handleOf.apply(object), object);
+        index(object);
+        return object;
+    }
+
+    /**
+     * Refreshes the id index after the object's FOM id has been (re)assigned.
+     */
+    public void index(T object) {
+        ObjectInstanceHandle handle = handleOf.apply(object);
+        int id = idOf.applyAsInt(object);
+        Integer previous = idByHandle.put(handle, id);
+        if (previous != null && previous != id && byId.get(previous) == object) {
+            byId.remove(previous);
+        }
+        byId.put(id, object);
+    }
+
+    public T get(ObjectInstanceHandle handle) {
+        return byHandle.get(handle);
+    }
+
+    public T getById(int id) {
+        return byId.get(id);
+    }
+
+    public boolean contains(ObjectInstanceHandle handle) {
+        return byHandle.containsKey(handle);
+    }
+
+    public T remove(ObjectInstanceHandle handle) {
+        T object = byHandle.remove(handle);
+        discovered.remove(handle);
+        Integer id = idByHandle.remove(handle);
+        if (id != null && byId.get(id) == object) {
+            byId.remove(id);
+        }
+        return object;
+    }
+
+    public T removeById(int id) {
+        T object = byId.get(id);
+        return object == null ? null : remove(handleOf.apply(object));
+    }
+
+    public int size() {
+        return byHandle.size();
+    }
+
+    public boolean isEmpty() {
+        return byHandle.isEmpty();
+    }
+
+    public Collection<T> values() {
+        return Collections.unmodifiableCollection(byHandle.values());
+    }
+
+    public Stream<T> stream() {
+        return byHandle.values().stream();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return values().iterator();
+    }
+
+    @Override
+    public String toString() {
+        return byHandle.values().toString();
+    }
+}
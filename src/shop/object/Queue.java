@@ -3,19 +3,24 @@ package shop.object;
 import hla.rti1516e.ObjectInstanceHandle;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import lombok.ToString;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@EqualsAndHashCode(exclude = "dirtyAttributes")
+@ToString(exclude = "dirtyAttributes")
 public class Queue {
-    public static final AtomicInteger count = new AtomicInteger(0);
     public static final int MAX_SIZE = 8;
 
+    //DIRTY ATTRIBUTE FLAGS
+    public static final int QUEUE_ID = 1;
+    public static final int MAX_SIZE_ATTRIBUTE = 1 << 1;
+    public static final int CURRENT_SIZE = 1 << 2;
+    public static final int ALL_ATTRIBUTES = QUEUE_ID | MAX_SIZE_ATTRIBUTE | CURRENT_SIZE;
+
     //FOM VARIABLES
     int queueId;
     int maxSize;
@@ -23,7 +28,8 @@ public class Queue {
     //ADDITIONAL VARIABLES
     private int originalMaxSize;
     private ObjectInstanceHandle rtiHandler;
-    private List<Client> clients = new LinkedList<>();
+    private ClientLanes clients = new ClientLanes();
+    private int dirtyAttributes = ALL_ATTRIBUTES;
 
     public Queue(ObjectInstanceHandle rtiHandler) {
         this.rtiHandler = rtiHandler;
@@ -34,4 +40,77 @@ public class Queue {
         this.maxSize = maxSize;
         this.originalMaxSize = maxSize;
     }
+
+    public void setQueueId(int queueId) {
+        if (this.queueId != queueId) {
+            this.queueId = queueId;
+            dirtyAttributes |= QUEUE_ID;
+        }
+    }
+
+    public void setMaxSize(int maxSize) {
+        if (this.maxSize != maxSize) {
+            this.maxSize = maxSize;
+            dirtyAttributes |= MAX_SIZE_ATTRIBUTE;
+        }
+    }
+
+    public void setCurrentSize(int currentSize) {
+        if (this.currentSize != currentSize) {
+            this.currentSize = currentSize;
+            dirtyAttributes |= CURRENT_SIZE;
+        }
+    }
+
+    /**
+     * Privileged clients are served before everybody else, each group in arrival order.
+     */
+    public void addClient(Client client) {
+        if (clients.add(client)) {
+            setCurrentSize(currentSize + 1);
+        }
+    }
+
+    public Client pollClient() {
+        Client client = clients.poll();
+        if (client != null) {
+            setCurrentSize(currentSize - 1);
+        }
+        return client;
+    }
+
+    /**
+     * Takes a client out of the line before being served, e.g. when they abandon the queue.
+     */
+    public Client removeClient(int clientId) {
+        Client client = clients.remove(clientId);
+        if (client != null) {
+            setCurrentSize(currentSize - 1);
+        }
+        return client;
+    }
+
+    public boolean isOpen() {
+        return maxSize > 0;
+    }
+
+    public boolean canAccept() {
+        return maxSize > currentSize + 1;
+    }
+
+    public boolean isDirty() {
+        return dirtyAttributes != 0;
+    }
+
+    public boolean isDirty(int attribute) {
+        return (dirtyAttributes & attribute) != 0;
+    }
+
+    public void markDirty(int attributes) {
+        dirtyAttributes |= attributes;
+    }
+
+    public void clearDirty() {
+        dirtyAttributes = 0;
+    }
 }
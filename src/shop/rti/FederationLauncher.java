@@ -0,0 +1,133 @@
+package shop.rti;
+
+import shop.rti.checkout.CheckoutFederate;
+import shop.rti.client.ClientFederate;
+import shop.rti.manager.ManagerFederate;
+import shop.rti.queue.QueueFederate;
+import shop.rti.statistic.StatisticFederate;
+import shop.utils.FederateConfig;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs several shop federates in one JVM, each on its own thread with its own RTIambassador.
+ * <p>
+ * {@code --launcher.federates=client,queue,...} picks the federates started here, all five by
+ * default. The rest can be started as separate processes. Start-up is always headless, so
+ * {@code startup.roster} has to list every federate of the run, local or not. All local
+ * federates share one {@link FederateConfig}, which resolves the FOM modules once.
+ */
+public class FederationLauncher {
+
+    private static final Map<String, Function<FederateConfig, ShopFederate>> FEDERATES = new LinkedHashMap<>();
+
+    static {
+        FEDERATES.put("client", ClientFederate::new);
+        FEDERATES.put("queue", QueueFederate::new);
+        FEDERATES.put("checkout", CheckoutFederate::new);
+        FEDERATES.put("manager", ManagerFederate::new);
+        FEDERATES.put("statistic", StatisticFederate::new);
+    }
+
+    public static void main(String[] args) throws Exception {
+        try {
+            run(FederateConfig.load(args), federates -> {
+            });
+        } catch (IllegalStateException e) {
+            log(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the federates picked by {@code launcher.federates} until all of them have finished and
+     * returns them by name, so that their counters can still be read. {@code onStarted} gets the
+     * same map once every local federate has been granted its first time advance.
+     *
+     * @throws IllegalStateException if any of them failed
+     */
+    public static Map<String, ShopFederate> run(FederateConfig config, Consumer<Map<String, ShopFederate>> onStarted)
+            throws Exception {
+        config.set("startup.mode", "headless");
+        List<String> names = new ArrayList<>();
+        for (String name : config.get("launcher.federates", String.join(",", FEDERATES.keySet())).split(",")) {
+            name = name.trim();
+            if (!FEDERATES.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown federate in launcher.federates: " + name
+                        + ", expected one of " + FEDERATES.keySet());
+            }
+            names.add(name);
+        }
+        config.getFomModules();
+
+        long start = System.nanoTime();
+        CountDownLatch started = new CountDownLatch(names.size());
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        List<Thread> threads = new ArrayList<>();
+        Map<String, ShopFederate> federates = new LinkedHashMap<>();
+        for (String name : names) {
+            ShopFederate federate = FEDERATES.get(name).apply(config);
+            federates.put(name, federate);
+            // a federate that fails after its first grant must not count down a second time
+            AtomicBoolean counted = new AtomicBoolean();
+            Runnable countDown = () -> {
+                if (counted.compareAndSet(false, true)) {
+                    started.countDown();
+                }
+            };
+            federate.setFirstGrantListener(countDown);
+            Thread thread = new Thread(() -> {
+                try {
+                    federate.runFederate(name);
+                } catch (Exception e) {
+                    failures.put(name, e);
+                    e.printStackTrace();
+                    countDown.run();
+                }
+            }, name);
+            threads.add(thread);
+        }
+        log("Starting " + names + " in one JVM");
+        threads.forEach(Thread::start);
+
+        started.await();
+        if (failures.isEmpty()) {
+            log("All " + names.size() + " local federates running, startup took "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            onStarted.accept(federates);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            failures.forEach((name, e) -> log("Federate " + name + " failed: " + e));
+            throw new IllegalStateException("Local federates failed: " + failures.keySet());
+        }
+        log("All local federates finished");
+        logCriticalPath(federates);
+        return federates;
+    }
+
+    /**
+     * The federate with the most compute time holds the others back: they spend that time waiting for grants.
+     */
+    private static void logCriticalPath(Map<String, ShopFederate> federates) {
+        federates.entrySet().stream()
+                .max(Comparator.comparingDouble(entry -> entry.getValue().getTickMetrics().getComputeMillis()))
+                .ifPresent(entry -> log("Critical path: " + entry.getKey() + " ("
+                        + entry.getValue().getTickMetrics().getSummary().split("\n")[0] + ")"));
+    }
+
+    private static void log(String message) {
+        System.out.println("Launcher : " + message);
+    }
+}
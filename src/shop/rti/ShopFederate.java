@@ -0,0 +1,42 @@
+package shop.rti;
+
+import shop.fom.ShopFomDispatcher;
+import shop.utils.CallbackWaiter;
+import shop.utils.TickMetrics;
+
+/**
+ * A shop federate that can be started from its own main method or by {@link FederationLauncher}.
+ */
+public interface ShopFederate {
+
+    /**
+     * Joins the federation and runs until the simulation ends.
+     */
+    void runFederate(String federateName) throws Exception;
+
+    /**
+     * Called on the federate's thread right after its first time advance grant.
+     */
+    void setFirstGrantListener(Runnable listener);
+
+    /**
+     * Time advance grants so far and the wall time spent waiting for them.
+     */
+    CallbackWaiter getCallbackWaiter();
+
+    /**
+     * Per-tick compute, grant wait, callback, byte and allocation histograms of the main loop.
+     */
+    TickMetrics getTickMetrics();
+
+    /**
+     * Routes the federate's callbacks and counts reflections and interactions, null before it has joined.
+     */
+    ShopFomDispatcher getDispatcher();
+
+    /**
+     * Object instances the federate holds right now, its own and replicated ones. Deleted
+     * instances are evicted, so this follows the shoppers in the store, not the ones ever seen.
+     */
+    int getLiveObjects();
+}
@@ -3,10 +3,18 @@ package shop.rti.checkout;
 import hla.rti1516e.*;
 import hla.rti1516e.exceptions.FederateInternalError;
 import hla.rti1516e.time.HLAfloat64Time;
-import shop.utils.DecoderUtils;
+import shop.fom.ClientObject;
+import shop.fom.CloseCheckoutInteraction;
+import shop.fom.OpenCheckoutInteraction;
+import shop.fom.QueueObject;
+import shop.fom.ShopFomDispatcher;
+import shop.fom.ShopFomListener;
+import shop.object.Client;
+import shop.object.Queue;
+import shop.utils.FederationRoster;
 
 @SuppressWarnings("Duplicates")
-public class CheckoutAmbassador extends NullFederateAmbassador {
+public class CheckoutAmbassador extends NullFederateAmbassador implements ShopFomListener {
 
     protected boolean running = true;
     protected double federateTime = 0.0;
@@ -17,10 +25,14 @@ public class CheckoutAmbassador extends NullFederateAmbassador {
     protected boolean isAnnounced = false;
     protected boolean isReadyToRun = false;
     private CheckoutFederate federate;
+    private final boolean debug;
+    ShopFomDispatcher dispatcher;
+    FederationRoster roster;
 
 
-    CheckoutAmbassador(CheckoutFederate federate) {
+    CheckoutAmbassador(CheckoutFederate federate, boolean debug) {
         this.federate = federate;
+        this.debug = debug;
     }
 
     private void log(String message) {
@@ -74,146 +86,158 @@ public class CheckoutAmbassador extends NullFederateAmbassador {
     public void discoverObjectInstance(ObjectInstanceHandle theObject,
                                        ObjectClassHandle theObjectClass,
                                        String objectName) throws FederateInternalError {
-        this.federate.instanceClassMap.put(theObject, theObjectClass);
-        if (theObjectClass.equals(this.federate.clientObjectHandle)) {
-            this.federate.discoverClient(theObject);
-        } else if (theObjectClass.equals(this.federate.queueObjectHandle)) {
-            this.federate.discoverQueue(theObject);
+        if (roster.discover(theObject, theObjectClass)) {
+            return;
         }
+        dispatcher.discover(theObject, theObjectClass, objectName);
     }
 
     @Override
-    public void reflectAttributeValues(ObjectInstanceHandle theObject, AttributeHandleValueMap theAttributes,
-                                       byte[] tag, OrderType sentOrder, TransportationTypeHandle transport,
-                                       SupplementalReflectInfo reflectInfo) throws FederateInternalError {
+    public void reflectAttributeValues(ObjectInstanceHandle theObject,
+                                       AttributeHandleValueMap theAttributes,
+                                       byte[] tag,
+                                       OrderType sentOrder,
+                                       TransportationTypeHandle transport,
+                                       SupplementalReflectInfo reflectInfo)
+            throws FederateInternalError {
+        // just pass it on to the other method for printing purposes
+        // passing null as the time will let the other method know it
+        // it from us, not from the RTI
         reflectAttributeValues(theObject, theAttributes, tag, sentOrder, transport, null, sentOrder, reflectInfo);
     }
 
     @Override
-    public void reflectAttributeValues(ObjectInstanceHandle theObject, AttributeHandleValueMap theAttributes,
-                                       byte[] tag, OrderType sentOrdering, TransportationTypeHandle theTransport,
-                                       LogicalTime time, OrderType receivedOrdering,
+    public void reflectAttributeValues(ObjectInstanceHandle theObject,
+                                       AttributeHandleValueMap theAttributes,
+                                       byte[] tag,
+                                       OrderType sentOrdering,
+                                       TransportationTypeHandle theTransport,
+                                       LogicalTime time,
+                                       OrderType receivedOrdering,
                                        SupplementalReflectInfo reflectInfo)
             throws FederateInternalError {
-        StringBuilder builder = new StringBuilder("Reflection for object:");
-        if (federate.instanceClassMap.get(theObject).equals(federate.clientObjectHandle)) {
-            int clientId = 0;
-            int endShoppingTime = 0;
-            boolean isPrivileged = false;
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.clientId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" id:");
-                    int val = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    clientId = val;
-                } else if (attributeHandle.equals(federate.clientEndShoppingTime)) {
-                    builder.append(attributeHandle);
-                    builder.append(" endShoppingTime:");
-                    int val = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    endShoppingTime = val;
-                } else if (attributeHandle.equals(federate.clientIsPrivileged)) {
-                    builder.append(attributeHandle);
-                    builder.append(" isPrivileged:");
-                    boolean val = DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    isPrivileged = val;
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-                builder.append("\n");
-            }
-//                    log(builder.toString());
-            this.federate.updateClient(theObject, clientId, isPrivileged, endShoppingTime);
-        } else if (federate.instanceClassMap.get(theObject).equals(federate.queueObjectHandle)) {
-            int queueId = 0;
-            int queueCurrentSize = 0;
-            int queueMaxSize = 0;
-            builder.append("CHECKOUT");
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.queueId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.queueCurrentSize)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueCurrentSize:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueCurrentSize = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.queueMaxSize)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueMaxSize:");
-                    builder.append(DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueMaxSize = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-                builder.append("\n");
-            }
-            federate.updateQueue(theObject, queueId, queueMaxSize, queueCurrentSize);
+        if (roster.reflect(theObject, theAttributes)) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for object: handle=" + theObject + ", attributeCount=" + theAttributes.size());
         }
+        dispatcher.reflect(theObject, theAttributes, time);
     }
 
     @Override
-    public void receiveInteraction(InteractionClassHandle interactionClass, ParameterHandleValueMap theParameters,
-                                   byte[] tag, OrderType sentOrdering, TransportationTypeHandle theTransport,
+    public void receiveInteraction(InteractionClassHandle interactionClass,
+                                   ParameterHandleValueMap theParameters,
+                                   byte[] tag,
+                                   OrderType sentOrdering,
+                                   TransportationTypeHandle theTransport,
                                    SupplementalReceiveInfo receiveInfo)
             throws FederateInternalError {
-        this.receiveInteraction(interactionClass, theParameters, tag, sentOrdering, theTransport,
-                null, sentOrdering, receiveInfo);
+        // just pass it on to the other method for printing purposes
+        // passing null as the time will let the other method know it
+        // it from us, not from the RTI
+        this.receiveInteraction(interactionClass, theParameters, tag, sentOrdering, theTransport, null,
+                sentOrdering, receiveInfo);
     }
 
     @Override
-    public void receiveInteraction(InteractionClassHandle interactionClass, ParameterHandleValueMap theParameters,
-                                   byte[] tag, OrderType sentOrdering, TransportationTypeHandle theTransport,
-                                   LogicalTime time, OrderType receivedOrdering, SupplementalReceiveInfo receiveInfo)
+    public void receiveInteraction(InteractionClassHandle interactionClass,
+                                   ParameterHandleValueMap theParameters,
+                                   byte[] tag,
+                                   OrderType sentOrdering,
+                                   TransportationTypeHandle theTransport,
+                                   LogicalTime time,
+                                   OrderType receivedOrdering,
+                                   SupplementalReceiveInfo receiveInfo)
             throws FederateInternalError {
-        StringBuilder builder = new StringBuilder("Interaction Received:");
-        if (interactionClass.equals(federate.openCheckoutInteractionHandle)) {
-            builder.append("openCheckoutInteractionHandle");
-            int checkoutId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.openCheckoutCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.receiveOpenCheckoutInteraction(checkoutId);
-        } else if (interactionClass.equals(federate.closeCheckoutInteractionHandle)) {
-            builder.append("closeCheckoutInteractionHandle");
-            int checkoutId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.closeCheckoutCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.closeCheckout(checkoutId);
+        if (debug) {
+            log("Interaction Received: " + interactionClass + " " + receiveInfo);
         }
-//        log(builder.toString());
+        dispatcher.receive(interactionClass, theParameters, time);
+    }
+
+    @Override
+    public void removeObjectInstance(ObjectInstanceHandle theObject,
+                                     byte[] tag,
+                                     OrderType sentOrdering,
+                                     SupplementalRemoveInfo removeInfo)
+            throws FederateInternalError {
+        removeObjectInstance(theObject, tag, sentOrdering, null, sentOrdering, removeInfo);
     }
 
     @Override
-    public void removeObjectInstance(ObjectInstanceHandle theObject, byte[] tag, OrderType sentOrdering,
+    public void removeObjectInstance(ObjectInstanceHandle theObject,
+                                     byte[] tag,
+                                     OrderType sentOrdering,
+                                     LogicalTime time,
+                                     OrderType receivedOrdering,
                                      SupplementalRemoveInfo removeInfo)
             throws FederateInternalError {
+        dispatcher.remove(theObject, time);
+    }
+
+    @Override
+    public void provideAttributeValueUpdate(ObjectInstanceHandle theObject,
+                                            AttributeHandleSet theAttributes,
+                                            byte[] userSuppliedTag) throws FederateInternalError {
+        this.federate.provideCheckoutAttributeValues(theObject);
+    }
+
+    @Override
+    public void discoverClient(ObjectInstanceHandle handle, String objectName) {
+        federate.discoverClient(handle);
+    }
+
+    @Override
+    public void discoverQueue(ObjectInstanceHandle handle, String objectName) {
+        federate.discoverQueue(handle);
+    }
+
+    @Override
+    public void removeClient(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeClient(handle);
+    }
+
+    @Override
+    public void removeQueue(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeQueue(handle);
+    }
+
+    @Override
+    public void reflectClient(ObjectInstanceHandle handle, ClientObject.Values values, LogicalTime time) {
+        Client client = federate.clients.get(handle);
+        if (client == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for client " + handle + ": " + values);
+        }
+        federate.updateClient(handle, values.clientIdOr(client.getClientId()),
+                values.isPrivilegedOr(client.isPrivileged()),
+                values.endShoppingTimeOr(client.getEndShoppingTime()));
+    }
+
+    @Override
+    public void reflectQueue(ObjectInstanceHandle handle, QueueObject.Values values, LogicalTime time) {
+        Queue queue = federate.queues.get(handle);
+        if (queue == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for queue " + handle + ": " + values);
+        }
+        federate.updateQueue(handle, values.queueIdOr(queue.getQueueId()),
+                values.maxSizeOr(queue.getMaxSize()),
+                values.currentSizeOr(queue.getCurrentSize()));
+    }
+
+    @Override
+    public void receiveOpenCheckout(OpenCheckoutInteraction.Values values, LogicalTime time) {
+        federate.receiveOpenCheckoutInteraction(values.checkoutId);
+    }
+
+    @Override
+    public void receiveCloseCheckout(CloseCheckoutInteraction.Values values, LogicalTime time) {
+        federate.closeCheckout(values.checkoutId);
     }
 }
@@ -2,98 +2,122 @@ package shop.rti.checkout;
 
 import hla.rti1516e.*;
 import hla.rti1516e.encoding.EncoderFactory;
+import hla.rti1516e.exceptions.FederatesCurrentlyJoined;
 import hla.rti1516e.exceptions.FederationExecutionAlreadyExists;
+import hla.rti1516e.exceptions.FederationExecutionDoesNotExist;
 import hla.rti1516e.exceptions.RTIexception;
 import hla.rti1516e.time.HLAfloat64Interval;
 import hla.rti1516e.time.HLAfloat64Time;
 import hla.rti1516e.time.HLAfloat64TimeFactory;
+import shop.fom.ShopFom;
+import shop.fom.ShopFomDispatcher;
 import shop.object.Checkout;
 import shop.object.Client;
+import shop.object.ObjectRegistry;
 import shop.object.Queue;
-import shop.utils.DecoderUtils;
+import shop.rti.ShopFederate;
+import shop.utils.CallbackWaiter;
+import shop.utils.EventScheduler;
+import shop.utils.FederateConfig;
+import shop.utils.FederationRoster;
+import shop.utils.Pacer;
+import shop.utils.RtiBackend;
+import shop.utils.TickMetrics;
+import shop.utils.TimeAdvance;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("Duplicates")
-public class CheckoutFederate {
+public class CheckoutFederate implements ShopFederate {
 
     public static final String READY_TO_RUN = "ReadyToRun";
     protected EncoderFactory encoderFactory;
-    protected AttributeHandle checkoutId;
-    protected Map<ObjectInstanceHandle, ObjectClassHandle> instanceClassMap = new HashMap<>();
-    protected AttributeHandle clientId;
-    protected AttributeHandle queueId;
-    InteractionClassHandle openCheckoutInteractionHandle;
-    ParameterHandle openCheckoutCheckoutId;
-    InteractionClassHandle closeCheckoutInteractionHandle;
-    ParameterHandle closeCheckoutCheckoutId;
-    InteractionClassHandle clientExitInteractionHandle;
-    ParameterHandle clientExitClientId;
-    ParameterHandle clientExitCheckoutId;
-    InteractionClassHandle endServiceInteractionHandle;
-    ParameterHandle endServiceCheckoutId;
-    ParameterHandle endServiceClientId;
+    ShopFom fom;
     ObjectClassHandle checkoutObjectHandle;
-    AttributeHandle checkoutIsOpened;
-    AttributeHandle checkoutQueueId;
-    List<Checkout> checkouts = new ArrayList<>();
+    ObjectRegistry<Checkout> checkouts = ObjectRegistry.forCheckouts();
     List<Checkout> checkoutsToMake = new ArrayList<>();
-    List<Client> clients = new ArrayList<>();
-    List<Queue> queues = new ArrayList<>();
+    ObjectRegistry<Client> clients = ObjectRegistry.forClients();
+    ObjectRegistry<Queue> queues = ObjectRegistry.forQueues();
     ObjectClassHandle clientObjectHandle;
-    AttributeHandle clientIsPrivileged;
-    AttributeHandle clientEndShoppingTime;
     ObjectClassHandle queueObjectHandle;
-    AttributeHandle queueMaxSize;
-    AttributeHandle queueCurrentSize;
+    AttributeHandleSet clientAttributes;
+    AttributeHandleSet queueAttributes;
     private RTIambassador rtiamb;
     private CheckoutAmbassador fedamb;
     private HLAfloat64TimeFactory timeFactory;
+    private final FederateConfig config;
+    private final TimeAdvance timeAdvance;
+    private final CallbackWaiter callbackWaiter;
+    private final TickMetrics tickMetrics;
+    private final FederationRoster roster;
+    private final boolean debug;
+    private Runnable firstGrantListener = () -> {
+    };
+    private final AtomicInteger checkoutIds = new AtomicInteger(0);
     private Random random = new Random();
-    private Map<Integer, Double> queuesNowServicingTime = new HashMap<>();
+    private EventScheduler<Integer> serviceCompletions = new EventScheduler<>();
+    private Set<Integer> queuesNowServicing = new HashSet<>();
+
+    public CheckoutFederate(FederateConfig config) {
+        this.config = config;
+        this.timeAdvance = TimeAdvance.fromConfig(config);
+        this.callbackWaiter = CallbackWaiter.fromConfig(config);
+        this.tickMetrics = TickMetrics.fromConfig(config);
+        this.roster = FederationRoster.fromConfig(config);
+        this.debug = config.getBoolean("log.debug", false);
+    }
 
     public static void main(String[] args) {
-        String federateName = "checkout";
-        if (args.length != 0) {
-            federateName = args[0];
-        }
+        FederateConfig config = FederateConfig.load(args);
+        String federateName = config.getFederateName("checkout");
         try {
-            new CheckoutFederate().runFederate(federateName);
+            new CheckoutFederate(config).runFederate(federateName);
         } catch (Exception rtie) {
             rtie.printStackTrace();
         }
     }
 
-    private void log(String message) {
-        System.out.println("Checkout   : " + message);
+    @Override
+    public void setFirstGrantListener(Runnable listener) {
+        this.firstGrantListener = listener;
     }
 
-    private void waitForUser() {
-        log(" >>>>>>>>>> Press Enter to Continue <<<<<<<<<<");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        try {
-            reader.readLine();
-        } catch (Exception e) {
-            log("Error while waiting for user input: " + e.getMessage());
-            e.printStackTrace();
-        }
+    @Override
+    public CallbackWaiter getCallbackWaiter() {
+        return callbackWaiter;
+    }
+
+    @Override
+    public TickMetrics getTickMetrics() {
+        return tickMetrics;
     }
 
-    private void runFederate(String federateName) throws Exception {
+    @Override
+    public ShopFomDispatcher getDispatcher() {
+        return fedamb == null ? null : fedamb.dispatcher;
+    }
+
+    private void log(String message) {
+        System.out.println("Checkout   : " + message);
+    }
+
+    @Override
+    public void runFederate(String federateName) throws Exception {
+        long startNanos = System.nanoTime();
         log("Creating RTIambassador");
-        rtiamb = RtiFactoryFactory.getRtiFactory().getRtiAmbassador();
-        encoderFactory = RtiFactoryFactory.getRtiFactory().getEncoderFactory();
+        RtiFactory rtiFactory = RtiBackend.fromConfig(config);
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
         log("Connecting...");
-        fedamb = new CheckoutAmbassador(this);
+        fedamb = new CheckoutAmbassador(this, debug);
+        fedamb.roster = roster;
         rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
         log("Creating Federation...");
         try {
-            URL[] modules = new URL[]{(new File("FOM.xml")).toURI().toURL()};
+            URL[] modules = config.getFomModules();
             rtiamb.createFederationExecution("ExampleFederation", modules);
             log("Created Federation");
         } catch (FederationExecutionAlreadyExists exists) {
@@ -107,139 +131,163 @@ public class CheckoutFederate {
         log("Joined Federation as " + federateName);
         this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
         rtiamb.registerFederationSynchronizationPoint(READY_TO_RUN, null);
-        while (!fedamb.isAnnounced) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
-        waitForUser();
+        callbackWaiter.await(rtiamb, () -> fedamb.isAnnounced);
+        roster.await(rtiamb, encoderFactory);
         rtiamb.synchronizationPointAchieved(READY_TO_RUN);
         log("Achieved sync point: " + READY_TO_RUN + ", waiting for federation...");
-        while (!fedamb.isReadyToRun) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isReadyToRun);
         enableTimePolicy();
         log("Time Policy Enabled");
         publishAndSubscribe();
         log("Published and Subscribed");
 
-        registerNewCheckout(new Checkout(Checkout.count.get(), Checkout.count.getAndIncrement(), true));
+        registerNewCheckout(new Checkout(checkoutIds.get(), checkoutIds.getAndIncrement(), true));
         System.out.println("***************************************************" +
                 "***********************************************");
-        while (fedamb.running) {
-            advanceTime(1.0);
+        tickMetrics.start(federateName, fom, fedamb.dispatcher);
+        Pacer pacer = Pacer.fromConfig(config);
+        log("Pacing: " + pacer + ", time advance: " + timeAdvance + ", startup: " + roster);
+        long reportEvery = Math.max(1, config.getLong("callbacks.report-every", 100));
+        while (fedamb.running && !timeAdvance.isFinished(fedamb.federateTime)) {
+            double nextTime = timeAdvance.nextRequestTime(fedamb.federateTime, nextEventTime());
+            pacer.pace(fedamb.federateTime, nextTime);
+            advanceTime(nextTime);
+            tickMetrics.granted(callbackWaiter.getLastGrantWaitNanos());
+            if (callbackWaiter.getGrants() == 1) {
+                log("First time advance granted " + (System.nanoTime() - startNanos) / 1_000_000 + " ms after startup");
+                firstGrantListener.run();
+            }
             System.out.println();
-            log("Time Advanced to " + fedamb.federateTime);
+            log("Time Advanced to " + fedamb.federateTime + " (grant wait " + callbackWaiter.getLastGrantWaitMillis() + " ms)");
+            if (callbackWaiter.getGrants() % reportEvery == 0) {
+                log("Time advance summary: " + callbackWaiter.report());
+                log("Live objects: " + getLiveObjects());
+            }
             doThings();
+            tickMetrics.computed();
+        }
+
+        cleanUpAfterSimulation();
+    }
+
+    private void cleanUpAfterSimulation() throws RTIexception {
+        log("Time advance summary: " + callbackWaiter.report());
+        log("Tick summary: " + tickMetrics.getSummary());
+        tickMetrics.stop();
+        rtiamb.resignFederationExecution(ResignAction.DELETE_OBJECTS);
+        log("Resigned from Federation");
+        try {
+            rtiamb.destroyFederationExecution("ExampleFederation");
+            log("Destroyed Federation");
+        } catch (FederationExecutionDoesNotExist dne) {
+            log("No need to destroy federation, it doesn't exist");
+        } catch (FederatesCurrentlyJoined fcj) {
+            log("Didn't destroy federation, federates still joined");
         }
     }
 
+    /**
+     * Joins {@code federationName} without the start-up handshake or a time policy, so that
+     * benchmarks can feed callbacks to the returned ambassador and run the federate's logic directly.
+     */
+    CheckoutAmbassador attach(RtiFactory rtiFactory, String federationName, String federateName) throws RTIexception {
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
+        fedamb = new CheckoutAmbassador(this, false);
+        fedamb.roster = roster;
+        rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
+        rtiamb.joinFederationExecution(federateName, federationName);
+        this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
+        publishAndSubscribe();
+        return fedamb;
+    }
+
     private void enableTimePolicy() throws Exception {
         HLAfloat64Interval lookahead = timeFactory.makeInterval(fedamb.federateLookahead);
         this.rtiamb.enableTimeRegulation(lookahead);
-        while (!fedamb.isRegulating) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isRegulating);
         this.rtiamb.enableTimeConstrained();
-        while (!fedamb.isConstrained) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isConstrained);
     }
 
     private void sendClientExitInteraction(int checkoutId, HLAfloat64Time time) throws RTIexception {
         log("CLIENT EXIT CHECKOUT: (" + checkoutId + ")");
-        ParameterHandleValueMap parameterHandleValueMap = rtiamb.getParameterHandleValueMapFactory().create(2);
-        parameterHandleValueMap.put(clientExitCheckoutId, encoderFactory.createHLAinteger32BE(checkoutId).toByteArray());
-        parameterHandleValueMap.put(clientExitClientId, encoderFactory.createHLAinteger32BE(0).toByteArray());
-        rtiamb.sendInteraction(clientExitInteractionHandle, parameterHandleValueMap, generateTag(), time);
+        fom.clientExit.send(rtiamb, checkoutId, 0, generateTag(), time);
     }
 
     private void sendEndServiceInteraction(int checkoutId, HLAfloat64Time time) throws RTIexception {
         log("END SERVICE: (" + checkoutId + ")");
-        ParameterHandleValueMap parameterHandleValueMap = rtiamb.getParameterHandleValueMapFactory().create(2);
-        parameterHandleValueMap.put(endServiceCheckoutId, encoderFactory.createHLAinteger32BE(checkoutId).toByteArray());
-        parameterHandleValueMap.put(endServiceClientId, encoderFactory.createHLAinteger32BE(0).toByteArray());
-        rtiamb.sendInteraction(endServiceInteractionHandle, parameterHandleValueMap, generateTag(), time);
+        fom.endService.send(rtiamb, checkoutId, 0, generateTag(), time);
     }
 
     private void publishAndSubscribe() throws RTIexception {
+        fom = new ShopFom(rtiamb);
+        fedamb.dispatcher = new ShopFomDispatcher(fom, fedamb);
+
         // otwarcie kasy
-        openCheckoutInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.OpenCheckout");
-        openCheckoutCheckoutId = rtiamb.getParameterHandle(openCheckoutInteractionHandle, "checkoutId");
-        rtiamb.subscribeInteractionClass(openCheckoutInteractionHandle);
+        fom.openCheckout.subscribe(rtiamb);
 
         // zamkniecie kasy
-        closeCheckoutInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.CloseCheckout");
-        closeCheckoutCheckoutId = rtiamb.getParameterHandle(closeCheckoutInteractionHandle, "checkoutId");
-        rtiamb.subscribeInteractionClass(closeCheckoutInteractionHandle);
+        fom.closeCheckout.subscribe(rtiamb);
 
         // rozpoczecie obslugi
-        clientExitInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.ClientExit");
-        clientExitCheckoutId = rtiamb.getParameterHandle(clientExitInteractionHandle, "checkoutId");
-        clientExitClientId = rtiamb.getParameterHandle(clientExitInteractionHandle, "clientId");
-        rtiamb.publishInteractionClass(clientExitInteractionHandle);
+        fom.clientExit.publish(rtiamb);
 
         // zakoczenie obslugi
-        endServiceInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.EndService");
-        endServiceCheckoutId = rtiamb.getParameterHandle(endServiceInteractionHandle, "checkoutId");
-        endServiceClientId = rtiamb.getParameterHandle(endServiceInteractionHandle, "clientId");
-        rtiamb.publishInteractionClass(endServiceInteractionHandle);
+        fom.endService.publish(rtiamb);
 
         // register object kasa
-        checkoutObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Checkout");
-        checkoutIsOpened = rtiamb.getAttributeHandle(checkoutObjectHandle, "isOpened");
-        checkoutId = rtiamb.getAttributeHandle(checkoutObjectHandle, "checkoutId");
-        checkoutQueueId = rtiamb.getAttributeHandle(checkoutObjectHandle, "queueId");
-        AttributeHandleSet checkoutAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        checkoutAttributes.add(checkoutIsOpened);
-        checkoutAttributes.add(checkoutId);
-        checkoutAttributes.add(checkoutQueueId);
+        checkoutObjectHandle = fom.checkout.handle;
+        AttributeHandleSet checkoutAttributes = fom.checkout.attributeSet(rtiamb);
         rtiamb.publishObjectClassAttributes(checkoutObjectHandle, checkoutAttributes);
         rtiamb.subscribeObjectClassAttributes(checkoutObjectHandle, checkoutAttributes);
 
         //      discover object klient
-        clientObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Client");
-        clientIsPrivileged = rtiamb.getAttributeHandle(clientObjectHandle, "isPrivileged");
-        clientEndShoppingTime = rtiamb.getAttributeHandle(clientObjectHandle, "endShoppingTime");
-        clientId = rtiamb.getAttributeHandle(clientObjectHandle, "clientId");
-        AttributeHandleSet clientAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        clientAttributes.add(clientIsPrivileged);
-        clientAttributes.add(clientEndShoppingTime);
-        clientAttributes.add(clientId);
+        clientObjectHandle = fom.client.handle;
+        clientAttributes = fom.client.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(clientObjectHandle, clientAttributes);
 
         // discover object kolejka
-        queueObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Queue");
-        queueMaxSize = rtiamb.getAttributeHandle(queueObjectHandle, "maxSize");
-        queueCurrentSize = rtiamb.getAttributeHandle(queueObjectHandle, "currentSize");
-        queueId = rtiamb.getAttributeHandle(queueObjectHandle, "queueId");
-        AttributeHandleSet queueAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        queueAttributes.add(queueMaxSize);
-        queueAttributes.add(queueCurrentSize);
-        queueAttributes.add(queueId);
+        queueObjectHandle = fom.queue.handle;
+        queueAttributes = fom.queue.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(queueObjectHandle, queueAttributes);
     }
 
     private void updateCheckoutAttributeValues(Checkout checkout, HLAfloat64Time time) throws RTIexception {
-        AttributeHandleValueMap attributes = rtiamb.getAttributeHandleValueMapFactory().create(3);
-        attributes.put(checkoutId, DecoderUtils.encodeInt(encoderFactory, checkout.getCheckoutId()));
-        attributes.put(checkoutQueueId, DecoderUtils.encodeInt(encoderFactory, checkout.getQueueId()));
-        attributes.put(checkoutIsOpened, DecoderUtils.encodeBoolean(encoderFactory, checkout.isOpen()));
+        if (!checkout.isDirty()) {
+            return;
+        }
+        AttributeHandleValueMap attributes = fom.checkout.createValueMap(rtiamb);
+        if (checkout.isDirty(Checkout.CHECKOUT_ID)) {
+            fom.checkout.putCheckoutId(attributes, checkout.getCheckoutId());
+        }
+        if (checkout.isDirty(Checkout.QUEUE_ID)) {
+            fom.checkout.putQueueId(attributes, checkout.getQueueId());
+        }
+        if (checkout.isDirty(Checkout.IS_OPENED)) {
+            fom.checkout.putIsOpened(attributes, checkout.isOpen());
+        }
         rtiamb.updateAttributeValues(checkout.getRtiHandler(), attributes, generateTag(), time);
+        checkout.clearDirty();
     }
 
-    private void advanceTime(double timestep) throws RTIexception {
+    private void advanceTime(double requestedTime) throws RTIexception {
         fedamb.isAdvancing = true;
-        HLAfloat64Time time = timeFactory.makeTime(fedamb.federateTime + timestep);
-        rtiamb.timeAdvanceRequest(time);
-        while (fedamb.isAdvancing) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        HLAfloat64Time time = timeFactory.makeTime(requestedTime);
+        timeAdvance.request(rtiamb, time);
+        callbackWaiter.awaitGrant(rtiamb, () -> !fedamb.isAdvancing);
+    }
+
+    private double nextEventTime() {
+        return serviceCompletions.nextTime();
     }
 
-    private void doThings() throws RTIexception {
+    void doThings() throws RTIexception {
         checkoutsToMake.forEach(System.out::println);
         checkouts.forEach(System.out::println);
         queues.forEach(System.out::println);
         HLAfloat64Time time = timeFactory.makeTime(fedamb.federateTime + fedamb.federateLookahead);
+        requestDiscoveredAttributeValues();
         for (Checkout checkout : checkoutsToMake) {
             registerNewCheckout(checkout);
         }
@@ -247,12 +295,11 @@ public class CheckoutFederate {
         if (checkouts.size() > 0) {
             if (!queues.isEmpty()) {
                 for (Checkout checkout : checkouts) {
-                    Optional<Queue> q = queues.stream()
-                            .filter(queue -> queue.getQueueId() == checkout.getQueueId()).findAny();
-                    if (q.isPresent() && q.get().getCurrentSize() > 0) {
-                        if (!queuesNowServicingTime.containsKey(q.get().getQueueId())) {
-                            queuesNowServicingTime.put(q.get().getQueueId(),
-                                    fedamb.federateTime + random.nextInt(6));
+                    Queue q = queues.getById(checkout.getQueueId());
+                    if (q != null && q.getCurrentSize() > 0) {
+                        if (queuesNowServicing.add(q.getQueueId())) {
+                            serviceCompletions.schedule(fedamb.federateTime + random.nextInt(Checkout.MAX_SERVICE_TIME),
+                                    q.getQueueId());
 //                            sendClientExitInteraction(q.get().getQueueId(), time);
                         }
 
@@ -260,28 +307,28 @@ public class CheckoutFederate {
                 }
             }
         }
-//        System.out.println("KOLEJKI TERAZ OBSLUGUJACE");
-//        System.out.println(queuesNowServicingTime);
-        List<Integer> toDeleteList = new ArrayList<>();
-        for (Map.Entry<Integer, Double> integerDoubleEntry : queuesNowServicingTime.entrySet()) {
-            if (integerDoubleEntry.getValue() == fedamb.federateTime) {
-                Integer key = integerDoubleEntry.getKey();
-                toDeleteList.add(key);
-                sendEndServiceInteraction(integerDoubleEntry.getKey(), time);
+        for (Integer queueId = serviceCompletions.pollDue(fedamb.federateTime); queueId != null;
+             queueId = serviceCompletions.pollDue(fedamb.federateTime)) {
+            queuesNowServicing.remove(queueId);
+            // the queue may have been deleted while its client was being served
+            if (queues.getById(queueId) != null) {
+                sendEndServiceInteraction(queueId, time);
             }
         }
-//        System.out.println("KOLEJKI DO USNIECIA");
-//        System.out.println(toDeleteList);
-        for (Integer aDouble : toDeleteList) {
-            queuesNowServicingTime.remove(aDouble);
-        }
-//        System.out.println("PO USUNIECIU");
-//        System.out.println(queuesNowServicingTime);
         for (Checkout checkout : checkouts) {
             updateCheckoutAttributeValues(checkout, time);
         }
     }
 
+    private void requestDiscoveredAttributeValues() throws RTIexception {
+        for (ObjectInstanceHandle handle : clients.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, clientAttributes, generateTag());
+        }
+        for (ObjectInstanceHandle handle : queues.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, queueAttributes, generateTag());
+        }
+    }
+
     private byte[] generateTag() {
         return ("(timestamp) " + System.currentTimeMillis()).getBytes();
     }
@@ -302,61 +349,87 @@ public class CheckoutFederate {
         return rtiamb.registerObjectInstance(checkoutObjectHandle);
     }
 
+    void provideCheckoutAttributeValues(ObjectInstanceHandle handle) {
+        Checkout checkout = checkouts.get(handle);
+        if (checkout != null) {
+            checkout.markDirty(Checkout.ALL_ATTRIBUTES);
+        }
+    }
+
     void discoverClient(ObjectInstanceHandle client) {
-        clients.add(new Client(client));
-        log("DISCOVERED NEW CLIENT " + client);
+        clients.discover(client);
+        if (debug) {
+            log("DISCOVERED NEW CLIENT " + client);
+        }
     }
 
     void updateClient(ObjectInstanceHandle handle, int clientId, boolean isPrivileged, int endShoppingTime) {
-        for (Client client : clients) {
-            if (client.getRtiHandler().equals(handle)) {
-                client.setClientId(clientId);
-                client.setPrivileged(isPrivileged);
-                client.setEndShoppingTime(endShoppingTime);
-            }
+        Client client = clients.get(handle);
+        if (client != null) {
+            client.setClientId(clientId);
+            client.setPrivileged(isPrivileged);
+            client.setEndShoppingTime(endShoppingTime);
+            clients.index(client);
         }
 //        log("Updated clients " + clients);
     }
 
     void updateQueue(ObjectInstanceHandle handle, int queueId, int queueMaxSize, int queueCurrentSize) {
-        for (Queue queue : queues) {
-            if (queue.getRtiHandler().equals(handle)) {
-                queue.setQueueId(queueId);
-                queue.setMaxSize(queueMaxSize);
-                queue.setCurrentSize(queueCurrentSize);
-            }
+        Queue queue = queues.get(handle);
+        if (queue != null) {
+            queue.setQueueId(queueId);
+            queue.setMaxSize(queueMaxSize);
+            queue.setCurrentSize(queueCurrentSize);
+            queues.index(queue);
         }
 //        log("Updated queues " + queues);
     }
 
     void discoverQueue(ObjectInstanceHandle queueHandle) {
-        queues.add(new Queue(queueHandle));
+        queues.discover(queueHandle);
+    }
+
+    void removeClient(ObjectInstanceHandle handle) {
+        clients.remove(handle);
+    }
+
+    /**
+     * A pending service completion for the queue stays scheduled, and is dropped when it falls due.
+     */
+    void removeQueue(ObjectInstanceHandle handle) {
+        queues.remove(handle);
+    }
+
+    @Override
+    public int getLiveObjects() {
+        return clients.size() + queues.size() + checkouts.size();
     }
 
     void receiveOpenCheckoutInteraction(int checkoutId) {
-        Optional<Checkout> first = checkouts.stream()
-                .filter(checkout -> checkout.getCheckoutId() == checkoutId).findFirst();
-        if (first.isPresent()) {
-            openExistingCheckout(first);
+        Checkout checkout = checkouts.getById(checkoutId);
+        if (checkout != null) {
+            openExistingCheckout(checkout);
         } else {
             openNewCheckout();
         }
     }
 
     private void openNewCheckout() {
-        int id = Checkout.count.getAndIncrement();
+        int id = checkoutIds.getAndIncrement();
         Checkout checkout = new Checkout(id, id, true);
         checkoutsToMake.add(checkout);
         System.out.println("TO CREATE: " + checkout);
     }
 
-    private void openExistingCheckout(Optional<Checkout> first) {
-        first.get().setOpen(true);
-        System.out.println("OPEN EXISTING CHECKOUT (" + first.get() + ")");
+    private void openExistingCheckout(Checkout checkout) {
+        checkout.setOpen(true);
+        System.out.println("OPEN EXISTING CHECKOUT (" + checkout + ")");
     }
 
     void closeCheckout(int checkoutId) {
-        checkouts.stream().filter(checkout -> checkout.getCheckoutId() == checkoutId).findFirst()
-                .ifPresent(checkout -> checkout.setOpen(false));
+        Checkout checkout = checkouts.getById(checkoutId);
+        if (checkout != null) {
+            checkout.setOpen(false);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,218 @@
+package shop.rti.client;
+
+import shop.object.Client;
+import shop.utils.FederateConfig;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws when the next clients arrive and how many of them arrive together.
+ * <ul>
+ * <li>{@code bernoulli} - at most one client per tick, with probability {@code arrival.probability}
+ * (the original behaviour)</li>
+ * <li>{@code poisson} - a Poisson number of clients per tick with mean {@code arrival.rate}</li>
+ * <li>{@code nhpp} - as {@code poisson}, but the mean follows {@code arrival.profile}, a list of
+ * {@code time:rate} points interpolated linearly (the last rate holds after the last point), repeated
+ * every {@code arrival.period} time units when that is positive</li>
+ * </ul>
+ * Ticks without arrivals are skipped, so the federate only wakes up for ticks that have a batch.
+ */
+public class ArrivalProcess {
+
+    enum Mode {
+        BERNOULLI, POISSON, NHPP
+    }
+
+    private final Mode mode;
+    private final double probability;
+    private final double[] profileTimes;
+    private final double[] profileRates;
+    private final double period;
+    private final Random random;
+    private double nextTime = Double.POSITIVE_INFINITY;
+    private int nextCount = 0;
+
+    ArrivalProcess(Mode mode, double probability, double[] profileTimes, double[] profileRates, double period,
+                   Random random) {
+        if (profileTimes.length == 0 || profileTimes.length != profileRates.length) {
+            throw new IllegalArgumentException("arrival.profile needs at least one time:rate point");
+        }
+        for (int i = 0; i < profileTimes.length; i++) {
+            if (profileRates[i] < 0 || (i > 0 && profileTimes[i] <= profileTimes[i - 1])) {
+                throw new IllegalArgumentException("arrival.profile needs increasing times and non-negative rates: "
+                        + Arrays.toString(profileTimes) + " " + Arrays.toString(profileRates));
+            }
+        }
+        this.mode = mode;
+        this.probability = probability;
+        this.profileTimes = profileTimes;
+        this.profileRates = profileRates;
+        this.period = period;
+        this.random = random;
+    }
+
+    public static ArrivalProcess fromConfig(FederateConfig config, Random random) {
+        Mode mode = Mode.valueOf(config.get("arrival.mode", "bernoulli").toUpperCase());
+        double probability = config.getDouble("arrival.probability", 1.0 / Client.CLIENT_ARRIVAL_PROBABILITY);
+        if (mode != Mode.NHPP) {
+            double rate = config.getDouble("arrival.rate", probability);
+            return new ArrivalProcess(mode, probability, new double[]{0}, new double[]{rate}, 0, random);
+        }
+        String[] points = config.get("arrival.profile", "0:1").split(",");
+        double[] times = new double[points.length];
+        double[] rates = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            String[] point = points[i].trim().split(":");
+            if (point.length != 2) {
+                throw new IllegalArgumentException("arrival.profile point is not time:rate: " + points[i]);
+            }
+            times[i] = Double.parseDouble(point[0].trim());
+            rates[i] = Double.parseDouble(point[1].trim());
+        }
+        return new ArrivalProcess(mode, probability, times, rates, config.getDouble("arrival.period", 0), random);
+    }
+
+    /**
+     * Draws the first tick after {@code now} that has arrivals and returns it, or
+     * {@link Double#POSITIVE_INFINITY} when no client will ever arrive again.
+     */
+    public double scheduleAfter(double now) {
+        double tick = Math.floor(now);
+        nextCount = 0;
+        if (mode == Mode.BERNOULLI) {
+            nextTime = tick + bernoulliGap();
+            nextCount = Double.isInfinite(nextTime) ? 0 : 1;
+            return nextTime;
+        }
+        do {
+            tick++;
+            if (isSilentFrom(tick)) {
+                nextTime = Double.POSITIVE_INFINITY;
+                return nextTime;
+            }
+            // the mean of a tick is the rate integrated over (tick - 1, tick], exact for linear pieces
+            nextCount = poisson(random, rateAt(tick - 0.5));
+        } while (nextCount == 0);
+        nextTime = tick;
+        return nextTime;
+    }
+
+    public double getNextTime() {
+        return nextTime;
+    }
+
+    public int getNextCount() {
+        return nextCount;
+    }
+
+    /**
+     * Mean number of arrivals per time unit at {@code time}.
+     */
+    double rateAt(double time) {
+        if (period > 0) {
+            time = profileTimes[0] + ((time - profileTimes[0]) % period + period) % period;
+        }
+        int last = profileTimes.length - 1;
+        if (time <= profileTimes[0]) {
+            return profileRates[0];
+        }
+        if (time >= profileTimes[last]) {
+            return profileRates[last];
+        }
+        int i = Arrays.binarySearch(profileTimes, time);
+        if (i >= 0) {
+            return profileRates[i];
+        }
+        int right = -i - 1;
+        double share = (time - profileTimes[right - 1]) / (profileTimes[right] - profileTimes[right - 1]);
+        return profileRates[right - 1] + share * (profileRates[right] - profileRates[right - 1]);
+    }
+
+    private boolean isSilentFrom(double tick) {
+        if (period > 0) {
+            return Arrays.stream(profileRates).allMatch(rate -> rate == 0);
+        }
+        int last = profileTimes.length - 1;
+        return profileRates[last] == 0 && tick - 1 >= profileTimes[last];
+    }
+
+    /**
+     * Draws the gap to the next arrival from the geometric distribution, which is
+     * the same as one Bernoulli trial per tick but lets the federate skip empty ticks.
+     */
+    private double bernoulliGap() {
+        if (probability >= 1.0) {
+            return 1;
+        }
+        if (probability <= 0.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return 1 + Math.floor(Math.log(1.0 - random.nextDouble()) / Math.log(1.0 - probability));
+    }
+
+    /**
+     * Poisson variate: multiplication of uniforms for small means, Hormann's transformed rejection
+     * (PTRS) otherwise, so a batch of thousands costs a few draws.
+     */
+    static int poisson(Random random, double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        if (mean < 10) {
+            double limit = Math.exp(-mean);
+            double product = random.nextDouble();
+            int count = 0;
+            while (product > limit) {
+                product *= random.nextDouble();
+                count++;
+            }
+            return count;
+        }
+        double sqrtMean = Math.sqrt(mean);
+        double logMean = Math.log(mean);
+        double b = 0.931 + 2.53 * sqrtMean;
+        double a = -0.059 + 0.02483 * b;
+        double invAlpha = 1.1239 + 1.1328 / (b - 3.4);
+        double vr = 0.9277 - 3.6224 / (b - 2);
+        while (true) {
+            double u = random.nextDouble() - 0.5;
+            double v = random.nextDouble();
+            double us = 0.5 - Math.abs(u);
+            long k = (long) Math.floor((2 * a / us + b) * u + mean + 0.43);
+            if (us >= 0.07 && v <= vr) {
+                return (int) k;
+            }
+            if (k < 0 || (us < 0.013 && v > us)) {
+                continue;
+            }
+            if (Math.log(v * invAlpha / (a / (us * us) + b)) <= -mean + k * logMean - logFactorial(k)) {
+                return (int) k;
+            }
+        }
+    }
+
+    private static double logFactorial(long k) {
+        if (k < 10) {
+            double factorial = 1;
+            for (int i = 2; i <= k; i++) {
+                factorial *= i;
+            }
+            return Math.log(factorial);
+        }
+        // Stirling series, accurate to well below 1e-9 from k = 10 on
+        return k * Math.log(k) - k + 0.5 * Math.log(2 * Math.PI * k) + 1.0 / (12 * k) - 1.0 / (360.0 * k * k * k);
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case POISSON:
+                return "poisson " + profileRates[0] + " per tick";
+            case NHPP:
+                return "nhpp " + profileRates.length + " points" + (period > 0 ? " every " + period : "");
+            default:
+                return "bernoulli " + probability + " per tick";
+        }
+    }
+}
@@ -3,10 +3,19 @@ package shop.rti.client;
 import hla.rti1516e.*;
 import hla.rti1516e.exceptions.FederateInternalError;
 import hla.rti1516e.time.HLAfloat64Time;
-import shop.utils.DecoderUtils;
+import shop.fom.CheckoutObject;
+import shop.fom.ClientExitInteraction;
+import shop.fom.QueueObject;
+import shop.fom.ShopFomDispatcher;
+import shop.fom.ShopFomListener;
+import shop.object.Checkout;
+import shop.object.Queue;
+import shop.utils.FederationRoster;
+
+import java.util.Set;
 
 @SuppressWarnings("Duplicates")
-public class ClientAmbassador extends NullFederateAmbassador {
+public class ClientAmbassador extends NullFederateAmbassador implements ShopFomListener {
     protected boolean running = true;
     protected double federateTime = 0.0;
     protected double federateLookahead = 1.0;
@@ -15,10 +24,16 @@ public class ClientAmbassador extends NullFederateAmbassador {
     protected boolean isAdvancing = false;
     protected boolean isAnnounced = false;
     protected boolean isReadyToRun = false;
+    protected boolean isReservingNames = false;
+    protected boolean isNamesReserved = false;
     private ClientFederate federate;
+    private final boolean debug;
+    ShopFomDispatcher dispatcher;
+    FederationRoster roster;
 
-    ClientAmbassador(ClientFederate federate) {
+    ClientAmbassador(ClientFederate federate, boolean debug) {
         this.federate = federate;
+        this.debug = debug;
     }
 
     private void log(String message) {
@@ -69,25 +84,27 @@ public class ClientAmbassador extends NullFederateAmbassador {
         this.isAdvancing = false;
     }
 
+    @Override
+    public void multipleObjectInstanceNameReservationSucceeded(Set<String> objectNames) {
+        this.isNamesReserved = true;
+        this.isReservingNames = false;
+    }
+
+    @Override
+    public void multipleObjectInstanceNameReservationFailed(Set<String> objectNames) {
+        log("Failed to reserve " + objectNames.size() + " object instance names");
+        this.isNamesReserved = false;
+        this.isReservingNames = false;
+    }
+
     @Override
     public void discoverObjectInstance(ObjectInstanceHandle theObject,
                                        ObjectClassHandle theObjectClass,
-                                       String objectName)
-            throws FederateInternalError {
-        StringBuilder builder = new StringBuilder("Discover object:");
-        this.federate.instanceClassMap.put(theObject, theObjectClass);
-        if (theObjectClass.equals(this.federate.checkoutObjectHandle)) {
-            builder.append("CHECKOUT");
-            builder.append(" handle=" + theObject);
-            builder.append("\n");
-            this.federate.addNewCheckout(theObject);
-        } else if (theObjectClass.equals(this.federate.queueObjectHandle)) {
-            builder.append("QUEUE");
-            builder.append(" handle=" + theObject);
-            builder.append("\n");
-            this.federate.addNewQueue(theObject);
+                                       String objectName) throws FederateInternalError {
+        if (roster.discover(theObject, theObjectClass)) {
+            return;
         }
-//        log(builder.toString());
+        dispatcher.discover(theObject, theObjectClass, objectName);
     }
 
     @Override
@@ -101,14 +118,7 @@ public class ClientAmbassador extends NullFederateAmbassador {
         // just pass it on to the other method for printing purposes
         // passing null as the time will let the other method know it
         // it from us, not from the RTI
-        reflectAttributeValues(theObject,
-                theAttributes,
-                tag,
-                sentOrder,
-                transport,
-                null,
-                sentOrder,
-                reflectInfo);
+        reflectAttributeValues(theObject, theAttributes, tag, sentOrder, transport, null, sentOrder, reflectInfo);
     }
 
     @Override
@@ -121,70 +131,13 @@ public class ClientAmbassador extends NullFederateAmbassador {
                                        OrderType receivedOrdering,
                                        SupplementalReflectInfo reflectInfo)
             throws FederateInternalError {
-        StringBuilder builder = new StringBuilder("Reflection for object:");
-        if (federate.instanceClassMap.get(theObject).equals(federate.checkoutObjectHandle)) {
-            int checkoutId = 0;
-            int checkoutQueueId = 0;
-            boolean checkoutIsOpened = false;
-            builder.append("CHECKOUT");
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.checkoutId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.checkoutQueueId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" checkoutQueueId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    checkoutQueueId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.checkoutIsOpened)) {
-                    builder.append(attributeHandle);
-                    builder.append(" checkoutIsOpened:");
-                    builder.append(DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    checkoutIsOpened = DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                }
-                builder.append("\n");
-            }
-            federate.updateCheckout(theObject, checkoutId, checkoutIsOpened, checkoutQueueId);
-        } else if (federate.instanceClassMap.get(theObject).equals(federate.queueObjectHandle)) {
-            int queueId = 0;
-            int queueCurrentSize = 0;
-            int queueMaxSize = 0;
-            builder.append("CHECKOUT");
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.queueId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.queueCurrentSize)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueCurrentSize:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueCurrentSize = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.queueMaxSize)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueMaxSize:");
-                    builder.append(DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueMaxSize = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-                builder.append("\n");
-            }
-            federate.updateQueue(theObject, queueId, queueMaxSize, queueCurrentSize);
+        if (roster.reflect(theObject, theAttributes)) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for object: handle=" + theObject + ", attributeCount=" + theAttributes.size());
         }
-//        log(builder.toString());
+        dispatcher.reflect(theObject, theAttributes, time);
     }
 
     @Override
@@ -198,14 +151,8 @@ public class ClientAmbassador extends NullFederateAmbassador {
         // just pass it on to the other method for printing purposes
         // passing null as the time will let the other method know it
         // it from us, not from the RTI
-        this.receiveInteraction(interactionClass,
-                theParameters,
-                tag,
-                sentOrdering,
-                theTransport,
-                null,
-                sentOrdering,
-                receiveInfo);
+        this.receiveInteraction(interactionClass, theParameters, tag, sentOrdering, theTransport, null,
+                sentOrdering, receiveInfo);
     }
 
     @Override
@@ -218,30 +165,10 @@ public class ClientAmbassador extends NullFederateAmbassador {
                                    OrderType receivedOrdering,
                                    SupplementalReceiveInfo receiveInfo)
             throws FederateInternalError {
-
-        StringBuilder builder = new StringBuilder("Interaction Received: ");
-        builder.append(interactionClass);
-        builder.append(receiveInfo);
-        if (interactionClass.equals(federate.clientExitInteractionHandle)) {
-            builder.append("START SERVICE.");
-            int checkoutId = 0;
-            int clientId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.clientExitCheckoutIdParameter)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                } else if (parameterHandle.equals(federate.clientExitClientIdParameter)) {
-                    builder.append(parameterHandle);
-                    builder.append(" clientId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    clientId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.serviceClient(checkoutId, clientId, time);
+        if (debug) {
+            log("Interaction Received: " + interactionClass + " " + receiveInfo);
         }
+        dispatcher.receive(interactionClass, theParameters, time);
     }
 
     @Override
@@ -250,7 +177,80 @@ public class ClientAmbassador extends NullFederateAmbassador {
                                      OrderType sentOrdering,
                                      SupplementalRemoveInfo removeInfo)
             throws FederateInternalError {
-        log("Object Removed: handle=" + theObject);
+        removeObjectInstance(theObject, tag, sentOrdering, null, sentOrdering, removeInfo);
+    }
+
+    @Override
+    public void removeObjectInstance(ObjectInstanceHandle theObject,
+                                     byte[] tag,
+                                     OrderType sentOrdering,
+                                     LogicalTime time,
+                                     OrderType receivedOrdering,
+                                     SupplementalRemoveInfo removeInfo)
+            throws FederateInternalError {
+        if (debug) {
+            log("Object Removed: handle=" + theObject);
+        }
+        dispatcher.remove(theObject, time);
+    }
+
+    @Override
+    public void provideAttributeValueUpdate(ObjectInstanceHandle theObject,
+                                            AttributeHandleSet theAttributes,
+                                            byte[] userSuppliedTag) throws FederateInternalError {
+        this.federate.provideClientAttributeValues(theObject);
+    }
+
+    @Override
+    public void discoverCheckout(ObjectInstanceHandle handle, String objectName) {
+        federate.addNewCheckout(handle);
+    }
+
+    @Override
+    public void discoverQueue(ObjectInstanceHandle handle, String objectName) {
+        federate.addNewQueue(handle);
+    }
+
+    @Override
+    public void removeCheckout(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeCheckout(handle);
+    }
+
+    @Override
+    public void removeQueue(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeQueue(handle);
     }
 
+    @Override
+    public void reflectQueue(ObjectInstanceHandle handle, QueueObject.Values values, LogicalTime time) {
+        Queue queue = federate.queues.get(handle);
+        if (queue == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for queue " + handle + ": " + values);
+        }
+        federate.updateQueue(handle, values.queueIdOr(queue.getQueueId()),
+                values.maxSizeOr(queue.getMaxSize()),
+                values.currentSizeOr(queue.getCurrentSize()));
+    }
+
+    @Override
+    public void reflectCheckout(ObjectInstanceHandle handle, CheckoutObject.Values values, LogicalTime time) {
+        Checkout checkout = federate.checkouts.get(handle);
+        if (checkout == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for checkout " + handle + ": " + values);
+        }
+        federate.updateCheckout(handle, values.checkoutIdOr(checkout.getCheckoutId()),
+                values.isOpenedOr(checkout.isOpen()),
+                values.queueIdOr(checkout.getQueueId()));
+    }
+
+    @Override
+    public void receiveClientExit(ClientExitInteraction.Values values, LogicalTime time) {
+        federate.serviceClient(values.checkoutId, values.clientId, time);
+    }
 }
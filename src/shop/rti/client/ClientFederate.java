@@ -6,93 +6,140 @@ import hla.rti1516e.exceptions.*;
 import hla.rti1516e.time.HLAfloat64Interval;
 import hla.rti1516e.time.HLAfloat64Time;
 import hla.rti1516e.time.HLAfloat64TimeFactory;
+import shop.fom.ShopFom;
+import shop.fom.ShopFomDispatcher;
 import shop.object.Checkout;
 import shop.object.Client;
+import shop.object.ClientColumns;
+import shop.object.ClientObjects;
+import shop.object.ClientStore;
+import shop.object.ObjectRegistry;
 import shop.object.Queue;
-import shop.utils.DecoderUtils;
+import shop.rti.ShopFederate;
+import shop.utils.CalendarQueue;
+import shop.utils.CallbackWaiter;
+import shop.utils.FederateConfig;
+import shop.utils.FederationRoster;
+import shop.utils.IndexedMinHeap;
+import shop.utils.IntList;
+import shop.utils.Pacer;
+import shop.utils.RtiBackend;
+import shop.utils.TickMetrics;
+import shop.utils.TimeAdvance;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static shop.object.Client.CLIENT_ARRIVAL_PROBABILITY;
 import static shop.object.Client.PRIVILEGED_CLIENT_PROBABILITY;
 
 @SuppressWarnings("Duplicates")
-public class ClientFederate {
+public class ClientFederate implements ShopFederate {
 
     public static final String READY_TO_RUN = "ReadyToRun";
 
     protected EncoderFactory encoderFactory;
-    AttributeHandle queueId;
+    ShopFom fom;
     ObjectClassHandle clientObjectHandle;
-    InteractionClassHandle chooseQueueInteractionHandle;
-    ParameterHandle chooseQueueClientId;
-    ParameterHandle chooseQueueCheckoutId;
-    InteractionClassHandle clientExitInteractionHandle;
-    ParameterHandle clientExitCheckoutIdParameter;
-    ParameterHandle clientExitClientIdParameter;
     ObjectClassHandle checkoutObjectHandle;
-    AttributeHandle checkoutIsOpened;
-    AttributeHandle checkoutId;
-    AttributeHandle checkoutQueueId;
-    List<Client> clients = new ArrayList<>();
-    List<Client> clientsToDelete = new ArrayList<>();
-    List<Checkout> checkouts = new ArrayList<>();
-    List<Queue> queues = new ArrayList<>();
-    Map<ObjectInstanceHandle, ObjectClassHandle> instanceClassMap = new HashMap<>();
-    AttributeHandle clientIsPrivileged;
-    AttributeHandle clientEndShoppingTime;
-    AttributeHandle clientId;
+    final ClientStore clients;
+    // ids rather than slots: a slot may already belong to another client when the list is drained
+    IntList clientsToDelete = new IntList();
+    CalendarQueue shoppingCalendar = new CalendarQueue(Client.MAX_SHOPPING_TIME + 1, 0);
+    IntList clientsWithoutQueue = new IntList();
+    private IntList endShoppingClients = new IntList();
+    private final IntList dirtyClients = new IntList();
+    ObjectRegistry<Checkout> checkouts = ObjectRegistry.forCheckouts();
+    ObjectRegistry<Queue> queues = ObjectRegistry.forQueues();
+    IndexedMinHeap<Queue> acceptingQueues = new IndexedMinHeap<>(Comparator.comparingInt(Queue::getCurrentSize));
     ObjectClassHandle queueObjectHandle;
-    AttributeHandle queueMaxSize;
-    AttributeHandle queueCurrentSize;
+    AttributeHandleSet checkoutAttributes;
+    AttributeHandleSet queueAttributes;
     private Random random = new Random();
+    private final ArrivalProcess arrivals;
+    private double nextArrivalTime = Double.POSITIVE_INFINITY;
+    private boolean reserveNames;
+    private final List<String> reservedNames = new ArrayList<>();
+    private long namesReserved = 0;
+    private String federateName = "client";
     private RTIambassador rtiamb;
     private ClientAmbassador fedamb;
     private HLAfloat64TimeFactory timeFactory;
+    private final FederateConfig config;
+    private final TimeAdvance timeAdvance;
+    private final CallbackWaiter callbackWaiter;
+    private final TickMetrics tickMetrics;
+    private final FederationRoster roster;
+    private Runnable firstGrantListener = () -> {
+    };
+    private final AtomicInteger clientIds = new AtomicInteger(0);
+    private final int population;
+    private final boolean debug;
+
+    public ClientFederate(FederateConfig config) {
+        this.config = config;
+        this.population = config.getInt("load.clients", 0);
+        this.debug = config.getBoolean("log.debug", false);
+        this.clients = "columns".equals(config.get("client.store", "objects"))
+                ? new ClientColumns(population) : new ClientObjects();
+        this.timeAdvance = TimeAdvance.fromConfig(config);
+        this.callbackWaiter = CallbackWaiter.fromConfig(config);
+        this.tickMetrics = TickMetrics.fromConfig(config);
+        this.roster = FederationRoster.fromConfig(config);
+        this.arrivals = ArrivalProcess.fromConfig(config, random);
+        this.reserveNames = config.getBoolean("arrival.reserve-names", true);
+    }
 
     public static void main(String[] args) {
-        String federateName = "client";
-        if (args.length != 0) {
-            federateName = args[0];
-        }
+        FederateConfig config = FederateConfig.load(args);
+        String federateName = config.getFederateName("client");
         try {
-            new ClientFederate().runFederate(federateName);
+            new ClientFederate(config).runFederate(federateName);
         } catch (Exception rtie) {
             rtie.printStackTrace();
         }
     }
 
-    private void log(String message) {
-        System.out.println("Client   : " + message);
+    @Override
+    public void setFirstGrantListener(Runnable listener) {
+        this.firstGrantListener = listener;
     }
 
-    private void waitForUser() {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        try {
-            reader.readLine();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    @Override
+    public CallbackWaiter getCallbackWaiter() {
+        return callbackWaiter;
+    }
+
+    @Override
+    public TickMetrics getTickMetrics() {
+        return tickMetrics;
+    }
+
+    @Override
+    public ShopFomDispatcher getDispatcher() {
+        return fedamb == null ? null : fedamb.dispatcher;
+    }
+
+    private void log(String message) {
+        System.out.println("Client   : " + message);
     }
 
-    private void runFederate(String federateName) throws Exception {
+    @Override
+    public void runFederate(String federateName) throws Exception {
+        long startNanos = System.nanoTime();
+        this.federateName = federateName;
         log("Creating RTIambassador");
-        rtiamb = RtiFactoryFactory.getRtiFactory().getRtiAmbassador();
-        encoderFactory = RtiFactoryFactory.getRtiFactory().getEncoderFactory();
+        RtiFactory rtiFactory = RtiBackend.fromConfig(config);
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
         log("Connecting...");
-        fedamb = new ClientAmbassador(this);
+        fedamb = new ClientAmbassador(this, debug);
+        fedamb.roster = roster;
         rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
         log("Creating Federation...");
         try {
-            URL[] modules = new URL[]{(new File("FOM.xml")).toURI().toURL()};
+            URL[] modules = config.getFomModules();
             rtiamb.createFederationExecution("ExampleFederation", modules);
             log("Created Federation");
         } catch (FederationExecutionAlreadyExists exists) {
@@ -106,34 +153,52 @@ public class ClientFederate {
         log("Joined Federation as " + federateName);
         this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
         rtiamb.registerFederationSynchronizationPoint(READY_TO_RUN, null);
-        while (!fedamb.isAnnounced) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
-        waitForUser();
+        callbackWaiter.await(rtiamb, () -> fedamb.isAnnounced);
+        roster.await(rtiamb, encoderFactory);
         rtiamb.synchronizationPointAchieved(READY_TO_RUN);
         log("Achieved sync point: " + READY_TO_RUN + ", waiting for federation...");
-        while (!fedamb.isReadyToRun) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isReadyToRun);
         enableTimePolicy();
         log("Time Policy Enabled");
         publishAndSubscribe();
         log("Published and Subscribed");
+        if (population == 0) {
+            scheduleNextArrivals();
+        }
 
         System.out.println("***************************************************" +
                 "***********************************************");
-        while (fedamb.running) {
-            TimeUnit.MILLISECONDS.sleep(500 * 2);
-            advanceTime(1.0);
+        tickMetrics.start(federateName, fom, fedamb.dispatcher);
+        Pacer pacer = Pacer.fromConfig(config);
+        log("Pacing: " + pacer + ", time advance: " + timeAdvance + ", startup: " + roster + ", arrivals: "
+                + (population > 0 ? "scripted " + population : arrivals));
+        long reportEvery = Math.max(1, config.getLong("callbacks.report-every", 100));
+        while (fedamb.running && !timeAdvance.isFinished(fedamb.federateTime)) {
+            double nextTime = timeAdvance.nextRequestTime(fedamb.federateTime, nextEventTime());
+            pacer.pace(fedamb.federateTime, nextTime);
+            advanceTime(nextTime);
+            tickMetrics.granted(callbackWaiter.getLastGrantWaitNanos());
+            if (callbackWaiter.getGrants() == 1) {
+                log("First time advance granted " + (System.nanoTime() - startNanos) / 1_000_000 + " ms after startup");
+                firstGrantListener.run();
+            }
             System.out.println();
-            log("Time Advanced to " + fedamb.federateTime);
+            log("Time Advanced to " + fedamb.federateTime + " (grant wait " + callbackWaiter.getLastGrantWaitMillis() + " ms)");
+            if (callbackWaiter.getGrants() % reportEvery == 0) {
+                log("Time advance summary: " + callbackWaiter.report());
+                log("Live objects: " + getLiveObjects());
+            }
             doThings();
+            tickMetrics.computed();
         }
 
         cleanUpAfterSimulation();
     }
 
     private void cleanUpAfterSimulation() throws InvalidResignAction, OwnershipAcquisitionPending, FederateOwnsAttributes, FederateNotExecutionMember, NotConnected, CallNotAllowedFromWithinCallback, RTIinternalError {
+        log("Time advance summary: " + callbackWaiter.report());
+        log("Tick summary: " + tickMetrics.getSummary());
+        tickMetrics.stop();
         rtiamb.resignFederationExecution(ResignAction.DELETE_OBJECTS);
         log("Resigned from Federation");
         try {
@@ -146,140 +211,200 @@ public class ClientFederate {
         }
     }
 
+    /**
+     * Joins {@code federationName} without the start-up handshake or a time policy, so that
+     * benchmarks can feed callbacks to the returned ambassador and run the federate's logic directly.
+     */
+    ClientAmbassador attach(RtiFactory rtiFactory, String federationName, String federateName) throws RTIexception {
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
+        fedamb = new ClientAmbassador(this, false);
+        fedamb.roster = roster;
+        rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
+        rtiamb.joinFederationExecution(federateName, federationName);
+        this.federateName = federateName;
+        this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
+        publishAndSubscribe();
+        return fedamb;
+    }
+
     private void enableTimePolicy() throws Exception {
         HLAfloat64Interval lookahead = timeFactory.makeInterval(fedamb.federateLookahead);
         this.rtiamb.enableTimeRegulation(lookahead);
-        while (!fedamb.isRegulating) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isRegulating);
         this.rtiamb.enableTimeConstrained();
-        while (!fedamb.isConstrained) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isConstrained);
     }
 
     private void publishAndSubscribe() throws RTIexception {
+        fom = new ShopFom(rtiamb);
+        fedamb.dispatcher = new ShopFomDispatcher(fom, fedamb);
+
         // register object klient
-        clientObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Client");
-        clientIsPrivileged = rtiamb.getAttributeHandle(clientObjectHandle, "isPrivileged");
-        clientEndShoppingTime = rtiamb.getAttributeHandle(clientObjectHandle, "endShoppingTime");
-        clientId = rtiamb.getAttributeHandle(clientObjectHandle, "clientId");
-        AttributeHandleSet clientAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        clientAttributes.add(clientIsPrivileged);
-        clientAttributes.add(clientEndShoppingTime);
-        clientAttributes.add(clientId);
+        clientObjectHandle = fom.client.handle;
+        AttributeHandleSet clientAttributes = fom.client.attributeSet(rtiamb);
         rtiamb.publishObjectClassAttributes(clientObjectHandle, clientAttributes);
         rtiamb.subscribeObjectClassAttributes(clientObjectHandle, clientAttributes);
 
         // wybranie kolejki
-        chooseQueueInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.ChooseQueue");
-        chooseQueueCheckoutId = rtiamb.getParameterHandle(chooseQueueInteractionHandle, "checkoutId");
-        chooseQueueClientId = rtiamb.getParameterHandle(chooseQueueInteractionHandle, "clientId");
-        rtiamb.publishInteractionClass(chooseQueueInteractionHandle);
+        fom.chooseQueue.publish(rtiamb);
 
         // rozpoczecie obslugi
-        clientExitInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.ClientExit");
-        clientExitCheckoutIdParameter = rtiamb.getParameterHandle(clientExitInteractionHandle, "checkoutId");
-        clientExitClientIdParameter = rtiamb.getParameterHandle(clientExitInteractionHandle, "clientId");
-        rtiamb.subscribeInteractionClass(clientExitInteractionHandle);
+        fom.clientExit.subscribe(rtiamb);
 
         // discover object kasa
-        checkoutObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Checkout");
-        checkoutIsOpened = rtiamb.getAttributeHandle(checkoutObjectHandle, "isOpened");
-        checkoutQueueId = rtiamb.getAttributeHandle(checkoutObjectHandle, "queueId");
-        checkoutId = rtiamb.getAttributeHandle(checkoutObjectHandle, "checkoutId");
-        AttributeHandleSet checkoutAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        checkoutAttributes.add(checkoutIsOpened);
-        checkoutAttributes.add(checkoutId);
-        checkoutAttributes.add(checkoutQueueId);
+        checkoutObjectHandle = fom.checkout.handle;
+        checkoutAttributes = fom.checkout.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(checkoutObjectHandle, checkoutAttributes);
 
         // discover object kolejka
-        queueObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Queue");
-        queueMaxSize = rtiamb.getAttributeHandle(queueObjectHandle, "maxSize");
-        queueCurrentSize = rtiamb.getAttributeHandle(queueObjectHandle, "currentSize");
-        queueId = rtiamb.getAttributeHandle(queueObjectHandle, "queueId");
-        AttributeHandleSet queueAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        queueAttributes.add(queueMaxSize);
-        queueAttributes.add(queueCurrentSize);
-        queueAttributes.add(queueId);
+        queueObjectHandle = fom.queue.handle;
+        queueAttributes = fom.queue.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(queueObjectHandle, queueAttributes);
     }
 
-    private ObjectInstanceHandle registerObject() throws RTIexception {
-        return rtiamb.registerObjectInstance(clientObjectHandle);
+    private ObjectInstanceHandle registerObject(String name) throws RTIexception {
+        if (name == null) {
+            return rtiamb.registerObjectInstance(clientObjectHandle);
+        }
+        return rtiamb.registerObjectInstance(clientObjectHandle, name);
     }
 
-    private void updateClientAttributeValues(Client client, HLAfloat64Time time) throws RTIexception {
-        AttributeHandleValueMap attributes = rtiamb.getAttributeHandleValueMapFactory().create(3);
-        attributes.put(clientId, DecoderUtils.encodeInt(encoderFactory, client.getClientId()));
-        attributes.put(clientEndShoppingTime, DecoderUtils.encodeInt(encoderFactory, client.getEndShoppingTime()));
-        attributes.put(clientIsPrivileged, DecoderUtils.encodeBoolean(encoderFactory, client.isPrivileged()));
-        rtiamb.updateAttributeValues(client.getRtiHandler(), attributes, generateTag(), time);
+    private void updateClientAttributeValues(int client, HLAfloat64Time time) throws RTIexception {
+        int dirty = clients.getDirtyAttributes(client);
+        if (dirty == 0) {
+            return;
+        }
+        AttributeHandleValueMap attributes = fom.client.createValueMap(rtiamb);
+        if ((dirty & Client.CLIENT_ID) != 0) {
+            fom.client.putClientId(attributes, clients.getClientId(client));
+        }
+        if ((dirty & Client.END_SHOPPING_TIME) != 0) {
+            fom.client.putEndShoppingTime(attributes, clients.getEndShoppingTime(client));
+        }
+        if ((dirty & Client.IS_PRIVILEGED) != 0) {
+            fom.client.putIsPrivileged(attributes, clients.isPrivileged(client));
+        }
+        rtiamb.updateAttributeValues(clients.getHandle(client), attributes, generateTag(), time);
+        clients.clearDirty(client);
     }
 
-    private void doThings() throws RTIexception {
+    void doThings() throws RTIexception {
         queues.forEach(System.out::println);
 //        clients.forEach(System.out::println);
         checkouts.forEach(System.out::println);
         HLAfloat64Time time = timeFactory.makeTime(fedamb.federateTime + fedamb.federateLookahead);
-        for (Client client : clientsToDelete) {
-            deleteObject(client.getRtiHandler(), time);
-            clients.stream().filter(c -> c.equals(client)).findFirst().ifPresent(c -> clients.remove(c));
+        requestDiscoveredAttributeValues();
+        for (int i = 0; i < clientsToDelete.size(); i++) {
+            int client = clients.slotOfId(clientsToDelete.get(i));
+            if (client != ClientStore.NO_SLOT) {
+                deleteObject(clients.getHandle(client), time);
+                clients.remove(client);
+            }
         }
         clientsToDelete.clear();
-        List<Client> shoppingClients = clients.stream()
-                .filter(((Predicate<Client>) Client::isWaitingInQueue).negate())
-                .collect(Collectors.toList());
-        List<Client> endShoppingClients = shoppingClients.stream()
-                .filter(client -> hasClientFinishedShopping(client.getEndShoppingTime()))
-                .collect(Collectors.toList());
-        for (Client client : endShoppingClients) {
-            List<Queue> openQueues = queues.stream()
-                    .filter(queue -> queue.getMaxSize() > 0)
-                    .sorted(Comparator.comparing(Queue::getCurrentSize))
-                    .collect(Collectors.toList());
-            for (Queue queue : openQueues) {
-                if (queue.getMaxSize() > queue.getCurrentSize() + 1) {
-                    sendChooseQueueInteraction(queue, client, time);
-                    queue.setCurrentSize(queue.getCurrentSize() + 1);
-                    client.setWaitingInQueue(true);
-                    break;
-                }
+        chooseQueues(time);
+        if (nextArrivalTime <= fedamb.federateTime) {
+            createClientObjects(arrivals.getNextCount());
+            scheduleNextArrivals();
+        }
+        // scripted load: every serviced client is replaced at once, or retried next tick if the RTI refuses
+        while (clients.size() < population) {
+            if (!createClientObject()) {
+                break;
             }
         }
-        boolean hasClientArrived = random.nextInt(CLIENT_ARRIVAL_PROBABILITY) == 0;
-        if (hasClientArrived) {
-            createClientObject();
+        clients.drainDirty(dirtyClients);
+        for (int i = 0; i < dirtyClients.size(); i++) {
+            updateClientAttributeValues(dirtyClients.get(i), time);
         }
-        for (Client client : clients) {
-            updateClientAttributeValues(client, time);
+        dirtyClients.clear();
+    }
+
+    /**
+     * Sends every client that has finished shopping to the shortest queue with a free place.
+     * Clients that find no such queue try again on the next tick.
+     */
+    void chooseQueues(HLAfloat64Time time) throws RTIexception {
+        IntList finished = clientsWithoutQueue;
+        clientsWithoutQueue = endShoppingClients;
+        endShoppingClients = finished;
+        shoppingCalendar.pollDue((long) fedamb.federateTime, finished);
+        for (int i = 0; i < finished.size(); i++) {
+            int client = finished.get(i);
+            Queue queue = acceptingQueues.peek();
+            if (queue != null) {
+                sendChooseQueueInteraction(queue, client, time);
+                queue.setCurrentSize(queue.getCurrentSize() + 1);
+                refreshAcceptingQueue(queue);
+                clients.setWaitingInQueue(client, true);
+            } else {
+                clientsWithoutQueue.add(client);
+            }
         }
+        finished.clear();
     }
 
-    private boolean hasClientFinishedShopping(int endShoppingTime) {
-        return endShoppingTime <= fedamb.federateTime;
+    private void requestDiscoveredAttributeValues() throws RTIexception {
+        for (ObjectInstanceHandle handle : checkouts.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, checkoutAttributes, generateTag());
+        }
+        for (ObjectInstanceHandle handle : queues.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, queueAttributes, generateTag());
+        }
     }
 
-    private void sendChooseQueueInteraction(Queue queue, Client client, HLAfloat64Time time) throws RTIexception {
-        log("CLIENT (" + client.getClientId() + ") " + "CHOOSING QUEUE (" + queue.getQueueId() + ")" + " " + client);
-        ParameterHandleValueMap parameterHandleValueMap = rtiamb.getParameterHandleValueMapFactory().create(2);
-        parameterHandleValueMap.put(chooseQueueCheckoutId, encoderFactory.createHLAinteger32BE(queue.getQueueId()).toByteArray());
-        parameterHandleValueMap.put(chooseQueueClientId, encoderFactory.createHLAinteger32BE(client.getClientId()).toByteArray());
-        rtiamb.sendInteraction(chooseQueueInteractionHandle, parameterHandleValueMap, generateTag(), time);
+    private void sendChooseQueueInteraction(Queue queue, int client, HLAfloat64Time time) throws RTIexception {
+        if (debug) {
+            log("CLIENT (" + clients.getClientId(client) + ") " + "CHOOSING QUEUE (" + queue.getQueueId() + ")" + " "
+                    + clients.toString(client));
+        }
+        fom.chooseQueue.send(rtiamb, queue.getQueueId(), clients.getClientId(client), generateTag(), time);
     }
 
-    private void advanceTime(double timestep) throws RTIexception {
+    private void advanceTime(double requestedTime) throws RTIexception {
         fedamb.isAdvancing = true;
-        HLAfloat64Time time = timeFactory.makeTime(fedamb.federateTime + timestep);
-        rtiamb.timeAdvanceRequest(time);
-        while (fedamb.isAdvancing) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
+        HLAfloat64Time time = timeFactory.makeTime(requestedTime);
+        timeAdvance.request(rtiamb, time);
+        callbackWaiter.awaitGrant(rtiamb, () -> !fedamb.isAdvancing);
+    }
+
+    private double nextEventTime() {
+        if (!clientsWithoutQueue.isEmpty() || clients.size() < population) {
+            return fedamb.federateTime + 1;
+        }
+        return Math.min(nextArrivalTime, shoppingCalendar.nextTick());
+    }
+
+    /**
+     * Draws the next batch of arrivals and reserves its object names at once, so that the RTI
+     * answers during the time advance instead of holding up the tick that registers the batch.
+     */
+    private void scheduleNextArrivals() throws RTIexception {
+        nextArrivalTime = arrivals.scheduleAfter(fedamb.federateTime);
+        reservedNames.clear();
+        if (!reserveNames || Double.isInfinite(nextArrivalTime)) {
+            return;
+        }
+        for (int i = 0; i < arrivals.getNextCount(); i++) {
+            reservedNames.add(federateName + ".client" + namesReserved++);
+        }
+        fedamb.isNamesReserved = false;
+        fedamb.isReservingNames = true;
+        try {
+            rtiamb.reserveMultipleObjectInstanceName(new HashSet<>(reservedNames));
+        } catch (RTIexception e) {
+            log("Cannot reserve object instance names, registering clients without names: " + e);
+            reserveNames = false;
+            fedamb.isReservingNames = false;
+            reservedNames.clear();
         }
     }
 
     private void deleteObject(ObjectInstanceHandle handle, LogicalTime time) throws RTIexception {
-        log("Client (" + handle + ") deleted");
+        if (debug) {
+            log("Client (" + handle + ") deleted");
+        }
         rtiamb.deleteObjectInstance(handle, generateTag(), time);
     }
 
@@ -287,60 +412,115 @@ public class ClientFederate {
         return ("(timestamp) " + System.currentTimeMillis()).getBytes();
     }
 
-    private void createClientObject() {
-        Client client = new Client();
-        ObjectInstanceHandle clientInstanceHandle = null;
+    /**
+     * Registers a batch of arriving clients under the names reserved for it, or without names
+     * when the reservation failed or is switched off.
+     */
+    void createClientObjects(int count) throws RTIexception {
+        callbackWaiter.await(rtiamb, () -> !fedamb.isReservingNames);
+        boolean named = fedamb.isNamesReserved && reservedNames.size() == count;
+        for (int i = 0; i < count; i++) {
+            createClientObject(named ? reservedNames.get(i) : null);
+        }
+        reservedNames.clear();
+        fedamb.isNamesReserved = false;
+    }
+
+    boolean createClientObject() {
+        return createClientObject(null);
+    }
+
+    /**
+     * Returns false, without adding a client, when the RTI refuses to register it.
+     */
+    private boolean createClientObject(String name) {
+        ObjectInstanceHandle clientInstanceHandle;
         try {
-            clientInstanceHandle = registerObject();
+            clientInstanceHandle = registerObject(name);
         } catch (RTIexception rtIexception) {
             rtIexception.printStackTrace();
+            return false;
         }
-        client.setRtiHandler(clientInstanceHandle);
-        client.setClientId(Client.count.getAndIncrement());
-        client.setEndShoppingTime(random.nextInt(Client.MAX_SHOPPING_TIME) + 1 + (int) fedamb.federateTime);
-        if (random.nextInt(PRIVILEGED_CLIENT_PROBABILITY) == 0) {
-            client.setPrivileged(true);
+        int endShoppingTime = random.nextInt(Client.MAX_SHOPPING_TIME) + 1 + (int) fedamb.federateTime;
+        boolean privileged = random.nextInt(PRIVILEGED_CLIENT_PROBABILITY) == 0;
+        int client = clients.add(clientInstanceHandle, clientIds.getAndIncrement(), privileged, endShoppingTime,
+                (int) fedamb.federateTime);
+        if (debug) {
+            log("NEW CLIENT ARRIVED: " + clients.toString(client));
         }
-        log("NEW CLIENT ARRIVED: " + client.toString());
-        clients.add(client);
+        shoppingCalendar.schedule(endShoppingTime, client);
+        return true;
     }
 
     void addNewCheckout(ObjectInstanceHandle checkoutHandle) {
         System.out.println("NEW CHECKOUT");
-        checkouts.add(new Checkout(checkoutHandle));
+        checkouts.discover(checkoutHandle);
     }
 
     void addNewQueue(ObjectInstanceHandle queueHandle) {
         System.out.println("NEW QUEUE");
-        queues.add(new Queue(queueHandle));
+        queues.discover(queueHandle);
+    }
+
+    void removeCheckout(ObjectInstanceHandle checkoutHandle) {
+        checkouts.remove(checkoutHandle);
+    }
+
+    void removeQueue(ObjectInstanceHandle queueHandle) {
+        Queue queue = queues.remove(queueHandle);
+        if (queue != null) {
+            acceptingQueues.remove(queue);
+        }
+    }
+
+    @Override
+    public int getLiveObjects() {
+        return clients.size() + queues.size() + checkouts.size();
     }
 
     void serviceClient(int checkoutId, int clientId, LogicalTime time) {
 //        log("CLIENT SERVICED (" + clientId + ")");
-        Optional<Client> first = clients.stream()
-                .filter(client -> client.getClientId() == clientId)
-                .findFirst();
-//        log("CZY ISTNIEJE " + first.get());
-        first.ifPresent(client -> clientsToDelete.add(client));
+        if (clients.slotOfId(clientId) != ClientStore.NO_SLOT) {
+            clientsToDelete.add(clientId);
+        }
+    }
+
+    void provideClientAttributeValues(ObjectInstanceHandle handle) {
+        int client = clients.slotOf(handle);
+        if (client != ClientStore.NO_SLOT) {
+            clients.markDirty(client, Client.ALL_ATTRIBUTES);
+        }
     }
 
     void updateQueue(ObjectInstanceHandle handle, int queueId, int queueMaxSize, int queueCurrentSize) {
-        for (Queue queue : queues) {
-            if (queue.getRtiHandler().equals(handle)) {
-                queue.setQueueId(queueId);
-                queue.setMaxSize(queueMaxSize);
-                queue.setCurrentSize(queueCurrentSize);
-            }
+        Queue queue = queues.get(handle);
+        if (queue != null) {
+            queue.setQueueId(queueId);
+            queue.setMaxSize(queueMaxSize);
+            queue.setCurrentSize(queueCurrentSize);
+            queues.index(queue);
+            refreshAcceptingQueue(queue);
+        }
+    }
+
+    /**
+     * Keeps the heap limited to open queues with a free place, ordered by current size.
+     */
+    private void refreshAcceptingQueue(Queue queue) {
+        if (queue.canAccept()) {
+            acceptingQueues.update(queue);
+        } else {
+            acceptingQueues.remove(queue);
         }
     }
 
     void updateCheckout(ObjectInstanceHandle handle, int checkoutId, boolean open, int queueId) {
-        for (Checkout queue : checkouts) {
-            if (queue.getRtiHandler().equals(handle)) {
-                queue.setQueueId(queueId);
-                queue.setOpen(open);
-                queue.setCheckoutId(checkoutId);
-            }
+        Checkout checkout = checkouts.get(handle);
+        if (checkout != null) {
+            checkout.setQueueId(queueId);
+            checkout.setOpen(open);
+            checkout.setCheckoutId(checkoutId);
+            checkouts.index(checkout);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package shop.rti.local;
+
+import hla.rti1516e.AttributeHandle;
+import hla.rti1516e.AttributeHandleSet;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+final class LocalAttributeHandleSet extends HashSet<AttributeHandle> implements AttributeHandleSet {
+
+    private static final long serialVersionUID = 1L;
+
+    LocalAttributeHandleSet() {
+    }
+
+    LocalAttributeHandleSet(Collection<? extends AttributeHandle> handles) {
+        super(handles);
+    }
+
+    @Override
+    public LocalAttributeHandleSet clone() {
+        return new LocalAttributeHandleSet(this);
+    }
+}
@@ -0,0 +1,32 @@
+package shop.rti.local;
+
+import hla.rti1516e.AttributeHandle;
+import hla.rti1516e.AttributeHandleValueMap;
+import hla.rti1516e.encoding.ByteWrapper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class LocalAttributeHandleValueMap extends HashMap<AttributeHandle, byte[]> implements AttributeHandleValueMap {
+
+    private static final long serialVersionUID = 1L;
+
+    LocalAttributeHandleValueMap(int capacity) {
+        super(capacity);
+    }
+
+    LocalAttributeHandleValueMap(Map<AttributeHandle, byte[]> values) {
+        super(values);
+    }
+
+    @Override
+    public ByteWrapper getValueReference(AttributeHandle key) {
+        byte[] value = get(key);
+        return value == null ? null : new ByteWrapper(value);
+    }
+
+    @Override
+    public ByteWrapper getValueReference(AttributeHandle key, ByteWrapper byteWrapper) {
+        return getValueReference(key);
+    }
+}
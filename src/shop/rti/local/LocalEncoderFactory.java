@@ -0,0 +1,24 @@
+package shop.rti.local;
+
+import hla.rti1516e.encoding.HLAunicodeString;
+
+/**
+ * The encoders the in-memory RTI provides: only HLAunicodeString, which start-up needs to read
+ * MOM federate names. The shop's own data goes through {@code HlaCodec}.
+ */
+@SuppressWarnings("unused")
+final class LocalEncoderFactory {
+
+    public HLAunicodeString createHLAunicodeString() {
+        return new LocalUnicodeString("");
+    }
+
+    public HLAunicodeString createHLAunicodeString(String value) {
+        return new LocalUnicodeString(value);
+    }
+
+    @Override
+    public String toString() {
+        return "in-memory EncoderFactory";
+    }
+}
@@ -0,0 +1,172 @@
+package shop.rti.local;
+
+import hla.rti1516e.FederateAmbassador;
+import hla.rti1516e.exceptions.CallNotAllowedFromWithinCallback;
+import hla.rti1516e.exceptions.FederateInternalError;
+import hla.rti1516e.exceptions.RTIinternalError;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A joined federate as seen by the in-memory RTI.
+ * <p>
+ * Other federates' threads post callbacks to a lock-free queue and unpark the owner if it is
+ * waiting in evokeCallback. Time management state, held-back timestamp-order messages and
+ * subscriptions are only touched under the federation's lock.
+ */
+final class LocalFederate {
+
+    interface Callback {
+        void deliver(FederateAmbassador ambassador) throws FederateInternalError;
+    }
+
+    final LocalHandle handle;
+    final String name;
+    private final FederateAmbassador ambassador;
+    private final Queue<Callback> callbacks = new ConcurrentLinkedQueue<>();
+    private volatile Thread waiter;
+    private boolean inCallback = false;
+
+    double time = 0.0;
+    double lookahead = 0.0;
+    boolean regulating = false;
+    boolean constrained = false;
+    boolean advancing = false;
+    boolean nextMessage = false;
+    double requestedTime;
+    final PriorityQueue<Message> timestamped = new PriorityQueue<>();
+    final Map<LocalHandle, Set<LocalHandle>> objectSubscriptions = new HashMap<>();
+    final Set<LocalHandle> interactionSubscriptions = new HashSet<>();
+
+    LocalFederate(LocalHandle handle, String name, FederateAmbassador ambassador) {
+        this.handle = handle;
+        this.name = name;
+        this.ambassador = ambassador;
+    }
+
+    void post(Callback callback) {
+        callbacks.add(callback);
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Delivers at most one callback, waiting up to {@code seconds} for one to arrive.
+     * Returns true if more callbacks are pending.
+     */
+    boolean evoke(double seconds) throws CallNotAllowedFromWithinCallback, RTIinternalError {
+        checkNotInCallback();
+        Callback callback = callbacks.poll();
+        if (callback == null) {
+            callback = await(toNanos(seconds));
+        }
+        if (callback != null) {
+            deliver(callback);
+        }
+        return !callbacks.isEmpty();
+    }
+
+    /**
+     * Delivers callbacks for at least {@code minSeconds} and at most {@code maxSeconds}, returning
+     * early once {@code minSeconds} have passed and nothing is queued.
+     */
+    boolean evokeMultiple(double minSeconds, double maxSeconds) throws CallNotAllowedFromWithinCallback, RTIinternalError {
+        checkNotInCallback();
+        long start = System.nanoTime();
+        long min = toNanos(minSeconds);
+        long max = toNanos(maxSeconds);
+        while (true) {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= max) {
+                break;
+            }
+            Callback callback = callbacks.poll();
+            if (callback == null && elapsed < min) {
+                callback = await(min - elapsed);
+            }
+            if (callback == null) {
+                break;
+            }
+            deliver(callback);
+        }
+        return !callbacks.isEmpty();
+    }
+
+    private Callback await(long nanos) {
+        if (nanos <= 0) {
+            return null;
+        }
+        long deadline = System.nanoTime() + nanos;
+        waiter = Thread.currentThread();
+        try {
+            Callback callback;
+            while ((callback = callbacks.poll()) == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            return callback;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    private void deliver(Callback callback) throws RTIinternalError {
+        inCallback = true;
+        try {
+            callback.deliver(ambassador);
+        } catch (FederateInternalError e) {
+            throw new RTIinternalError("Callback failed in federate " + name + ": " + e.getMessage(), e);
+        } finally {
+            inCallback = false;
+        }
+    }
+
+    private void checkNotInCallback() throws CallNotAllowedFromWithinCallback {
+        if (inCallback) {
+            throw new CallNotAllowedFromWithinCallback("Callbacks cannot be evoked from within a callback");
+        }
+    }
+
+    private static long toNanos(double seconds) {
+        return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * A timestamp-order callback held back until the federate is granted its time.
+     */
+    static final class Message implements Comparable<Message> {
+        final double time;
+        final long sequence;
+        final Callback callback;
+
+        Message(double time, long sequence, Callback callback) {
+            this.time = time;
+            this.sequence = sequence;
+            this.callback = callback;
+        }
+
+        @Override
+        public int compareTo(Message other) {
+            int byTime = Double.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
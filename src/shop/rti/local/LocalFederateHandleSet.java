@@ -0,0 +1,24 @@
+package shop.rti.local;
+
+import hla.rti1516e.FederateHandle;
+import hla.rti1516e.FederateHandleSet;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+final class LocalFederateHandleSet extends HashSet<FederateHandle> implements FederateHandleSet {
+
+    private static final long serialVersionUID = 1L;
+
+    LocalFederateHandleSet() {
+    }
+
+    LocalFederateHandleSet(Collection<? extends FederateHandle> handles) {
+        super(handles);
+    }
+
+    @Override
+    public LocalFederateHandleSet clone() {
+        return new LocalFederateHandleSet(this);
+    }
+}
@@ -0,0 +1,646 @@
+package shop.rti.local;
+
+import hla.rti1516e.AttributeHandle;
+import hla.rti1516e.FederateAmbassador;
+import hla.rti1516e.FederateHandle;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.OrderType;
+import hla.rti1516e.ParameterHandle;
+import hla.rti1516e.ResignAction;
+import hla.rti1516e.SynchronizationPointFailureReason;
+import hla.rti1516e.exceptions.FederatesCurrentlyJoined;
+import hla.rti1516e.exceptions.ObjectInstanceNotKnown;
+import hla.rti1516e.exceptions.RTIinternalError;
+import hla.rti1516e.time.HLAfloat64Time;
+import shop.rti.local.LocalFederate.Callback;
+import shop.rti.local.LocalFederate.Message;
+import shop.rti.local.LocalHandle.Kind;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One federation execution of the in-memory RTI.
+ * <p>
+ * Every call that changes shared state holds the federation's monitor. Callbacks are only
+ * queued here and run later on the receiving federate's own thread, so no callback runs while
+ * the lock is held. Class, attribute and parameter names are not checked against the FOM; a
+ * handle is created the first time a name is looked up. Publication is not enforced.
+ * <p>
+ * Time management is conservative. A constrained federate is granted time t once t is below
+ * the lower bound of every other regulating federate. That bound is the federate's granted time,
+ * or the time it is advancing to, plus its lookahead. Timestamp-order messages are held back
+ * until their receiver is granted a time at or past them. Only the MOM federate object class
+ * (HLAmanager.HLAfederate with HLAfederateName) is supported, which is enough for start-up.
+ */
+final class LocalFederation {
+
+    static final String OBJECT_ROOT = "HLAobjectRoot";
+    static final String INTERACTION_ROOT = "HLAinteractionRoot";
+    static final String MOM_FEDERATE = OBJECT_ROOT + ".HLAmanager.HLAfederate";
+    static final String MOM_FEDERATE_NAME = "HLAfederateName";
+    private static final Set<ResignAction> DELETING_RESIGN_ACTIONS = EnumSet.of(ResignAction.DELETE_OBJECTS,
+            ResignAction.DELETE_OBJECTS_THEN_DIVEST, ResignAction.CANCEL_THEN_DELETE_THEN_DIVEST);
+
+    final String name;
+    private final List<LocalFederate> federates = new ArrayList<>();
+    private final Map<String, LocalHandle> classes = new HashMap<>();
+    private final Map<LocalHandle, String> classNames = new HashMap<>();
+    private final Map<LocalHandle, Map<String, LocalHandle>> members = new HashMap<>();
+    private final Map<LocalHandle, String> memberNames = new HashMap<>();
+    private final Map<LocalHandle, LocalObject> objects = new HashMap<>();
+    private final Map<String, LocalObject> objectsByName = new HashMap<>();
+    private final Map<String, LocalFederate> reservedNames = new HashMap<>();
+    private final Map<String, SyncPoint> syncPoints = new LinkedHashMap<>();
+    private final LocalHandle momFederateClass;
+    private final LocalHandle momFederateName;
+    private int nextHandle = 1;
+    private long sequence = 0;
+    private boolean destroyed = false;
+
+    LocalFederation(String name) {
+        this.name = name;
+        momFederateClass = objectClass(MOM_FEDERATE);
+        momFederateName = attribute(momFederateClass, MOM_FEDERATE_NAME);
+    }
+
+    // names and handles
+
+    synchronized LocalHandle objectClass(String className) {
+        return classHandle(qualify(OBJECT_ROOT, className), Kind.OBJECT_CLASS);
+    }
+
+    synchronized LocalHandle interactionClass(String className) {
+        return classHandle(qualify(INTERACTION_ROOT, className), Kind.INTERACTION_CLASS);
+    }
+
+    synchronized LocalHandle attribute(LocalHandle objectClass, String attributeName) {
+        return member(objectClass, attributeName, Kind.ATTRIBUTE);
+    }
+
+    synchronized LocalHandle parameter(LocalHandle interactionClass, String parameterName) {
+        return member(interactionClass, parameterName, Kind.PARAMETER);
+    }
+
+    synchronized String className(LocalHandle handle) throws RTIinternalError {
+        return known(classNames.get(handle), handle);
+    }
+
+    synchronized String memberName(LocalHandle handle) throws RTIinternalError {
+        return known(memberNames.get(handle), handle);
+    }
+
+    private LocalHandle classHandle(String qualifiedName, Kind kind) {
+        LocalHandle handle = classes.get(qualifiedName);
+        if (handle == null) {
+            handle = newHandle(kind);
+            classes.put(qualifiedName, handle);
+            classNames.put(handle, qualifiedName);
+        }
+        return handle;
+    }
+
+    private LocalHandle member(LocalHandle owner, String memberName, Kind kind) {
+        Map<String, LocalHandle> byName = members.computeIfAbsent(owner, key -> new HashMap<>());
+        LocalHandle handle = byName.get(memberName);
+        if (handle == null) {
+            handle = newHandle(kind);
+            byName.put(memberName, handle);
+            memberNames.put(handle, memberName);
+        }
+        return handle;
+    }
+
+    private LocalHandle newHandle(Kind kind) {
+        return new LocalHandle(kind, nextHandle++);
+    }
+
+    private static String qualify(String root, String className) {
+        return className.equals(root) || className.startsWith(root + ".") ? className : root + "." + className;
+    }
+
+    private static String known(String value, LocalHandle handle) throws RTIinternalError {
+        if (value == null) {
+            throw new RTIinternalError("Unknown handle " + handle);
+        }
+        return value;
+    }
+
+    // federation membership
+
+    synchronized LocalFederate join(String federateName, FederateAmbassador ambassador) throws RTIinternalError {
+        if (destroyed) {
+            throw new RTIinternalError("Federation " + name + " has been destroyed");
+        }
+        if (federate(federateName) != null) {
+            throw new RTIinternalError("Federate name already in use: " + federateName);
+        }
+        LocalFederate federate = new LocalFederate(newHandle(Kind.FEDERATE), federateName, ambassador);
+        federates.add(federate);
+        for (SyncPoint point : syncPoints.values()) {
+            if (point.federationWide) {
+                point.members.add(federate);
+                announce(federate, point);
+            }
+        }
+        createObject(momFederateClass, "HLAfederate." + federateName, federate, true);
+        return federate;
+    }
+
+    synchronized void resign(LocalFederate federate, ResignAction action) {
+        federates.remove(federate);
+        boolean deleteObjects = DELETING_RESIGN_ACTIONS.contains(action);
+        for (LocalObject object : new ArrayList<>(objects.values())) {
+            if (object.owner == federate && (object.mom || deleteObjects)) {
+                remove(object, null, null);
+            } else {
+                object.discoveredBy.remove(federate);
+            }
+        }
+        reservedNames.values().removeIf(owner -> owner == federate);
+        for (SyncPoint point : new ArrayList<>(syncPoints.values())) {
+            point.members.remove(federate);
+            point.achieved.remove(federate);
+            checkSynchronized(point);
+        }
+        advanceGrants();
+    }
+
+    synchronized void destroy() throws FederatesCurrentlyJoined {
+        if (!federates.isEmpty()) {
+            throw new FederatesCurrentlyJoined(federates.toString());
+        }
+        destroyed = true;
+    }
+
+    synchronized LocalFederate federate(String federateName) {
+        for (LocalFederate federate : federates) {
+            if (federate.name.equals(federateName)) {
+                return federate;
+            }
+        }
+        return null;
+    }
+
+    synchronized LocalFederate federate(FederateHandle handle) {
+        for (LocalFederate federate : federates) {
+            if (federate.handle.equals(handle)) {
+                return federate;
+            }
+        }
+        return null;
+    }
+
+    // synchronization points
+
+    synchronized void registerSyncPoint(LocalFederate federate, String label, byte[] tag,
+                                        Collection<FederateHandle> synchronizationSet) {
+        if (syncPoints.containsKey(label)) {
+            federate.post(ambassador -> ambassador.synchronizationPointRegistrationFailed(label,
+                    SynchronizationPointFailureReason.SYNCHRONIZATION_POINT_LABEL_NOT_UNIQUE));
+            return;
+        }
+        SyncPoint point = new SyncPoint(label, tag, synchronizationSet == null);
+        if (synchronizationSet == null) {
+            point.members.addAll(federates);
+        } else {
+            for (FederateHandle handle : synchronizationSet) {
+                LocalFederate member = federate(handle);
+                if (member == null) {
+                    federate.post(ambassador -> ambassador.synchronizationPointRegistrationFailed(label,
+                            SynchronizationPointFailureReason.SYNCHRONIZATION_SET_MEMBER_NOT_JOINED));
+                    return;
+                }
+                point.members.add(member);
+            }
+        }
+        syncPoints.put(label, point);
+        federate.post(ambassador -> ambassador.synchronizationPointRegistrationSucceeded(label));
+        for (LocalFederate member : point.members) {
+            announce(member, point);
+        }
+    }
+
+    synchronized void achieveSyncPoint(LocalFederate federate, String label) throws RTIinternalError {
+        SyncPoint point = syncPoints.get(label);
+        if (point == null || !point.members.contains(federate)) {
+            throw new RTIinternalError("Synchronization point not announced: " + label);
+        }
+        point.achieved.add(federate);
+        checkSynchronized(point);
+    }
+
+    private void announce(LocalFederate federate, SyncPoint point) {
+        federate.post(ambassador -> ambassador.announceSynchronizationPoint(point.label, point.tag));
+    }
+
+    private void checkSynchronized(SyncPoint point) {
+        if (!point.achieved.containsAll(point.members)) {
+            return;
+        }
+        syncPoints.remove(point.label);
+        for (LocalFederate member : point.members) {
+            member.post(ambassador -> ambassador.federationSynchronized(point.label, new LocalFederateHandleSet()));
+        }
+    }
+
+    // time management
+
+    synchronized void enableTimeRegulation(LocalFederate federate, double lookahead) throws RTIinternalError {
+        if (federate.regulating || federate.advancing) {
+            throw new RTIinternalError(federate.name + " cannot enable time regulation now");
+        }
+        // start no earlier than any constrained federate, so nothing we send lands in its past
+        for (LocalFederate other : federates) {
+            if (other != federate && other.constrained) {
+                federate.time = Math.max(federate.time, other.time);
+            }
+        }
+        federate.lookahead = lookahead;
+        federate.regulating = true;
+        HLAfloat64Time time = LocalTimeFactory.INSTANCE.makeTime(federate.time);
+        federate.post(ambassador -> ambassador.timeRegulationEnabled(time));
+    }
+
+    synchronized void disableTimeRegulation(LocalFederate federate) {
+        federate.regulating = false;
+        advanceGrants();
+    }
+
+    synchronized void enableTimeConstrained(LocalFederate federate) throws RTIinternalError {
+        if (federate.constrained || federate.advancing) {
+            throw new RTIinternalError(federate.name + " cannot enable time constrained now");
+        }
+        federate.constrained = true;
+        HLAfloat64Time time = LocalTimeFactory.INSTANCE.makeTime(federate.time);
+        federate.post(ambassador -> ambassador.timeConstrainedEnabled(time));
+    }
+
+    synchronized void disableTimeConstrained(LocalFederate federate) {
+        federate.constrained = false;
+        while (!federate.timestamped.isEmpty()) {
+            federate.post(federate.timestamped.poll().callback);
+        }
+        advanceGrants();
+    }
+
+    synchronized void requestTimeAdvance(LocalFederate federate, double time, boolean nextMessage) throws RTIinternalError {
+        if (federate.advancing) {
+            throw new RTIinternalError(federate.name + " is already advancing to " + federate.requestedTime);
+        }
+        if (time < federate.time) {
+            throw new RTIinternalError(federate.name + " requested " + time + ", before its current time " + federate.time);
+        }
+        federate.advancing = true;
+        federate.nextMessage = nextMessage;
+        federate.requestedTime = time;
+        advanceGrants();
+    }
+
+    synchronized double queryTime(LocalFederate federate) {
+        return federate.time;
+    }
+
+    private void advanceGrants() {
+        boolean granted;
+        do {
+            granted = false;
+            for (LocalFederate federate : federates) {
+                if (federate.advancing && tryGrant(federate)) {
+                    granted = true;
+                }
+            }
+        } while (granted);
+    }
+
+    private boolean tryGrant(LocalFederate federate) {
+        double target = advanceTarget(federate);
+        if (federate.constrained && target >= galt(federate)) {
+            return false;
+        }
+        while (!federate.timestamped.isEmpty() && federate.timestamped.peek().time <= target) {
+            federate.post(federate.timestamped.poll().callback);
+        }
+        federate.time = target;
+        federate.advancing = false;
+        HLAfloat64Time time = LocalTimeFactory.INSTANCE.makeTime(target);
+        federate.post(ambassador -> ambassador.timeAdvanceGrant(time));
+        return true;
+    }
+
+    private double advanceTarget(LocalFederate federate) {
+        if (federate.nextMessage && !federate.timestamped.isEmpty()) {
+            return Math.min(federate.requestedTime, federate.timestamped.peek().time);
+        }
+        return federate.requestedTime;
+    }
+
+    /**
+     * No timestamp-order message below this time can still reach {@code federate}.
+     */
+    private double galt(LocalFederate federate) {
+        double galt = Double.POSITIVE_INFINITY;
+        for (LocalFederate other : federates) {
+            if (other != federate && other.regulating) {
+                galt = Math.min(galt, lowerBound(other));
+            }
+        }
+        return galt;
+    }
+
+    /**
+     * The smallest timestamp {@code federate} may still send.
+     */
+    private double lowerBound(LocalFederate federate) {
+        return (federate.advancing ? advanceTarget(federate) : federate.time) + federate.lookahead;
+    }
+
+    private void checkSendTime(LocalFederate sender, HLAfloat64Time time) throws RTIinternalError {
+        if (time != null && sender.regulating && time.getValue() < lowerBound(sender)) {
+            throw new RTIinternalError("Invalid logical time: " + sender.name + " cannot send at " + time.getValue()
+                    + ", the earliest it may use is " + lowerBound(sender));
+        }
+    }
+
+    private void send(LocalFederate sender, LocalFederate receiver, HLAfloat64Time time,
+                      Callback receiveOrder, Callback timestampOrder) {
+        if (time != null && sender.regulating && receiver.constrained) {
+            receiver.timestamped.add(new Message(time.getValue(), sequence++, timestampOrder));
+        } else {
+            receiver.post(receiveOrder);
+        }
+    }
+
+    // declarations
+
+    synchronized void subscribeObjectClass(LocalFederate federate, LocalHandle objectClass, Set<AttributeHandle> attributes) {
+        Set<LocalHandle> subscribed = federate.objectSubscriptions.computeIfAbsent(objectClass, key -> new HashSet<>());
+        for (AttributeHandle attribute : attributes) {
+            subscribed.add((LocalHandle) attribute);
+        }
+        for (LocalObject object : objects.values()) {
+            if (object.objectClass.equals(objectClass) && (object.mom || object.owner != federate)
+                    && !object.discoveredBy.contains(federate)) {
+                discover(federate, object);
+            }
+        }
+    }
+
+    synchronized void unsubscribeObjectClass(LocalFederate federate, LocalHandle objectClass) {
+        federate.objectSubscriptions.remove(objectClass);
+        for (LocalObject object : objects.values()) {
+            if (object.objectClass.equals(objectClass)) {
+                object.discoveredBy.remove(federate);
+            }
+        }
+    }
+
+    synchronized void subscribeInteractionClass(LocalFederate federate, LocalHandle interactionClass) {
+        federate.interactionSubscriptions.add(interactionClass);
+    }
+
+    synchronized void unsubscribeInteractionClass(LocalFederate federate, LocalHandle interactionClass) {
+        federate.interactionSubscriptions.remove(interactionClass);
+    }
+
+    // objects
+
+    synchronized void reserveName(LocalFederate federate, String objectName) {
+        if (isFree(federate, objectName)) {
+            reservedNames.put(objectName, federate);
+            federate.post(ambassador -> ambassador.objectInstanceNameReservationSucceeded(objectName));
+        } else {
+            federate.post(ambassador -> ambassador.objectInstanceNameReservationFailed(objectName));
+        }
+    }
+
+    synchronized void reserveNames(LocalFederate federate, Set<String> objectNames) {
+        Set<String> names = new HashSet<>(objectNames);
+        for (String objectName : names) {
+            if (!isFree(federate, objectName)) {
+                federate.post(ambassador -> ambassador.multipleObjectInstanceNameReservationFailed(names));
+                return;
+            }
+        }
+        for (String objectName : names) {
+            reservedNames.put(objectName, federate);
+        }
+        federate.post(ambassador -> ambassador.multipleObjectInstanceNameReservationSucceeded(names));
+    }
+
+    private boolean isFree(LocalFederate federate, String objectName) {
+        LocalFederate holder = reservedNames.get(objectName);
+        return !objectsByName.containsKey(objectName) && (holder == null || holder == federate);
+    }
+
+    synchronized LocalHandle register(LocalFederate federate, LocalHandle objectClass, String objectName) throws RTIinternalError {
+        if (objectName != null) {
+            if (reservedNames.get(objectName) != federate) {
+                throw new RTIinternalError("Object instance name not reserved: " + objectName);
+            }
+            reservedNames.remove(objectName);
+        }
+        return createObject(objectClass, objectName, federate, false).handle;
+    }
+
+    synchronized void update(LocalFederate sender, ObjectInstanceHandle handle, Map<AttributeHandle, byte[]> values,
+                             byte[] tag, HLAfloat64Time time) throws ObjectInstanceNotKnown, RTIinternalError {
+        LocalObject object = knownObject(handle);
+        checkSendTime(sender, time);
+        for (LocalFederate receiver : object.discoveredBy) {
+            Set<LocalHandle> subscribed = receiver.objectSubscriptions.get(object.objectClass);
+            if (receiver == sender || subscribed == null) {
+                continue;
+            }
+            LocalAttributeHandleValueMap reflected = new LocalAttributeHandleValueMap(values.size());
+            for (Map.Entry<AttributeHandle, byte[]> value : values.entrySet()) {
+                if (subscribed.contains(value.getKey())) {
+                    reflected.put(value.getKey(), value.getValue());
+                }
+            }
+            if (reflected.isEmpty()) {
+                continue;
+            }
+            send(sender, receiver, time,
+                    ambassador -> ambassador.reflectAttributeValues(object.handle, reflected, tag,
+                            OrderType.RECEIVE, null, null),
+                    ambassador -> ambassador.reflectAttributeValues(object.handle, reflected, tag,
+                            OrderType.TIMESTAMP, null, time, OrderType.TIMESTAMP, null));
+        }
+        if (time != null) {
+            advanceGrants();
+        }
+    }
+
+    synchronized void delete(LocalFederate sender, ObjectInstanceHandle handle, byte[] tag, HLAfloat64Time time)
+            throws ObjectInstanceNotKnown, RTIinternalError {
+        LocalObject object = knownObject(handle);
+        if (object.owner != sender || object.mom) {
+            throw new RTIinternalError(sender.name + " may not delete " + object.name);
+        }
+        checkSendTime(sender, time);
+        remove(object, tag, time);
+        if (time != null) {
+            advanceGrants();
+        }
+    }
+
+    synchronized void requestUpdate(LocalFederate requester, ObjectInstanceHandle handle, Set<AttributeHandle> attributes,
+                                    byte[] tag) throws ObjectInstanceNotKnown {
+        LocalObject object = objects.get(handle);
+        if (object == null && isIssued(handle)) {
+            // deleted at a time the requester has not been granted yet, so it still knows the
+            // instance but nobody is left to provide its values
+            return;
+        }
+        provide(requester, knownObject(handle), attributes, tag);
+    }
+
+    private boolean isIssued(ObjectInstanceHandle handle) {
+        return handle instanceof LocalHandle && ((LocalHandle) handle).getKind() == Kind.OBJECT_INSTANCE
+                && ((LocalHandle) handle).getValue() < nextHandle;
+    }
+
+    synchronized void requestUpdate(LocalFederate requester, LocalHandle objectClass, Set<AttributeHandle> attributes,
+                                    byte[] tag) {
+        for (LocalObject object : objects.values()) {
+            if (object.objectClass.equals(objectClass)) {
+                provide(requester, object, attributes, tag);
+            }
+        }
+    }
+
+    synchronized LocalHandle objectClassOf(ObjectInstanceHandle handle) throws ObjectInstanceNotKnown {
+        return knownObject(handle).objectClass;
+    }
+
+    synchronized String objectName(ObjectInstanceHandle handle) throws ObjectInstanceNotKnown {
+        return knownObject(handle).name;
+    }
+
+    synchronized LocalHandle objectHandle(String objectName) throws ObjectInstanceNotKnown {
+        LocalObject object = objectsByName.get(objectName);
+        if (object == null) {
+            throw new ObjectInstanceNotKnown(objectName);
+        }
+        return object.handle;
+    }
+
+    private LocalObject createObject(LocalHandle objectClass, String objectName, LocalFederate owner, boolean mom) {
+        LocalHandle handle = newHandle(Kind.OBJECT_INSTANCE);
+        LocalObject object = new LocalObject(handle, objectClass,
+                objectName == null ? "HLAobject" + handle.getValue() : objectName, owner, mom);
+        objects.put(handle, object);
+        objectsByName.put(object.name, object);
+        for (LocalFederate federate : federates) {
+            if ((mom || federate != owner) && federate.objectSubscriptions.containsKey(objectClass)) {
+                discover(federate, object);
+            }
+        }
+        return object;
+    }
+
+    private void discover(LocalFederate federate, LocalObject object) {
+        object.discoveredBy.add(federate);
+        federate.post(ambassador -> ambassador.discoverObjectInstance(object.handle, object.objectClass, object.name));
+    }
+
+    private void remove(LocalObject object, byte[] tag, HLAfloat64Time time) {
+        objects.remove(object.handle);
+        objectsByName.remove(object.name);
+        for (LocalFederate receiver : object.discoveredBy) {
+            send(object.owner, receiver, time,
+                    ambassador -> ambassador.removeObjectInstance(object.handle, tag, OrderType.RECEIVE, null),
+                    ambassador -> ambassador.removeObjectInstance(object.handle, tag, OrderType.TIMESTAMP, time,
+                            OrderType.TIMESTAMP, null));
+        }
+    }
+
+    private void provide(LocalFederate requester, LocalObject object, Set<AttributeHandle> attributes, byte[] tag) {
+        if (object.mom) {
+            // the RTI owns MOM objects and answers for them itself
+            if (object.discoveredBy.contains(requester) && attributes.contains(momFederateName)) {
+                LocalAttributeHandleValueMap values = new LocalAttributeHandleValueMap(1);
+                values.put(momFederateName, LocalUnicodeString.encode(object.owner.name));
+                requester.post(ambassador -> ambassador.reflectAttributeValues(object.handle, values, tag,
+                        OrderType.RECEIVE, null, null));
+            }
+        } else if (object.owner != requester && federates.contains(object.owner)) {
+            LocalAttributeHandleSet requested = new LocalAttributeHandleSet(attributes);
+            object.owner.post(ambassador -> ambassador.provideAttributeValueUpdate(object.handle, requested, tag));
+        }
+    }
+
+    private LocalObject knownObject(ObjectInstanceHandle handle) throws ObjectInstanceNotKnown {
+        LocalObject object = objects.get(handle);
+        if (object == null) {
+            throw new ObjectInstanceNotKnown(String.valueOf(handle));
+        }
+        return object;
+    }
+
+    // interactions
+
+    synchronized void sendInteraction(LocalFederate sender, LocalHandle interactionClass,
+                                      Map<ParameterHandle, byte[]> parameters, byte[] tag, HLAfloat64Time time)
+            throws RTIinternalError {
+        checkSendTime(sender, time);
+        // receivers share one copy of the parameters
+        LocalParameterHandleValueMap received = null;
+        for (LocalFederate receiver : federates) {
+            if (receiver == sender || !receiver.interactionSubscriptions.contains(interactionClass)) {
+                continue;
+            }
+            if (received == null) {
+                received = new LocalParameterHandleValueMap(parameters);
+            }
+            LocalParameterHandleValueMap values = received;
+            send(sender, receiver, time,
+                    ambassador -> ambassador.receiveInteraction(interactionClass, values, tag,
+                            OrderType.RECEIVE, null, null),
+                    ambassador -> ambassador.receiveInteraction(interactionClass, values, tag,
+                            OrderType.TIMESTAMP, null, time, OrderType.TIMESTAMP, null));
+        }
+        if (time != null) {
+            advanceGrants();
+        }
+    }
+
+    private static final class LocalObject {
+        final LocalHandle handle;
+        final LocalHandle objectClass;
+        final String name;
+        final LocalFederate owner;
+        final boolean mom;
+        final Set<LocalFederate> discoveredBy = new HashSet<>();
+
+        LocalObject(LocalHandle handle, LocalHandle objectClass, String name, LocalFederate owner, boolean mom) {
+            this.handle = handle;
+            this.objectClass = objectClass;
+            this.name = name;
+            this.owner = owner;
+            this.mom = mom;
+        }
+    }
+
+    private static final class SyncPoint {
+        final String label;
+        final byte[] tag;
+        final boolean federationWide;
+        final Set<LocalFederate> members = new HashSet<>();
+        final Set<LocalFederate> achieved = new HashSet<>();
+
+        SyncPoint(String label, byte[] tag, boolean federationWide) {
+            this.label = label;
+            this.tag = tag;
+            this.federationWide = federationWide;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package shop.rti.local;
+
+import hla.rti1516e.AttributeHandle;
+import hla.rti1516e.FederateHandle;
+import hla.rti1516e.InteractionClassHandle;
+import hla.rti1516e.ObjectClassHandle;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.ParameterHandle;
+
+/**
+ * Every handle kind handed out by the in-memory RTI. Handles of different kinds never compare equal.
+ */
+final class LocalHandle implements ObjectClassHandle, AttributeHandle, InteractionClassHandle, ParameterHandle,
+        ObjectInstanceHandle, FederateHandle {
+
+    private static final long serialVersionUID = 1L;
+
+    enum Kind {
+        OBJECT_CLASS, ATTRIBUTE, INTERACTION_CLASS, PARAMETER, OBJECT_INSTANCE, FEDERATE
+    }
+
+    private final Kind kind;
+    private final int value;
+
+    LocalHandle(Kind kind, int value) {
+        this.kind = kind;
+        this.value = value;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    int getValue() {
+        return value;
+    }
+
+    @Override
+    public int encodedLength() {
+        return 4;
+    }
+
+    @Override
+    public void encode(byte[] buffer, int offset) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LocalHandle)) {
+            return false;
+        }
+        LocalHandle handle = (LocalHandle) other;
+        return kind == handle.kind && value == handle.value;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * kind.ordinal() + value;
+    }
+
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase() + "#" + value;
+    }
+}
@@ -0,0 +1,92 @@
+package shop.rti.local;
+
+import hla.rti1516e.time.HLAfloat64Interval;
+
+final class LocalInterval implements HLAfloat64Interval {
+
+    private static final long serialVersionUID = 1L;
+
+    static final LocalInterval ZERO = new LocalInterval(0.0);
+    static final LocalInterval EPSILON = new LocalInterval(Double.MIN_VALUE);
+
+    private final double value;
+
+    LocalInterval(double value) {
+        this.value = value;
+    }
+
+    static void encodeDouble(double value, byte[] buffer, int offset) {
+        long bits = Double.doubleToLongBits(value);
+        for (int i = 0; i < 8; i++) {
+            buffer[offset + i] = (byte) (bits >>> (56 - 8 * i));
+        }
+    }
+
+    static double decodeDouble(byte[] buffer, int offset) {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = bits << 8 | buffer[offset + i] & 0xff;
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isZero() {
+        return value == 0.0;
+    }
+
+    @Override
+    public boolean isEpsilon() {
+        return value == EPSILON.value;
+    }
+
+    @Override
+    public HLAfloat64Interval add(HLAfloat64Interval other) {
+        return new LocalInterval(value + other.getValue());
+    }
+
+    @Override
+    public HLAfloat64Interval subtract(HLAfloat64Interval other) {
+        return new LocalInterval(value - other.getValue());
+    }
+
+    @Override
+    public int compareTo(HLAfloat64Interval other) {
+        return Double.compare(value, other.getValue());
+    }
+
+    @Override
+    public int encodedLength() {
+        return 8;
+    }
+
+    @Override
+    public void encode(byte[] buffer, int offset) {
+        encodeDouble(value, buffer, offset);
+    }
+
+    @Override
+    public String getName() {
+        return LocalTimeFactory.NAME;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof HLAfloat64Interval && ((HLAfloat64Interval) other).getValue() == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
@@ -0,0 +1,32 @@
+package shop.rti.local;
+
+import hla.rti1516e.ParameterHandle;
+import hla.rti1516e.ParameterHandleValueMap;
+import hla.rti1516e.encoding.ByteWrapper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class LocalParameterHandleValueMap extends HashMap<ParameterHandle, byte[]> implements ParameterHandleValueMap {
+
+    private static final long serialVersionUID = 1L;
+
+    LocalParameterHandleValueMap(int capacity) {
+        super(capacity);
+    }
+
+    LocalParameterHandleValueMap(Map<ParameterHandle, byte[]> values) {
+        super(values);
+    }
+
+    @Override
+    public ByteWrapper getValueReference(ParameterHandle key) {
+        byte[] value = get(key);
+        return value == null ? null : new ByteWrapper(value);
+    }
+
+    @Override
+    public ByteWrapper getValueReference(ParameterHandle key, ByteWrapper byteWrapper) {
+        return getValueReference(key);
+    }
+}
@@ -0,0 +1,128 @@
+package shop.rti.local;
+
+import hla.rti1516e.RTIambassador;
+import hla.rti1516e.RtiFactory;
+import hla.rti1516e.encoding.EncoderFactory;
+import hla.rti1516e.exceptions.FederatesCurrentlyJoined;
+import hla.rti1516e.exceptions.FederationExecutionAlreadyExists;
+import hla.rti1516e.exceptions.FederationExecutionDoesNotExist;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An RTI that runs inside the JVM, for single-host runs and benchmarks without Portico.
+ * <p>
+ * It covers what the shop federates use: connect and join, synchronization points, time
+ * regulation and constrained with time advance and next message requests, publish and
+ * subscribe, object registration, updates and deletion, and interactions in receive or timestamp
+ * order. Federations live until they are destroyed or the JVM exits. Other RTIambassador calls
+ * throw UnsupportedOperationException.
+ */
+public final class LocalRti {
+
+    private static final Map<String, LocalFederation> FEDERATIONS = new ConcurrentHashMap<>();
+
+    private static final RtiFactory FACTORY = new RtiFactory() {
+        @Override
+        public RTIambassador getRtiAmbassador() {
+            return proxy(RTIambassador.class, new LocalRtiAmbassador());
+        }
+
+        @Override
+        public EncoderFactory getEncoderFactory() {
+            return proxy(EncoderFactory.class, new LocalEncoderFactory());
+        }
+
+        @Override
+        public String rtiName() {
+            return "shop in-memory RTI";
+        }
+
+        @Override
+        public String rtiVersion() {
+            return "1.0";
+        }
+    };
+
+    private LocalRti() {
+    }
+
+    public static RtiFactory getRtiFactory() {
+        return FACTORY;
+    }
+
+    static void create(String name) throws FederationExecutionAlreadyExists {
+        if (FEDERATIONS.putIfAbsent(name, new LocalFederation(name)) != null) {
+            throw new FederationExecutionAlreadyExists(name);
+        }
+    }
+
+    static LocalFederation get(String name) throws FederationExecutionDoesNotExist {
+        LocalFederation federation = FEDERATIONS.get(name);
+        if (federation == null) {
+            throw new FederationExecutionDoesNotExist(name);
+        }
+        return federation;
+    }
+
+    static void destroy(String name) throws FederatesCurrentlyJoined, FederationExecutionDoesNotExist {
+        LocalFederation federation = get(name);
+        federation.destroy();
+        FEDERATIONS.remove(name, federation);
+    }
+
+    private static <T> T proxy(Class<T> api, Object target) {
+        return api.cast(Proxy.newProxyInstance(api.getClassLoader(), new Class<?>[]{api}, new Forwarder(target)));
+    }
+
+    /**
+     * Forwards each API method to the target's method with the same signature.
+     */
+    private static final class Forwarder implements InvocationHandler {
+
+        private final Object target;
+        private final Map<Method, Optional<Method>> methods = new ConcurrentHashMap<>();
+
+        Forwarder(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return target.toString();
+                }
+            }
+            Method implementation = methods.computeIfAbsent(method, this::find)
+                    .orElseThrow(() -> new UnsupportedOperationException(
+                            method.getName() + " is not supported by the in-memory RTI"));
+            try {
+                return implementation.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Optional<Method> find(Method method) {
+            try {
+                Method implementation = target.getClass().getMethod(method.getName(), method.getParameterTypes());
+                implementation.setAccessible(true);
+                return Optional.of(implementation);
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        }
+    }
+}
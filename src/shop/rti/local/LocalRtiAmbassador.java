@@ -0,0 +1,471 @@
+package shop.rti.local;
+
+import hla.rti1516e.AttributeHandle;
+import hla.rti1516e.AttributeHandleSet;
+import hla.rti1516e.AttributeHandleSetFactory;
+import hla.rti1516e.AttributeHandleValueMap;
+import hla.rti1516e.AttributeHandleValueMapFactory;
+import hla.rti1516e.CallbackModel;
+import hla.rti1516e.FederateAmbassador;
+import hla.rti1516e.FederateHandle;
+import hla.rti1516e.FederateHandleSet;
+import hla.rti1516e.InteractionClassHandle;
+import hla.rti1516e.LogicalTime;
+import hla.rti1516e.LogicalTimeFactory;
+import hla.rti1516e.LogicalTimeInterval;
+import hla.rti1516e.MessageRetractionReturn;
+import hla.rti1516e.ObjectClassHandle;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.ParameterHandle;
+import hla.rti1516e.ParameterHandleValueMap;
+import hla.rti1516e.ParameterHandleValueMapFactory;
+import hla.rti1516e.ResignAction;
+import hla.rti1516e.exceptions.CallNotAllowedFromWithinCallback;
+import hla.rti1516e.exceptions.FederateNotExecutionMember;
+import hla.rti1516e.exceptions.FederatesCurrentlyJoined;
+import hla.rti1516e.exceptions.FederationExecutionAlreadyExists;
+import hla.rti1516e.exceptions.FederationExecutionDoesNotExist;
+import hla.rti1516e.exceptions.NotConnected;
+import hla.rti1516e.exceptions.ObjectInstanceNotKnown;
+import hla.rti1516e.exceptions.RTIinternalError;
+import hla.rti1516e.time.HLAfloat64Interval;
+import hla.rti1516e.time.HLAfloat64Time;
+
+import java.net.URL;
+import java.util.Set;
+
+/**
+ * The calls of one federate into the in-memory RTI.
+ * <p>
+ * {@link LocalRti} exposes this class as an {@link hla.rti1516e.RTIambassador} through a proxy
+ * that forwards every API method to the method here with the same name and parameter types.
+ * Methods missing here throw UnsupportedOperationException. Like Portico's ambassador, an
+ * instance belongs to a single federate thread.
+ */
+@SuppressWarnings("unused")
+final class LocalRtiAmbassador {
+
+    private static final byte[] NO_TAG = new byte[0];
+
+    private FederateAmbassador ambassador;
+    private LocalFederation federation;
+    private LocalFederate federate;
+
+    // connection and federation management
+
+    public void connect(FederateAmbassador federateAmbassador, CallbackModel callbackModel) throws RTIinternalError {
+        if (callbackModel != CallbackModel.HLA_EVOKED) {
+            throw new RTIinternalError("The in-memory RTI only supports " + CallbackModel.HLA_EVOKED);
+        }
+        if (ambassador != null) {
+            throw new RTIinternalError("Already connected");
+        }
+        ambassador = federateAmbassador;
+    }
+
+    public void connect(FederateAmbassador federateAmbassador, CallbackModel callbackModel, String localSettings)
+            throws RTIinternalError {
+        connect(federateAmbassador, callbackModel);
+    }
+
+    public void disconnect() throws RTIinternalError {
+        if (federate != null) {
+            throw new RTIinternalError("Resign from " + federation.name + " before disconnecting");
+        }
+        ambassador = null;
+    }
+
+    public void createFederationExecution(String name, URL[] modules)
+            throws FederationExecutionAlreadyExists, NotConnected {
+        connected();
+        LocalRti.create(name);
+    }
+
+    public void createFederationExecution(String name, URL[] modules, String timeImplementation)
+            throws FederationExecutionAlreadyExists, NotConnected, RTIinternalError {
+        if (!LocalTimeFactory.NAME.equals(timeImplementation)) {
+            throw new RTIinternalError("The in-memory RTI only supports " + LocalTimeFactory.NAME);
+        }
+        createFederationExecution(name, modules);
+    }
+
+    public void createFederationExecution(String name, URL[] modules, URL mimModule, String timeImplementation)
+            throws FederationExecutionAlreadyExists, NotConnected, RTIinternalError {
+        createFederationExecution(name, modules, timeImplementation);
+    }
+
+    public void createFederationExecution(String name, URL module)
+            throws FederationExecutionAlreadyExists, NotConnected {
+        createFederationExecution(name, new URL[]{module});
+    }
+
+    public void destroyFederationExecution(String name)
+            throws FederatesCurrentlyJoined, FederationExecutionDoesNotExist, NotConnected {
+        connected();
+        LocalRti.destroy(name);
+    }
+
+    public FederateHandle joinFederationExecution(String federateName, String federateType, String federationName,
+                                                  URL[] modules)
+            throws FederationExecutionDoesNotExist, NotConnected, RTIinternalError {
+        connected();
+        if (federate != null) {
+            throw new RTIinternalError("Already joined to " + federation.name);
+        }
+        LocalFederation joined = LocalRti.get(federationName);
+        federate = joined.join(federateName, ambassador);
+        federation = joined;
+        return federate.handle;
+    }
+
+    public FederateHandle joinFederationExecution(String federateName, String federateType, String federationName)
+            throws FederationExecutionDoesNotExist, NotConnected, RTIinternalError {
+        return joinFederationExecution(federateName, federateType, federationName, null);
+    }
+
+    public FederateHandle joinFederationExecution(String federateType, String federationName, URL[] modules)
+            throws FederationExecutionDoesNotExist, NotConnected, RTIinternalError {
+        return joinFederationExecution(federateType, federateType, federationName, modules);
+    }
+
+    public FederateHandle joinFederationExecution(String federateType, String federationName)
+            throws FederationExecutionDoesNotExist, NotConnected, RTIinternalError {
+        return joinFederationExecution(federateType, federateType, federationName, null);
+    }
+
+    public void resignFederationExecution(ResignAction action) throws FederateNotExecutionMember, NotConnected {
+        joined().resign(federate, action);
+        federate = null;
+        federation = null;
+    }
+
+    // synchronization points
+
+    public void registerFederationSynchronizationPoint(String label, byte[] tag)
+            throws FederateNotExecutionMember, NotConnected {
+        joined().registerSyncPoint(federate, label, tag, null);
+    }
+
+    public void registerFederationSynchronizationPoint(String label, byte[] tag, FederateHandleSet synchronizationSet)
+            throws FederateNotExecutionMember, NotConnected {
+        joined().registerSyncPoint(federate, label, tag, synchronizationSet);
+    }
+
+    public void synchronizationPointAchieved(String label)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().achieveSyncPoint(federate, label);
+    }
+
+    public void synchronizationPointAchieved(String label, boolean successfully)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        synchronizationPointAchieved(label);
+    }
+
+    // declarations; publication is not enforced
+
+    public void publishObjectClassAttributes(ObjectClassHandle objectClass, AttributeHandleSet attributes)
+            throws FederateNotExecutionMember, NotConnected {
+        joined();
+    }
+
+    public void unpublishObjectClass(ObjectClassHandle objectClass) throws FederateNotExecutionMember, NotConnected {
+        joined();
+    }
+
+    public void unpublishObjectClassAttributes(ObjectClassHandle objectClass, AttributeHandleSet attributes)
+            throws FederateNotExecutionMember, NotConnected {
+        joined();
+    }
+
+    public void publishInteractionClass(InteractionClassHandle interactionClass)
+            throws FederateNotExecutionMember, NotConnected {
+        joined();
+    }
+
+    public void unpublishInteractionClass(InteractionClassHandle interactionClass)
+            throws FederateNotExecutionMember, NotConnected {
+        joined();
+    }
+
+    public void subscribeObjectClassAttributes(ObjectClassHandle objectClass, AttributeHandleSet attributes)
+            throws FederateNotExecutionMember, NotConnected {
+        joined().subscribeObjectClass(federate, (LocalHandle) objectClass, attributes);
+    }
+
+    public void unsubscribeObjectClass(ObjectClassHandle objectClass) throws FederateNotExecutionMember, NotConnected {
+        joined().unsubscribeObjectClass(federate, (LocalHandle) objectClass);
+    }
+
+    public void subscribeInteractionClass(InteractionClassHandle interactionClass)
+            throws FederateNotExecutionMember, NotConnected {
+        joined().subscribeInteractionClass(federate, (LocalHandle) interactionClass);
+    }
+
+    public void unsubscribeInteractionClass(InteractionClassHandle interactionClass)
+            throws FederateNotExecutionMember, NotConnected {
+        joined().unsubscribeInteractionClass(federate, (LocalHandle) interactionClass);
+    }
+
+    // objects and interactions
+
+    public void reserveObjectInstanceName(String name) throws FederateNotExecutionMember, NotConnected {
+        joined().reserveName(federate, name);
+    }
+
+    public void reserveMultipleObjectInstanceName(Set<String> names) throws FederateNotExecutionMember, NotConnected {
+        joined().reserveNames(federate, names);
+    }
+
+    public ObjectInstanceHandle registerObjectInstance(ObjectClassHandle objectClass)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        return joined().register(federate, (LocalHandle) objectClass, null);
+    }
+
+    public ObjectInstanceHandle registerObjectInstance(ObjectClassHandle objectClass, String name)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        return joined().register(federate, (LocalHandle) objectClass, name);
+    }
+
+    public void updateAttributeValues(ObjectInstanceHandle object, AttributeHandleValueMap attributes, byte[] tag)
+            throws ObjectInstanceNotKnown, FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().update(federate, object, attributes, tagOf(tag), null);
+    }
+
+    public MessageRetractionReturn updateAttributeValues(ObjectInstanceHandle object, AttributeHandleValueMap attributes,
+                                                         byte[] tag, LogicalTime time)
+            throws ObjectInstanceNotKnown, FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().update(federate, object, attributes, tagOf(tag), (HLAfloat64Time) time);
+        return null;
+    }
+
+    public void deleteObjectInstance(ObjectInstanceHandle object, byte[] tag)
+            throws ObjectInstanceNotKnown, FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().delete(federate, object, tagOf(tag), null);
+    }
+
+    public MessageRetractionReturn deleteObjectInstance(ObjectInstanceHandle object, byte[] tag, LogicalTime time)
+            throws ObjectInstanceNotKnown, FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().delete(federate, object, tagOf(tag), (HLAfloat64Time) time);
+        return null;
+    }
+
+    public void requestAttributeValueUpdate(ObjectInstanceHandle object, AttributeHandleSet attributes, byte[] tag)
+            throws ObjectInstanceNotKnown, FederateNotExecutionMember, NotConnected {
+        joined().requestUpdate(federate, object, attributes, tagOf(tag));
+    }
+
+    public void requestAttributeValueUpdate(ObjectClassHandle objectClass, AttributeHandleSet attributes, byte[] tag)
+            throws FederateNotExecutionMember, NotConnected {
+        joined().requestUpdate(federate, (LocalHandle) objectClass, attributes, tagOf(tag));
+    }
+
+    public void sendInteraction(InteractionClassHandle interactionClass, ParameterHandleValueMap parameters, byte[] tag)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().sendInteraction(federate, (LocalHandle) interactionClass, parameters, tagOf(tag), null);
+    }
+
+    public MessageRetractionReturn sendInteraction(InteractionClassHandle interactionClass,
+                                                   ParameterHandleValueMap parameters, byte[] tag, LogicalTime time)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().sendInteraction(federate, (LocalHandle) interactionClass, parameters, tagOf(tag), (HLAfloat64Time) time);
+        return null;
+    }
+
+    // time management
+
+    public void enableTimeRegulation(LogicalTimeInterval lookahead)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().enableTimeRegulation(federate, ((HLAfloat64Interval) lookahead).getValue());
+    }
+
+    public void disableTimeRegulation() throws FederateNotExecutionMember, NotConnected {
+        joined().disableTimeRegulation(federate);
+    }
+
+    public void enableTimeConstrained() throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().enableTimeConstrained(federate);
+    }
+
+    public void disableTimeConstrained() throws FederateNotExecutionMember, NotConnected {
+        joined().disableTimeConstrained(federate);
+    }
+
+    public void timeAdvanceRequest(LogicalTime time) throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().requestTimeAdvance(federate, LocalTime.valueOf(time), false);
+    }
+
+    public void timeAdvanceRequestAvailable(LogicalTime time)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        timeAdvanceRequest(time);
+    }
+
+    public void nextMessageRequest(LogicalTime time) throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        joined().requestTimeAdvance(federate, LocalTime.valueOf(time), true);
+    }
+
+    public void nextMessageRequestAvailable(LogicalTime time)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        nextMessageRequest(time);
+    }
+
+    public LogicalTime queryLogicalTime() throws FederateNotExecutionMember, NotConnected {
+        return LocalTimeFactory.INSTANCE.makeTime(joined().queryTime(federate));
+    }
+
+    public void enableAsynchronousDelivery() throws FederateNotExecutionMember, NotConnected {
+        joined();
+    }
+
+    public void disableAsynchronousDelivery() throws FederateNotExecutionMember, NotConnected {
+        joined();
+    }
+
+    // names and handles
+
+    public ObjectClassHandle getObjectClassHandle(String name) throws FederateNotExecutionMember, NotConnected {
+        return joined().objectClass(name);
+    }
+
+    public String getObjectClassName(ObjectClassHandle handle)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        return joined().className((LocalHandle) handle);
+    }
+
+    public AttributeHandle getAttributeHandle(ObjectClassHandle objectClass, String name)
+            throws FederateNotExecutionMember, NotConnected {
+        return joined().attribute((LocalHandle) objectClass, name);
+    }
+
+    public String getAttributeName(ObjectClassHandle objectClass, AttributeHandle handle)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        return joined().memberName((LocalHandle) handle);
+    }
+
+    public InteractionClassHandle getInteractionClassHandle(String name) throws FederateNotExecutionMember, NotConnected {
+        return joined().interactionClass(name);
+    }
+
+    public String getInteractionClassName(InteractionClassHandle handle)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        return joined().className((LocalHandle) handle);
+    }
+
+    public ParameterHandle getParameterHandle(InteractionClassHandle interactionClass, String name)
+            throws FederateNotExecutionMember, NotConnected {
+        return joined().parameter((LocalHandle) interactionClass, name);
+    }
+
+    public String getParameterName(InteractionClassHandle interactionClass, ParameterHandle handle)
+            throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        return joined().memberName((LocalHandle) handle);
+    }
+
+    public ObjectInstanceHandle getObjectInstanceHandle(String name)
+            throws ObjectInstanceNotKnown, FederateNotExecutionMember, NotConnected {
+        return joined().objectHandle(name);
+    }
+
+    public String getObjectInstanceName(ObjectInstanceHandle handle)
+            throws ObjectInstanceNotKnown, FederateNotExecutionMember, NotConnected {
+        return joined().objectName(handle);
+    }
+
+    public ObjectClassHandle getKnownObjectClassHandle(ObjectInstanceHandle handle)
+            throws ObjectInstanceNotKnown, FederateNotExecutionMember, NotConnected {
+        return joined().objectClassOf(handle);
+    }
+
+    public FederateHandle getFederateHandle(String name) throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        LocalFederate named = joined().federate(name);
+        if (named == null) {
+            throw new RTIinternalError("No joined federate named " + name);
+        }
+        return named.handle;
+    }
+
+    public String getFederateName(FederateHandle handle) throws FederateNotExecutionMember, NotConnected, RTIinternalError {
+        LocalFederate named = joined().federate(handle);
+        if (named == null) {
+            throw new RTIinternalError("No joined federate with handle " + handle);
+        }
+        return named.name;
+    }
+
+    // factories
+
+    public AttributeHandleSetFactory getAttributeHandleSetFactory() throws FederateNotExecutionMember, NotConnected {
+        joined();
+        return LocalAttributeHandleSet::new;
+    }
+
+    public AttributeHandleValueMapFactory getAttributeHandleValueMapFactory()
+            throws FederateNotExecutionMember, NotConnected {
+        joined();
+        return capacity -> new LocalAttributeHandleValueMap(capacity);
+    }
+
+    public ParameterHandleValueMapFactory getParameterHandleValueMapFactory()
+            throws FederateNotExecutionMember, NotConnected {
+        joined();
+        return capacity -> new LocalParameterHandleValueMap(capacity);
+    }
+
+    public LogicalTimeFactory getTimeFactory() throws FederateNotExecutionMember, NotConnected {
+        joined();
+        return LocalTimeFactory.INSTANCE;
+    }
+
+    // callbacks
+
+    public boolean evokeCallback(double approximateMinimumTimeInSeconds)
+            throws CallNotAllowedFromWithinCallback, RTIinternalError {
+        return callbackTarget().evoke(approximateMinimumTimeInSeconds);
+    }
+
+    public boolean evokeMultipleCallbacks(double approximateMinimumTimeInSeconds, double approximateMaximumTimeInSeconds)
+            throws CallNotAllowedFromWithinCallback, RTIinternalError {
+        return callbackTarget().evokeMultiple(approximateMinimumTimeInSeconds, approximateMaximumTimeInSeconds);
+    }
+
+    public void enableCallbacks() throws FederateNotExecutionMember, NotConnected {
+        joined();
+    }
+
+    public void disableCallbacks() throws FederateNotExecutionMember, NotConnected {
+        joined();
+    }
+
+    public String getHLAversion() {
+        return "IEEE 1516-2010 (in-memory subset)";
+    }
+
+    private void connected() throws NotConnected {
+        if (ambassador == null) {
+            throw new NotConnected("Not connected to the in-memory RTI");
+        }
+    }
+
+    private LocalFederation joined() throws FederateNotExecutionMember, NotConnected {
+        connected();
+        if (federate == null) {
+            throw new FederateNotExecutionMember("Not joined to a federation execution");
+        }
+        return federation;
+    }
+
+    private LocalFederate callbackTarget() throws RTIinternalError {
+        if (federate == null) {
+            throw new RTIinternalError("Not joined to a federation execution");
+        }
+        return federate;
+    }
+
+    private static byte[] tagOf(byte[] tag) {
+        return tag == null ? NO_TAG : tag;
+    }
+
+    @Override
+    public String toString() {
+        return federate == null ? "in-memory RTIambassador (not joined)" : "in-memory RTIambassador of " + federate;
+    }
+}
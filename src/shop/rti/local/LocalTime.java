@@ -0,0 +1,87 @@
+package shop.rti.local;
+
+import hla.rti1516e.time.HLAfloat64Interval;
+import hla.rti1516e.time.HLAfloat64Time;
+
+final class LocalTime implements HLAfloat64Time {
+
+    private static final long serialVersionUID = 1L;
+
+    static final LocalTime INITIAL = new LocalTime(0.0);
+    static final LocalTime FINAL = new LocalTime(Double.MAX_VALUE);
+
+    private final double value;
+
+    LocalTime(double value) {
+        this.value = value;
+    }
+
+    static double valueOf(Object time) {
+        return ((HLAfloat64Time) time).getValue();
+    }
+
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isInitial() {
+        return value == INITIAL.value;
+    }
+
+    @Override
+    public boolean isFinal() {
+        return value == FINAL.value;
+    }
+
+    @Override
+    public HLAfloat64Time add(HLAfloat64Interval interval) {
+        return new LocalTime(value + interval.getValue());
+    }
+
+    @Override
+    public HLAfloat64Time subtract(HLAfloat64Interval interval) {
+        return new LocalTime(value - interval.getValue());
+    }
+
+    @Override
+    public HLAfloat64Interval distance(HLAfloat64Time time) {
+        return new LocalInterval(Math.abs(value - time.getValue()));
+    }
+
+    @Override
+    public int compareTo(HLAfloat64Time other) {
+        return Double.compare(value, other.getValue());
+    }
+
+    @Override
+    public int encodedLength() {
+        return 8;
+    }
+
+    @Override
+    public void encode(byte[] buffer, int offset) {
+        LocalInterval.encodeDouble(value, buffer, offset);
+    }
+
+    @Override
+    public String getName() {
+        return LocalTimeFactory.NAME;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof HLAfloat64Time && ((HLAfloat64Time) other).getValue() == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
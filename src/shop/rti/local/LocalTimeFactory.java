@@ -0,0 +1,61 @@
+package shop.rti.local;
+
+import hla.rti1516e.time.HLAfloat64Interval;
+import hla.rti1516e.time.HLAfloat64Time;
+import hla.rti1516e.time.HLAfloat64TimeFactory;
+
+final class LocalTimeFactory implements HLAfloat64TimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String NAME = "HLAfloat64Time";
+    static final LocalTimeFactory INSTANCE = new LocalTimeFactory();
+
+    private LocalTimeFactory() {
+    }
+
+    @Override
+    public HLAfloat64Time makeTime(double value) {
+        return value == 0.0 ? LocalTime.INITIAL : new LocalTime(value);
+    }
+
+    @Override
+    public HLAfloat64Interval makeInterval(double value) {
+        return value == 0.0 ? LocalInterval.ZERO : new LocalInterval(value);
+    }
+
+    @Override
+    public HLAfloat64Time decodeTime(byte[] buffer, int offset) {
+        return makeTime(LocalInterval.decodeDouble(buffer, offset));
+    }
+
+    @Override
+    public HLAfloat64Interval decodeInterval(byte[] buffer, int offset) {
+        return makeInterval(LocalInterval.decodeDouble(buffer, offset));
+    }
+
+    @Override
+    public HLAfloat64Time makeInitial() {
+        return LocalTime.INITIAL;
+    }
+
+    @Override
+    public HLAfloat64Time makeFinal() {
+        return LocalTime.FINAL;
+    }
+
+    @Override
+    public HLAfloat64Interval makeZero() {
+        return LocalInterval.ZERO;
+    }
+
+    @Override
+    public HLAfloat64Interval makeEpsilon() {
+        return LocalInterval.EPSILON;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,78 @@
+package shop.rti.local;
+
+import hla.rti1516e.encoding.ByteWrapper;
+import hla.rti1516e.encoding.DecoderException;
+import hla.rti1516e.encoding.EncoderException;
+import hla.rti1516e.encoding.HLAunicodeString;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HLAunicodeString: an HLAinteger32BE character count followed by UTF-16BE characters.
+ */
+final class LocalUnicodeString implements HLAunicodeString {
+
+    private String value;
+
+    LocalUnicodeString(String value) {
+        this.value = value;
+    }
+
+    static byte[] encode(String value) {
+        byte[] chars = value.getBytes(StandardCharsets.UTF_16BE);
+        ByteWrapper wrapper = new ByteWrapper(4 + chars.length);
+        wrapper.putInt(value.length());
+        wrapper.put(chars);
+        return wrapper.array();
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public int getOctetBoundary() {
+        return 4;
+    }
+
+    @Override
+    public int getEncodedLength() {
+        return 4 + 2 * value.length();
+    }
+
+    @Override
+    public void encode(ByteWrapper byteWrapper) throws EncoderException {
+        byteWrapper.put(encode(value));
+    }
+
+    @Override
+    public byte[] toByteArray() throws EncoderException {
+        return encode(value);
+    }
+
+    @Override
+    public void decode(ByteWrapper byteWrapper) throws DecoderException {
+        if (byteWrapper.remaining() < 4) {
+            throw new DecoderException("HLAunicodeString needs a 4 byte length");
+        }
+        int length = byteWrapper.getInt();
+        if (length < 0 || byteWrapper.remaining() < 2 * length) {
+            throw new DecoderException("HLAunicodeString of " + length + " characters does not fit in "
+                    + byteWrapper.remaining() + " bytes");
+        }
+        byte[] chars = new byte[2 * length];
+        byteWrapper.get(chars);
+        value = new String(chars, StandardCharsets.UTF_16BE);
+    }
+
+    @Override
+    public void decode(byte[] bytes) throws DecoderException {
+        decode(new ByteWrapper(bytes));
+    }
+}
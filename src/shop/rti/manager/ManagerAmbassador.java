@@ -3,10 +3,19 @@ package shop.rti.manager;
 import hla.rti1516e.*;
 import hla.rti1516e.exceptions.FederateInternalError;
 import hla.rti1516e.time.HLAfloat64Time;
-import shop.utils.DecoderUtils;
+import shop.fom.CheckoutObject;
+import shop.fom.ClientObject;
+import shop.fom.EndServiceInteraction;
+import shop.fom.QueueObject;
+import shop.fom.ShopFomDispatcher;
+import shop.fom.ShopFomListener;
+import shop.object.Checkout;
+import shop.object.Client;
+import shop.object.Queue;
+import shop.utils.FederationRoster;
 
 @SuppressWarnings("Duplicates")
-public class ManagerAmbassador extends NullFederateAmbassador {
+public class ManagerAmbassador extends NullFederateAmbassador implements ShopFomListener {
     protected boolean running = true;
     protected double federateTime = 0.0;
     protected double federateLookahead = 1.0;
@@ -16,9 +25,13 @@ public class ManagerAmbassador extends NullFederateAmbassador {
     protected boolean isAnnounced = false;
     protected boolean isReadyToRun = false;
     private ManagerFederate federate;
+    private final boolean debug;
+    ShopFomDispatcher dispatcher;
+    FederationRoster roster;
 
-    ManagerAmbassador(ManagerFederate federate) {
+    ManagerAmbassador(ManagerFederate federate, boolean debug) {
         this.federate = federate;
+        this.debug = debug;
     }
 
     private void log(String message) {
@@ -72,14 +85,10 @@ public class ManagerAmbassador extends NullFederateAmbassador {
     public void discoverObjectInstance(ObjectInstanceHandle theObject,
                                        ObjectClassHandle theObjectClass,
                                        String objectName) throws FederateInternalError {
-        this.federate.instanceClassMap.put(theObject, theObjectClass);
-        if (theObjectClass.equals(this.federate.clientObjectHandle)) {
-            this.federate.discoverClient(theObject);
-        } else if (theObjectClass.equals(this.federate.queueObjectHandle)) {
-            this.federate.discoverQueue(theObject);
-        } else if (theObjectClass.equals(this.federate.checkoutObjectHandle)) {
-            this.federate.discoverCheckout(theObject);
+        if (roster.discover(theObject, theObjectClass)) {
+            return;
         }
+        dispatcher.discover(theObject, theObjectClass, objectName);
     }
 
     @Override
@@ -93,14 +102,7 @@ public class ManagerAmbassador extends NullFederateAmbassador {
         // just pass it on to the other method for printing purposes
         // passing null as the time will let the other method know it
         // it from us, not from the RTI
-        reflectAttributeValues(theObject,
-                theAttributes,
-                tag,
-                sentOrder,
-                transport,
-                null,
-                sentOrder,
-                reflectInfo);
+        reflectAttributeValues(theObject, theAttributes, tag, sentOrder, transport, null, sentOrder, reflectInfo);
     }
 
     @Override
@@ -113,109 +115,13 @@ public class ManagerAmbassador extends NullFederateAmbassador {
                                        OrderType receivedOrdering,
                                        SupplementalReflectInfo reflectInfo)
             throws FederateInternalError {
-        StringBuilder builder = new StringBuilder("Reflection for object:");
-        if (federate.instanceClassMap.get(theObject).equals(federate.clientObjectHandle)) {
-            int clientId = 0;
-            int endShoppingTime = 0;
-            boolean isPrivileged = false;
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.clientId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" id:");
-                    int val = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    clientId = val;
-                } else if (attributeHandle.equals(federate.clientEndShoppingTime)) {
-                    builder.append(attributeHandle);
-                    builder.append(" endShoppingTime:");
-                    int val = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    endShoppingTime = val;
-                } else if (attributeHandle.equals(federate.clientIsPrivileged)) {
-                    builder.append(attributeHandle);
-                    builder.append(" isPrivileged:");
-                    boolean val = DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    isPrivileged = val;
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-                builder.append("\n");
-            }
-//                    log(builder.toString());
-            this.federate.updateClient(theObject, clientId, isPrivileged, endShoppingTime);
-        } else if (federate.instanceClassMap.get(theObject).equals(federate.queueObjectHandle)) {
-            int queueId = 0;
-            int queueCurrentSize = 0;
-            int queueMaxSize = 0;
-            builder.append("QUEUE");
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.queueId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.queueCurrentSize)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueCurrentSize:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueCurrentSize = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.queueMaxSize)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueMaxSize:");
-                    builder.append(DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueMaxSize = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-                builder.append("\n");
-            }
-            federate.updateQueue(theObject, queueId, queueMaxSize, queueCurrentSize);
-
-
-        } else if (federate.instanceClassMap.get(theObject).equals(federate.checkoutObjectHandle)) {
-            int checkoutId = 0;
-            int checkoutQueueId = 0;
-            boolean checkoutIsOpened = false;
-            builder.append("CHECKOUT");
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.checkoutId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.checkoutQueueId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" checkoutQueueId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    checkoutQueueId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.checkoutIsOpened)) {
-                    builder.append(attributeHandle);
-                    builder.append(" checkoutIsOpened:");
-                    builder.append(DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    checkoutIsOpened = DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-                builder.append("\n");
-            }
-            federate.updateCheckout(theObject, checkoutId, checkoutIsOpened, checkoutQueueId);
+        if (roster.reflect(theObject, theAttributes)) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for object: handle=" + theObject + ", attributeCount=" + theAttributes.size());
         }
+        dispatcher.reflect(theObject, theAttributes, time);
     }
 
     @Override
@@ -229,14 +135,8 @@ public class ManagerAmbassador extends NullFederateAmbassador {
         // just pass it on to the other method for printing purposes
         // passing null as the time will let the other method know it
         // it from us, not from the RTI
-        this.receiveInteraction(interactionClass,
-                theParameters,
-                tag,
-                sentOrdering,
-                theTransport,
-                null,
-                sentOrdering,
-                receiveInfo);
+        this.receiveInteraction(interactionClass, theParameters, tag, sentOrdering, theTransport, null,
+                sentOrdering, receiveInfo);
     }
 
     @Override
@@ -249,36 +149,106 @@ public class ManagerAmbassador extends NullFederateAmbassador {
                                    OrderType receivedOrdering,
                                    SupplementalReceiveInfo receiveInfo)
             throws FederateInternalError {
-        StringBuilder builder = new StringBuilder("Interaction Received:");
-        if (interactionClass.equals(federate.endServiceInteractionHandle)) {
-            builder.append("endServiceInteractionHandle");
-            int checkoutId = 0;
-            int clientId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.endServiceCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-
-                } else if (parameterHandle.equals(federate.endServiceClientId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" clientId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    clientId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.receiveEndServiceInteraction(checkoutId, clientId);
+        if (debug) {
+            log("Interaction Received: " + interactionClass + " " + receiveInfo);
         }
+        dispatcher.receive(interactionClass, theParameters, time);
+    }
+
+    @Override
+    public void removeObjectInstance(ObjectInstanceHandle theObject,
+                                     byte[] tag,
+                                     OrderType sentOrdering,
+                                     SupplementalRemoveInfo removeInfo)
+            throws FederateInternalError {
+        removeObjectInstance(theObject, tag, sentOrdering, null, sentOrdering, removeInfo);
     }
 
     @Override
     public void removeObjectInstance(ObjectInstanceHandle theObject,
                                      byte[] tag,
                                      OrderType sentOrdering,
+                                     LogicalTime time,
+                                     OrderType receivedOrdering,
                                      SupplementalRemoveInfo removeInfo)
             throws FederateInternalError {
+        dispatcher.remove(theObject, time);
+    }
+
+    @Override
+    public void discoverClient(ObjectInstanceHandle handle, String objectName) {
+        federate.discoverClient(handle);
+    }
+
+    @Override
+    public void discoverQueue(ObjectInstanceHandle handle, String objectName) {
+        federate.discoverQueue(handle);
+    }
+
+    @Override
+    public void discoverCheckout(ObjectInstanceHandle handle, String objectName) {
+        federate.discoverCheckout(handle);
+    }
+
+    @Override
+    public void removeClient(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeClient(handle, time);
     }
 
+    @Override
+    public void removeQueue(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeQueue(handle);
+    }
+
+    @Override
+    public void removeCheckout(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeCheckout(handle);
+    }
+
+    @Override
+    public void reflectClient(ObjectInstanceHandle handle, ClientObject.Values values, LogicalTime time) {
+        Client client = federate.clients.get(handle);
+        if (client == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for client " + handle + ": " + values);
+        }
+        federate.updateClient(handle, values.clientIdOr(client.getClientId()),
+                values.isPrivilegedOr(client.isPrivileged()),
+                values.endShoppingTimeOr(client.getEndShoppingTime()));
+    }
+
+    @Override
+    public void reflectQueue(ObjectInstanceHandle handle, QueueObject.Values values, LogicalTime time) {
+        Queue queue = federate.queues.get(handle);
+        if (queue == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for queue " + handle + ": " + values);
+        }
+        federate.updateQueue(handle, values.queueIdOr(queue.getQueueId()),
+                values.maxSizeOr(queue.getMaxSize()),
+                values.currentSizeOr(queue.getCurrentSize()));
+    }
+
+    @Override
+    public void reflectCheckout(ObjectInstanceHandle handle, CheckoutObject.Values values, LogicalTime time) {
+        Checkout checkout = federate.checkouts.get(handle);
+        if (checkout == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for checkout " + handle + ": " + values);
+        }
+        federate.updateCheckout(handle, values.checkoutIdOr(checkout.getCheckoutId()),
+                values.isOpenedOr(checkout.isOpen()),
+                values.queueIdOr(checkout.getQueueId()));
+    }
+
+    @Override
+    public void receiveEndService(EndServiceInteraction.Values values, LogicalTime time) {
+        federate.receiveEndServiceInteraction(values.checkoutId, values.clientId);
+    }
 }
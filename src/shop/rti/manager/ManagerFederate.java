@@ -6,13 +6,21 @@ import hla.rti1516e.exceptions.*;
 import hla.rti1516e.time.HLAfloat64Interval;
 import hla.rti1516e.time.HLAfloat64Time;
 import hla.rti1516e.time.HLAfloat64TimeFactory;
+import shop.fom.ShopFom;
+import shop.fom.ShopFomDispatcher;
 import shop.object.Checkout;
 import shop.object.Client;
+import shop.object.ObjectRegistry;
 import shop.object.Queue;
+import shop.rti.ShopFederate;
+import shop.utils.CallbackWaiter;
+import shop.utils.FederateConfig;
+import shop.utils.FederationRoster;
+import shop.utils.Pacer;
+import shop.utils.RtiBackend;
+import shop.utils.TickMetrics;
+import shop.utils.TimeAdvance;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
@@ -20,77 +28,94 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("Duplicates")
-public class ManagerFederate {
+public class ManagerFederate implements ShopFederate {
 
     public static final String READY_TO_RUN = "ReadyToRun";
     protected EncoderFactory encoderFactory;
-    protected List<Client> clients = new ArrayList<>();
-    protected Map<ObjectInstanceHandle, ObjectClassHandle> instanceClassMap = new HashMap<>();
-    List<Checkout> checkouts = new ArrayList<>();
-    List<Queue> queues = new ArrayList<>();
+    ShopFom fom;
+    protected ObjectRegistry<Client> clients = ObjectRegistry.forClients();
+    ObjectRegistry<Checkout> checkouts = ObjectRegistry.forCheckouts();
+    ObjectRegistry<Queue> queues = ObjectRegistry.forQueues();
     ObjectClassHandle clientObjectHandle;
-    AttributeHandle clientIsPrivileged;
-    AttributeHandle clientEndShoppingTime;
-    AttributeHandle clientId;
-    InteractionClassHandle openCheckoutInteractionHandle;
-    ParameterHandle openCheckoutCheckoutId;
-    InteractionClassHandle closeCheckoutInteractionHandle;
-    ParameterHandle closeCheckoutCheckoutId;
     ObjectClassHandle checkoutObjectHandle;
-    AttributeHandle checkoutIsOpened;
-    AttributeHandle checkoutQueueId;
-    AttributeHandle checkoutId;
     ObjectClassHandle queueObjectHandle;
-    AttributeHandle queueMaxSize;
-    AttributeHandle queueCurrentSize;
-    AttributeHandle queueId;
-    InteractionClassHandle endServiceInteractionHandle;
-    ParameterHandle endServiceCheckoutId;
-    ParameterHandle endServiceClientId;
     List<Queue> queuesToClose = new ArrayList<>();
+    AttributeHandleSet clientAttributes;
+    AttributeHandleSet checkoutAttributes;
+    AttributeHandleSet queueAttributes;
     private RTIambassador rtiamb;
     private ManagerAmbassador fedamb;
     private HLAfloat64TimeFactory timeFactory;
+    private final FederateConfig config;
+    private final TimeAdvance timeAdvance;
+    private final CallbackWaiter callbackWaiter;
+    private final TickMetrics tickMetrics;
+    private final FederationRoster roster;
+    private final boolean debug;
+    private Runnable firstGrantListener = () -> {
+    };
+    private final AtomicInteger checkoutIds = new AtomicInteger(0);
     private AtomicInteger servicedClientsNo = new AtomicInteger(0);
+    private final int initialCheckouts;
 
-    public static void main(String[] args) {
-        String federateName = "manager";
-        if (args.length != 0) {
-            federateName = args[0];
-        }
+    public ManagerFederate(FederateConfig config) {
+        this.config = config;
+        this.initialCheckouts = config.getInt("load.checkouts", 1);
+        this.timeAdvance = TimeAdvance.fromConfig(config);
+        this.callbackWaiter = CallbackWaiter.fromConfig(config);
+        this.tickMetrics = TickMetrics.fromConfig(config);
+        this.roster = FederationRoster.fromConfig(config);
+        this.debug = config.getBoolean("log.debug", false);
+    }
 
+    public static void main(String[] args) {
+        FederateConfig config = FederateConfig.load(args);
+        String federateName = config.getFederateName("manager");
         try {
-            new ManagerFederate().runFederate(federateName);
+            new ManagerFederate(config).runFederate(federateName);
         } catch (Exception rtie) {
             rtie.printStackTrace();
         }
     }
 
-    private void log(String message) {
-        System.out.println("Manager   : " + message);
+    @Override
+    public void setFirstGrantListener(Runnable listener) {
+        this.firstGrantListener = listener;
     }
 
-    private void waitForUser() {
-        log(" >>>>>>>>>> Press Enter to Continue <<<<<<<<<<");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        try {
-            reader.readLine();
-        } catch (Exception e) {
-            log("Error while waiting for user input: " + e.getMessage());
-            e.printStackTrace();
-        }
+    @Override
+    public CallbackWaiter getCallbackWaiter() {
+        return callbackWaiter;
+    }
+
+    @Override
+    public TickMetrics getTickMetrics() {
+        return tickMetrics;
     }
 
+    @Override
+    public ShopFomDispatcher getDispatcher() {
+        return fedamb == null ? null : fedamb.dispatcher;
+    }
+
+    private void log(String message) {
+        System.out.println("Manager   : " + message);
+    }
+
+    @Override
     public void runFederate(String federateName) throws Exception {
+        long startNanos = System.nanoTime();
         log("Creating RTIambassador");
-        rtiamb = RtiFactoryFactory.getRtiFactory().getRtiAmbassador();
-        encoderFactory = RtiFactoryFactory.getRtiFactory().getEncoderFactory();
+        RtiFactory rtiFactory = RtiBackend.fromConfig(config);
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
         log("Connecting...");
-        fedamb = new ManagerAmbassador(this);
+        fedamb = new ManagerAmbassador(this, debug);
+        fedamb.roster = roster;
         rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
         log("Creating Federation...");
         try {
-            URL[] modules = new URL[]{(new File("FOM.xml")).toURI().toURL()};
+            URL[] modules = config.getFomModules();
             rtiamb.createFederationExecution("ExampleFederation", modules);
             log("Created Federation");
         } catch (FederationExecutionAlreadyExists exists) {
@@ -104,15 +129,11 @@ public class ManagerFederate {
         log("Joined Federation as " + federateName);
         this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
         rtiamb.registerFederationSynchronizationPoint(READY_TO_RUN, null);
-        while (fedamb.isAnnounced == false) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
-        waitForUser();
+        callbackWaiter.await(rtiamb, () -> fedamb.isAnnounced);
+        roster.await(rtiamb, encoderFactory);
         rtiamb.synchronizationPointAchieved(READY_TO_RUN);
         log("Achieved sync point: " + READY_TO_RUN + ", waiting for federation...");
-        while (fedamb.isReadyToRun == false) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isReadyToRun);
         enableTimePolicy();
         log("Time Policy Enabled");
         publishAndSubscribe();
@@ -120,16 +141,35 @@ public class ManagerFederate {
 
         System.out.println("***************************************************" +
                 "***********************************************");
-        while (fedamb.running) {
-            advanceTime(1.0);
+        tickMetrics.start(federateName, fom, fedamb.dispatcher);
+        Pacer pacer = Pacer.fromConfig(config);
+        log("Pacing: " + pacer + ", time advance: " + timeAdvance + ", startup: " + roster);
+        long reportEvery = Math.max(1, config.getLong("callbacks.report-every", 100));
+        while (fedamb.running && !timeAdvance.isFinished(fedamb.federateTime)) {
+            double nextTime = timeAdvance.nextRequestTime(fedamb.federateTime, nextEventTime());
+            pacer.pace(fedamb.federateTime, nextTime);
+            advanceTime(nextTime);
+            tickMetrics.granted(callbackWaiter.getLastGrantWaitNanos());
+            if (callbackWaiter.getGrants() == 1) {
+                log("First time advance granted " + (System.nanoTime() - startNanos) / 1_000_000 + " ms after startup");
+                firstGrantListener.run();
+            }
             System.out.println();
-            log("Time Advanced to " + fedamb.federateTime);
+            log("Time Advanced to " + fedamb.federateTime + " (grant wait " + callbackWaiter.getLastGrantWaitMillis() + " ms)");
+            if (callbackWaiter.getGrants() % reportEvery == 0) {
+                log("Time advance summary: " + callbackWaiter.report());
+                log("Live objects: " + getLiveObjects());
+            }
             doThings();
+            tickMetrics.computed();
         }
         cleanUpAfterSimulation();
     }
 
     private void cleanUpAfterSimulation() throws InvalidResignAction, OwnershipAcquisitionPending, FederateOwnsAttributes, FederateNotExecutionMember, NotConnected, CallNotAllowedFromWithinCallback, RTIinternalError {
+        log("Time advance summary: " + callbackWaiter.report());
+        log("Tick summary: " + tickMetrics.getSummary());
+        tickMetrics.stop();
         rtiamb.resignFederationExecution(ResignAction.DELETE_OBJECTS);
         log("Resigned from Federation");
         try {
@@ -142,89 +182,92 @@ public class ManagerFederate {
         }
     }
 
+    /**
+     * Joins {@code federationName} without the start-up handshake or a time policy, so that
+     * benchmarks can feed callbacks to the returned ambassador and run the federate's logic directly.
+     */
+    ManagerAmbassador attach(RtiFactory rtiFactory, String federationName, String federateName) throws RTIexception {
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
+        fedamb = new ManagerAmbassador(this, false);
+        fedamb.roster = roster;
+        rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
+        rtiamb.joinFederationExecution(federateName, federationName);
+        this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
+        publishAndSubscribe();
+        return fedamb;
+    }
+
     private void enableTimePolicy() throws Exception {
         HLAfloat64Interval lookahead = timeFactory.makeInterval(fedamb.federateLookahead);
         this.rtiamb.enableTimeRegulation(lookahead);
-        while (!fedamb.isRegulating) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isRegulating);
         this.rtiamb.enableTimeConstrained();
-        while (!fedamb.isConstrained) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isConstrained);
     }
 
     private void publishAndSubscribe() throws RTIexception {
+        fom = new ShopFom(rtiamb);
+        fedamb.dispatcher = new ShopFomDispatcher(fom, fedamb);
+
         // discover object klient
-        clientObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Client");
-        clientIsPrivileged = rtiamb.getAttributeHandle(clientObjectHandle, "isPrivileged");
-        clientEndShoppingTime = rtiamb.getAttributeHandle(clientObjectHandle, "endShoppingTime");
-        clientId = rtiamb.getAttributeHandle(clientObjectHandle, "clientId");
-        AttributeHandleSet clientAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        clientAttributes.add(clientIsPrivileged);
-        clientAttributes.add(clientEndShoppingTime);
-        clientAttributes.add(clientId);
+        clientObjectHandle = fom.client.handle;
+        clientAttributes = fom.client.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(clientObjectHandle, clientAttributes);
 
         // otwarcie kasy
-        openCheckoutInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.OpenCheckout");
-        openCheckoutCheckoutId = rtiamb.getParameterHandle(openCheckoutInteractionHandle, "checkoutId");
-        rtiamb.publishInteractionClass(openCheckoutInteractionHandle);
+        fom.openCheckout.publish(rtiamb);
 
         // zamkniecie kasy
-        closeCheckoutInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.CloseCheckout");
-        closeCheckoutCheckoutId = rtiamb.getParameterHandle(closeCheckoutInteractionHandle, "checkoutId");
-        rtiamb.publishInteractionClass(closeCheckoutInteractionHandle);
+        fom.closeCheckout.publish(rtiamb);
 
         // discover object kasa
-        checkoutObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Checkout");
-        checkoutIsOpened = rtiamb.getAttributeHandle(checkoutObjectHandle, "isOpened");
-        checkoutQueueId = rtiamb.getAttributeHandle(checkoutObjectHandle, "queueId");
-        checkoutId = rtiamb.getAttributeHandle(checkoutObjectHandle, "checkoutId");
-        AttributeHandleSet checkoutAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        checkoutAttributes.add(checkoutIsOpened);
-        checkoutAttributes.add(checkoutId);
-        checkoutAttributes.add(checkoutQueueId);
+        checkoutObjectHandle = fom.checkout.handle;
+        checkoutAttributes = fom.checkout.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(checkoutObjectHandle, checkoutAttributes);
 
         // discover object kolejka
-        queueObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Queue");
-        queueMaxSize = rtiamb.getAttributeHandle(queueObjectHandle, "maxSize");
-        queueCurrentSize = rtiamb.getAttributeHandle(queueObjectHandle, "currentSize");
-        queueId = rtiamb.getAttributeHandle(queueObjectHandle, "queueId");
-        AttributeHandleSet queueAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        queueAttributes.add(queueMaxSize);
-        queueAttributes.add(queueCurrentSize);
-        queueAttributes.add(queueId);
+        queueObjectHandle = fom.queue.handle;
+        queueAttributes = fom.queue.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(queueObjectHandle, queueAttributes);
 
         // zakoczenie obslugi
-        endServiceInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.EndService");
-        endServiceCheckoutId = rtiamb.getParameterHandle(endServiceInteractionHandle, "checkoutId");
-        endServiceClientId = rtiamb.getParameterHandle(endServiceInteractionHandle, "clientId");
-        rtiamb.subscribeInteractionClass(endServiceInteractionHandle);
+        fom.endService.subscribe(rtiamb);
     }
 
-    private void advanceTime(double timestep) throws RTIexception {
+    private void advanceTime(double requestedTime) throws RTIexception {
         fedamb.isAdvancing = true;
-        HLAfloat64Time time = timeFactory.makeTime(fedamb.federateTime + timestep);
-        rtiamb.timeAdvanceRequest(time);
-        while (fedamb.isAdvancing) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        HLAfloat64Time time = timeFactory.makeTime(requestedTime);
+        timeAdvance.request(rtiamb, time);
+        callbackWaiter.awaitGrant(rtiamb, () -> !fedamb.isAdvancing);
     }
 
-    private void doThings() throws RTIexception {
+    /**
+     * This federate only reacts to reflections and interactions, so in event-driven
+     * mode it waits for the next message.
+     */
+    private double nextEventTime() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    void doThings() throws RTIexception {
         queues.forEach(System.out::println);
         checkouts.forEach(System.out::println);
         HLAfloat64Time time = timeFactory.makeTime(fedamb.federateTime + fedamb.federateLookahead);
+        requestDiscoveredAttributeValues();
+        // scripted load: checkout 0 is opened by the checkout federate, the rest on the first tick
+        while (checkoutIds.get() < initialCheckouts - 1) {
+            sendOpenCheckoutInteraction(checkoutIds.incrementAndGet(), time);
+            log("SEND INTERACTION: OPEN CHECKOUT (initial) (" + checkoutIds.get() + ")");
+        }
         boolean hasBeenOpen = false;
         int queuesMaxSizeSum = queues.stream().mapToInt(Queue::getMaxSize).sum();
-        if (queuesMaxSizeSum < (clients.size() - servicedClientsNo.get())) {
+        int clientsInShop = clients.size() - servicedClientsNo.get();
+        if (queuesMaxSizeSum < clientsInShop) {
             Optional<Checkout> closedCheckout = checkouts.stream().filter(checkout -> !checkout.isOpen()).findFirst();
             if (!closedCheckout.isPresent()) {
-                sendOpenCheckoutInteraction(Checkout.count.incrementAndGet(), time);
-                log("SEND INTERACTION: OPEN CHECKOUT (new checkout) (" + Checkout.count.get() + ")");
+                sendOpenCheckoutInteraction(checkoutIds.incrementAndGet(), time);
+                log("SEND INTERACTION: OPEN CHECKOUT (new checkout) (" + checkoutIds.get() + ")");
                 hasBeenOpen = true;
             } else {
                 closedCheckout.get().setOpen(true);
@@ -252,19 +295,25 @@ public class ManagerFederate {
         }
     }
 
+    private void requestDiscoveredAttributeValues() throws RTIexception {
+        for (ObjectInstanceHandle handle : clients.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, clientAttributes, generateTag());
+        }
+        for (ObjectInstanceHandle handle : checkouts.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, checkoutAttributes, generateTag());
+        }
+        for (ObjectInstanceHandle handle : queues.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, queueAttributes, generateTag());
+        }
+    }
+
     private void sendCloseCheckoutInteraction(int checkoutId, HLAfloat64Time time) throws RTIexception {
         log("SEND INTERACTION: CLOSE CHECKOUT (" + checkoutId + ")");
-        ParameterHandleValueMap parameters = rtiamb.getParameterHandleValueMapFactory().create(1);
-        ParameterHandle idHandle = rtiamb.getParameterHandle(closeCheckoutInteractionHandle, "checkoutId");
-        parameters.put(idHandle, encoderFactory.createHLAinteger32BE(checkoutId).toByteArray());
-        rtiamb.sendInteraction(closeCheckoutInteractionHandle, parameters, generateTag(), time);
+        fom.closeCheckout.send(rtiamb, checkoutId, generateTag(), time);
     }
 
     private void sendOpenCheckoutInteraction(int checkoutId, HLAfloat64Time time) throws RTIexception {
-        ParameterHandleValueMap parameters = rtiamb.getParameterHandleValueMapFactory().create(1);
-        ParameterHandle idHandle = rtiamb.getParameterHandle(openCheckoutInteractionHandle, "checkoutId");
-        parameters.put(idHandle, encoderFactory.createHLAinteger32BE(checkoutId).toByteArray());
-        rtiamb.sendInteraction(openCheckoutInteractionHandle, parameters, generateTag(), time);
+        fom.openCheckout.send(rtiamb, checkoutId, generateTag(), time);
     }
 
     private byte[] generateTag() {
@@ -272,48 +321,71 @@ public class ManagerFederate {
     }
 
     void discoverClient(ObjectInstanceHandle clientHandle) {
-        Client client = new Client(clientHandle);
-        clients.add(client);
-        log("ARRIVED CLIENT");
-//        log("ARRIVED CLIENT size: " + clients.size() +
-//                " minus " + servicedClientsNo + " = " + (clients.size() - servicedClientsNo));
+        clients.discover(clientHandle);
+        if (debug) {
+            log("ARRIVED CLIENT");
+        }
     }
 
     void discoverQueue(ObjectInstanceHandle queueHandle) {
-        queues.add(new Queue(queueHandle));
+        queues.discover(queueHandle);
     }
 
     void discoverCheckout(ObjectInstanceHandle queueHandle) {
-        checkouts.add(new Checkout(queueHandle));
+        checkouts.discover(queueHandle);
+    }
+
+    /**
+     * A client object is deleted with a timestamp some ticks after its end of service, so the
+     * serviced count only covers clients that are still replicated. A removal without a time is
+     * the client federate resigning and says nothing about service.
+     */
+    void removeClient(ObjectInstanceHandle handle, LogicalTime time) {
+        if (clients.remove(handle) != null && time != null) {
+            servicedClientsNo.decrementAndGet();
+        }
+    }
+
+    void removeQueue(ObjectInstanceHandle handle) {
+        queues.remove(handle);
+    }
+
+    void removeCheckout(ObjectInstanceHandle handle) {
+        checkouts.remove(handle);
+    }
+
+    @Override
+    public int getLiveObjects() {
+        return clients.size() + queues.size() + checkouts.size();
     }
 
     void updateClient(ObjectInstanceHandle handle, int clientId, boolean isPrivileged, int endShoppingTime) {
-        for (Client client : clients) {
-            if (client.getRtiHandler().equals(handle)) {
-                client.setClientId(clientId);
-                client.setPrivileged(isPrivileged);
-                client.setEndShoppingTime(endShoppingTime);
-            }
+        Client client = clients.get(handle);
+        if (client != null) {
+            client.setClientId(clientId);
+            client.setPrivileged(isPrivileged);
+            client.setEndShoppingTime(endShoppingTime);
+            clients.index(client);
         }
     }
 
     void updateQueue(ObjectInstanceHandle handle, int queueId, int queueMaxSize, int queueCurrentSize) {
-        for (Queue queue : queues) {
-            if (queue.getRtiHandler().equals(handle)) {
-                queue.setQueueId(queueId);
-                queue.setMaxSize(queueMaxSize);
-                queue.setCurrentSize(queueCurrentSize);
-            }
+        Queue queue = queues.get(handle);
+        if (queue != null) {
+            queue.setQueueId(queueId);
+            queue.setMaxSize(queueMaxSize);
+            queue.setCurrentSize(queueCurrentSize);
+            queues.index(queue);
         }
     }
 
     void updateCheckout(ObjectInstanceHandle handle, int checkoutId, boolean open, int queueId) {
-        for (Checkout queue : checkouts) {
-            if (queue.getRtiHandler().equals(handle)) {
-                queue.setQueueId(queueId);
-                queue.setOpen(open);
-                queue.setCheckoutId(checkoutId);
-            }
+        Checkout checkout = checkouts.get(handle);
+        if (checkout != null) {
+            checkout.setQueueId(queueId);
+            checkout.setOpen(open);
+            checkout.setCheckoutId(checkoutId);
+            checkouts.index(checkout);
         }
     }
 
@@ -3,12 +3,19 @@ package shop.rti.queue;
 import hla.rti1516e.*;
 import hla.rti1516e.exceptions.FederateInternalError;
 import hla.rti1516e.time.HLAfloat64Time;
-import shop.utils.DecoderUtils;
+import shop.fom.ChooseQueueInteraction;
+import shop.fom.ClientObject;
+import shop.fom.CloseCheckoutInteraction;
+import shop.fom.EndServiceInteraction;
+import shop.fom.OpenCheckoutInteraction;
+import shop.fom.ShopFomDispatcher;
+import shop.fom.ShopFomListener;
+import shop.object.Client;
+import shop.utils.FederationRoster;
 
-import java.util.Arrays;
 
 @SuppressWarnings("Duplicates")
-public class QueueAmbassador extends NullFederateAmbassador {
+public class QueueAmbassador extends NullFederateAmbassador implements ShopFomListener {
 
     protected boolean running = true;
     protected double federateTime = 0.0;
@@ -19,10 +26,14 @@ public class QueueAmbassador extends NullFederateAmbassador {
     protected boolean isAnnounced = false;
     protected boolean isReadyToRun = false;
     private QueueFederate federate;
+    private final boolean debug;
+    ShopFomDispatcher dispatcher;
+    FederationRoster roster;
 
 
-    public QueueAmbassador(QueueFederate federate) {
+    public QueueAmbassador(QueueFederate federate, boolean debug) {
         this.federate = federate;
+        this.debug = debug;
     }
 
     private void log(String message) {
@@ -76,10 +87,10 @@ public class QueueAmbassador extends NullFederateAmbassador {
     public void discoverObjectInstance(ObjectInstanceHandle theObject,
                                        ObjectClassHandle theObjectClass,
                                        String objectName) throws FederateInternalError {
-        this.federate.instanceClassMap.put(theObject, theObjectClass);
-        if (theObjectClass.equals(this.federate.clientObjectHandle)) {
-            this.federate.discoverClient(theObject);
+        if (roster.discover(theObject, theObjectClass)) {
+            return;
         }
+        dispatcher.discover(theObject, theObjectClass, objectName);
     }
 
     @Override
@@ -90,165 +101,135 @@ public class QueueAmbassador extends NullFederateAmbassador {
                                        TransportationTypeHandle transport,
                                        SupplementalReflectInfo reflectInfo)
             throws FederateInternalError {
-        reflectAttributeValues(theObject,
-                theAttributes,
-                tag,
-                sentOrder,
-                transport,
-                null,
-                sentOrder,
-                reflectInfo);
+        // just pass it on to the other method for printing purposes
+        // passing null as the time will let the other method know it
+        // it from us, not from the RTI
+        reflectAttributeValues(theObject, theAttributes, tag, sentOrder, transport, null, sentOrder, reflectInfo);
     }
 
     @Override
-    public void reflectAttributeValues(ObjectInstanceHandle theObject, AttributeHandleValueMap theAttributes,
-                                       byte[] tag, OrderType sentOrdering, TransportationTypeHandle theTransport,
-                                       LogicalTime time, OrderType receivedOrdering,
+    public void reflectAttributeValues(ObjectInstanceHandle theObject,
+                                       AttributeHandleValueMap theAttributes,
+                                       byte[] tag,
+                                       OrderType sentOrdering,
+                                       TransportationTypeHandle theTransport,
+                                       LogicalTime time,
+                                       OrderType receivedOrdering,
                                        SupplementalReflectInfo reflectInfo)
             throws FederateInternalError {
-        if (federate.instanceClassMap.get(theObject).equals(federate.clientObjectHandle)) {
-            int clientId = 0;
-            int endShoppingTime = 0;
-            boolean isPrivileged = false;
-            StringBuilder builder = new StringBuilder("Reflection for object:");
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.clientId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" id:");
-                    int val = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    clientId = val;
-                } else if (attributeHandle.equals(federate.clientEndShoppingTime)) {
-                    builder.append(attributeHandle);
-                    builder.append(" endShoppingTime:");
-                    int val = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    endShoppingTime = val;
-                } else if (attributeHandle.equals(federate.clientIsPrivileged)) {
-                    builder.append(attributeHandle);
-                    builder.append(" isPrivileged:");
-                    boolean val = DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    isPrivileged = val;
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-
-                builder.append("\n");
-            }
-            this.federate.updateClient(theObject, clientId, isPrivileged, endShoppingTime);
+        if (roster.reflect(theObject, theAttributes)) {
+            return;
         }
+        if (debug) {
+            log("Reflection for object: handle=" + theObject + ", attributeCount=" + theAttributes.size());
+        }
+        dispatcher.reflect(theObject, theAttributes, time);
     }
 
     @Override
-    public void receiveInteraction(InteractionClassHandle interactionClass, ParameterHandleValueMap theParameters,
-                                   byte[] tag, OrderType sentOrdering, TransportationTypeHandle theTransport,
+    public void receiveInteraction(InteractionClassHandle interactionClass,
+                                   ParameterHandleValueMap theParameters,
+                                   byte[] tag,
+                                   OrderType sentOrdering,
+                                   TransportationTypeHandle theTransport,
                                    SupplementalReceiveInfo receiveInfo)
             throws FederateInternalError {
-        this.receiveInteraction(interactionClass,
-                theParameters,
-                tag,
-                sentOrdering,
-                theTransport,
-                null,
-                sentOrdering,
-                receiveInfo);
+        // just pass it on to the other method for printing purposes
+        // passing null as the time will let the other method know it
+        // it from us, not from the RTI
+        this.receiveInteraction(interactionClass, theParameters, tag, sentOrdering, theTransport, null,
+                sentOrdering, receiveInfo);
     }
 
     @Override
-    public void receiveInteraction(InteractionClassHandle interactionClass, ParameterHandleValueMap theParameters,
-                                   byte[] tag, OrderType sentOrdering, TransportationTypeHandle theTransport,
-                                   LogicalTime time, OrderType receivedOrdering, SupplementalReceiveInfo receiveInfo)
+    public void receiveInteraction(InteractionClassHandle interactionClass,
+                                   ParameterHandleValueMap theParameters,
+                                   byte[] tag,
+                                   OrderType sentOrdering,
+                                   TransportationTypeHandle theTransport,
+                                   LogicalTime time,
+                                   OrderType receivedOrdering,
+                                   SupplementalReceiveInfo receiveInfo)
             throws FederateInternalError {
-        StringBuilder builder = new StringBuilder("Interaction Received:");
-        builder.append(" *interactionClass* ").append(interactionClass);
-        builder.append(" *theParameters* ").append(theParameters);
-        builder.append(" *tag* ").append(Arrays.toString(tag));
-        builder.append(" *sentOrdering* ").append(sentOrdering);
-        builder.append(" *theTransport* ").append(theTransport);
-        builder.append(" *time* ").append(time);
-        builder.append(" *receivedOrdering* ").append(receivedOrdering);
-        builder.append(" *receiveInfo* ").append(receiveInfo);
-        if (interactionClass.equals(federate.openCheckoutInteractionHandle)) {
-            builder.append("openCheckoutInteractionHandle");
-            int checkoutId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.openCheckoutCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.receiveOpenCheckoutInteraction(checkoutId);
-        } else if (interactionClass.equals(federate.chooseQueueInteractionHandle)) {
-            builder.append("chooseQueueInteractionHandle");
-            int queueId = 0;
-            int clientId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.chooseQueueClientId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" clientId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    clientId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                } else if (parameterHandle.equals(federate.chooseQueueCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    queueId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.addNewClientToQueue(queueId, clientId, time);
-        } else if (interactionClass.equals(federate.closeCheckoutInteractionHandle)) {
-            builder.append("closeCheckoutInteractionHandle");
-            int checkoutId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.closeCheckoutCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.closeCheckout(checkoutId);
-        } else if (interactionClass.equals(federate.endServiceInteractionHandle)) {
-            builder.append("endServiceInteractionHandle");
-            int checkoutId = 0;
-            int clientId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.endServiceCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-
-                } else if (parameterHandle.equals(federate.endServiceClientId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" clientId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    clientId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.removeClientFromQueue(checkoutId, clientId);
-        } else {
+        if (debug) {
+            log("Interaction Received: " + interactionClass + " " + receiveInfo);
+        }
+        if (!dispatcher.receive(interactionClass, theParameters, time)) {
             log(" UNDEFINED ");
         }
-//        log(builder.toString());
     }
 
     @Override
-    public void removeObjectInstance(ObjectInstanceHandle theObject, byte[] tag, OrderType sentOrdering,
+    public void removeObjectInstance(ObjectInstanceHandle theObject,
+                                     byte[] tag,
+                                     OrderType sentOrdering,
                                      SupplementalRemoveInfo removeInfo)
             throws FederateInternalError {
-        log("Object Removed: handle=" + theObject);
+        removeObjectInstance(theObject, tag, sentOrdering, null, sentOrdering, removeInfo);
+    }
+
+    @Override
+    public void removeObjectInstance(ObjectInstanceHandle theObject,
+                                     byte[] tag,
+                                     OrderType sentOrdering,
+                                     LogicalTime time,
+                                     OrderType receivedOrdering,
+                                     SupplementalRemoveInfo removeInfo)
+            throws FederateInternalError {
+        if (debug) {
+            log("Object Removed: handle=" + theObject);
+        }
+        dispatcher.remove(theObject, time);
+    }
+
+    @Override
+    public void provideAttributeValueUpdate(ObjectInstanceHandle theObject,
+                                            AttributeHandleSet theAttributes,
+                                            byte[] userSuppliedTag) throws FederateInternalError {
+        this.federate.provideQueueAttributeValues(theObject);
+    }
+
+    @Override
+    public void discoverClient(ObjectInstanceHandle handle, String objectName) {
+        federate.discoverClient(handle);
+    }
+
+    @Override
+    public void removeClient(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeClient(handle);
+    }
+
+    @Override
+    public void reflectClient(ObjectInstanceHandle handle, ClientObject.Values values, LogicalTime time) {
+        Client client = federate.clients.get(handle);
+        if (client == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for client " + handle + ": " + values);
+        }
+        federate.updateClient(handle, values.clientIdOr(client.getClientId()),
+                values.isPrivilegedOr(client.isPrivileged()),
+                values.endShoppingTimeOr(client.getEndShoppingTime()));
+    }
+
+    @Override
+    public void receiveOpenCheckout(OpenCheckoutInteraction.Values values, LogicalTime time) {
+        federate.receiveOpenCheckoutInteraction(values.checkoutId);
+    }
+
+    @Override
+    public void receiveChooseQueue(ChooseQueueInteraction.Values values, LogicalTime time) {
+        federate.addNewClientToQueue(values.checkoutId, values.clientId, time);
+    }
+
+    @Override
+    public void receiveCloseCheckout(CloseCheckoutInteraction.Values values, LogicalTime time) {
+        federate.closeCheckout(values.checkoutId);
+    }
+
+    @Override
+    public void receiveEndService(EndServiceInteraction.Values values, LogicalTime time) {
+        federate.removeClientFromQueue(values.checkoutId, values.clientId);
     }
 }
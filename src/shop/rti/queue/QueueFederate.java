@@ -2,95 +2,116 @@ package shop.rti.queue;
 
 import hla.rti1516e.*;
 import hla.rti1516e.encoding.EncoderFactory;
+import hla.rti1516e.exceptions.FederatesCurrentlyJoined;
 import hla.rti1516e.exceptions.FederationExecutionAlreadyExists;
+import hla.rti1516e.exceptions.FederationExecutionDoesNotExist;
 import hla.rti1516e.exceptions.RTIexception;
 import hla.rti1516e.time.HLAfloat64Interval;
 import hla.rti1516e.time.HLAfloat64Time;
 import hla.rti1516e.time.HLAfloat64TimeFactory;
+import shop.fom.ShopFom;
+import shop.fom.ShopFomDispatcher;
 import shop.object.Client;
+import shop.object.ObjectRegistry;
 import shop.object.Queue;
-import shop.utils.DecoderUtils;
+import shop.rti.ShopFederate;
+import shop.utils.CallbackWaiter;
+import shop.utils.FederateConfig;
+import shop.utils.FederationRoster;
+import shop.utils.Pacer;
+import shop.utils.RtiBackend;
+import shop.utils.TickMetrics;
+import shop.utils.TimeAdvance;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("Duplicates")
-public class QueueFederate {
+public class QueueFederate implements ShopFederate {
 
     public static final String READY_TO_RUN = "ReadyToRun";
     protected EncoderFactory encoderFactory;
-    InteractionClassHandle openCheckoutInteractionHandle;
-    ParameterHandle openCheckoutCheckoutId;
-    InteractionClassHandle chooseQueueInteractionHandle;
-    ParameterHandle chooseQueueCheckoutId;
-    ParameterHandle chooseQueueClientId;
-    InteractionClassHandle endServiceInteractionHandle;
-    ParameterHandle endServiceCheckoutId;
-    ParameterHandle endServiceClientId;
-    ParameterHandle closeCheckoutCheckoutId;
-    InteractionClassHandle closeCheckoutInteractionHandle;
-    List<Queue> queues = new ArrayList<>();
+    ShopFom fom;
+    ObjectRegistry<Queue> queues = ObjectRegistry.forQueues();
     List<Queue> queuesToMake = new ArrayList<>();
-    List<Client> clients = new ArrayList<>();
+    ObjectRegistry<Client> clients = ObjectRegistry.forClients();
     List<Client> clientsToDelete = new ArrayList<>();
-    Map<ObjectInstanceHandle, ObjectClassHandle> instanceClassMap = new HashMap<>();
+    // client id -> id of the queue the client stands in
+    private final Map<Integer, Integer> queueOfClient = new HashMap<>();
     ObjectClassHandle queueObjectHandle;
-    AttributeHandle queueMaxSize;
-    AttributeHandle queueCurrentSize;
-    AttributeHandle queueId;
     ObjectClassHandle clientObjectHandle;
-    AttributeHandle clientIsPrivileged;
-    AttributeHandle clientEndShoppingTime;
-    AttributeHandle clientId;
-    InteractionClassHandle clientExitInteractionHandle;
-    ParameterHandle clientExitClientId;
-    ParameterHandle clientExitCheckoutId;
+    AttributeHandleSet clientAttributes;
     private Random random = new Random();
     private RTIambassador rtiamb;
     private QueueAmbassador fedamb;
     private HLAfloat64TimeFactory timeFactory;
+    private final FederateConfig config;
+    private final TimeAdvance timeAdvance;
+    private final CallbackWaiter callbackWaiter;
+    private final TickMetrics tickMetrics;
+    private final FederationRoster roster;
+    private Runnable firstGrantListener = () -> {
+    };
+    private final AtomicInteger queueIds = new AtomicInteger(0);
+
+    public QueueFederate(FederateConfig config) {
+        this.config = config;
+        this.timeAdvance = TimeAdvance.fromConfig(config);
+        this.callbackWaiter = CallbackWaiter.fromConfig(config);
+        this.tickMetrics = TickMetrics.fromConfig(config);
+        this.roster = FederationRoster.fromConfig(config);
+    }
 
     public static void main(String[] args) {
-        String federateName = "queue";
-        if (args.length != 0) {
-            federateName = args[0];
-        }
+        FederateConfig config = FederateConfig.load(args);
+        String federateName = config.getFederateName("queue");
         try {
-            new QueueFederate().runFederate(federateName);
+            new QueueFederate(config).runFederate(federateName);
         } catch (Exception rtie) {
             rtie.printStackTrace();
         }
     }
 
-    private void log(String message) {
-        System.out.println("Queue   : " + message);
+    @Override
+    public void setFirstGrantListener(Runnable listener) {
+        this.firstGrantListener = listener;
     }
 
-    private void waitForUser() {
-        log(" >>>>>>>>>> Press Enter to Continue <<<<<<<<<<");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        try {
-            reader.readLine();
-        } catch (Exception e) {
-            log("Error while waiting for user input: " + e.getMessage());
-            e.printStackTrace();
-        }
+    @Override
+    public CallbackWaiter getCallbackWaiter() {
+        return callbackWaiter;
+    }
+
+    @Override
+    public TickMetrics getTickMetrics() {
+        return tickMetrics;
+    }
+
+    @Override
+    public ShopFomDispatcher getDispatcher() {
+        return fedamb == null ? null : fedamb.dispatcher;
+    }
+
+    private void log(String message) {
+        System.out.println("Queue   : " + message);
     }
 
-    private void runFederate(String federateName) throws Exception {
+    @Override
+    public void runFederate(String federateName) throws Exception {
+        long startNanos = System.nanoTime();
         log("Creating RTIambassador");
-        rtiamb = RtiFactoryFactory.getRtiFactory().getRtiAmbassador();
-        encoderFactory = RtiFactoryFactory.getRtiFactory().getEncoderFactory();
+        RtiFactory rtiFactory = RtiBackend.fromConfig(config);
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
         log("Connecting...");
-        fedamb = new QueueAmbassador(this);
+        fedamb = new QueueAmbassador(this, config.getBoolean("log.debug", false));
+        fedamb.roster = roster;
         rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
         log("Creating Federation...");
         try {
-            URL[] modules = new URL[]{(new File("FOM.xml")).toURI().toURL()};
+            URL[] modules = config.getFomModules();
             rtiamb.createFederationExecution("ExampleFederation", modules);
             log("Created Federation");
         } catch (FederationExecutionAlreadyExists exists) {
@@ -104,116 +125,155 @@ public class QueueFederate {
         log("Joined Federation as " + federateName);
         this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
         rtiamb.registerFederationSynchronizationPoint(READY_TO_RUN, null);
-        while (fedamb.isAnnounced == false) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
-        waitForUser();
+        callbackWaiter.await(rtiamb, () -> fedamb.isAnnounced);
+        roster.await(rtiamb, encoderFactory);
         rtiamb.synchronizationPointAchieved(READY_TO_RUN);
         log("Achieved sync point: " + READY_TO_RUN + ", waiting for federation...");
-        while (fedamb.isReadyToRun == false) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isReadyToRun);
         enableTimePolicy();
         log("Time Policy Enabled");
         publishAndSubscribe();
         log("Published and Subscribed");
 
-        registerNewQueue(new Queue(Queue.count.getAndIncrement(), random.nextInt(Queue.MAX_SIZE) + 1));
+        registerNewQueue(new Queue(queueIds.getAndIncrement(), random.nextInt(Queue.MAX_SIZE) + 1));
         System.out.println("***************************************************" +
                 "***********************************************");
-        while (fedamb.running) {
-            advanceTime(1.0);
+        tickMetrics.start(federateName, fom, fedamb.dispatcher);
+        Pacer pacer = Pacer.fromConfig(config);
+        log("Pacing: " + pacer + ", time advance: " + timeAdvance + ", startup: " + roster);
+        long reportEvery = Math.max(1, config.getLong("callbacks.report-every", 100));
+        while (fedamb.running && !timeAdvance.isFinished(fedamb.federateTime)) {
+            double nextTime = timeAdvance.nextRequestTime(fedamb.federateTime, nextEventTime());
+            pacer.pace(fedamb.federateTime, nextTime);
+            advanceTime(nextTime);
+            tickMetrics.granted(callbackWaiter.getLastGrantWaitNanos());
+            if (callbackWaiter.getGrants() == 1) {
+                log("First time advance granted " + (System.nanoTime() - startNanos) / 1_000_000 + " ms after startup");
+                firstGrantListener.run();
+            }
             System.out.println();
-            log("Time Advanced to " + fedamb.federateTime);
+            log("Time Advanced to " + fedamb.federateTime + " (grant wait " + callbackWaiter.getLastGrantWaitMillis() + " ms)");
+            if (callbackWaiter.getGrants() % reportEvery == 0) {
+                log("Time advance summary: " + callbackWaiter.report());
+                log("Live objects: " + getLiveObjects());
+            }
             doThings();
+            tickMetrics.computed();
         }
+
+        cleanUpAfterSimulation();
+    }
+
+    private void cleanUpAfterSimulation() throws RTIexception {
+        log("Time advance summary: " + callbackWaiter.report());
+        log("Tick summary: " + tickMetrics.getSummary());
+        tickMetrics.stop();
+        rtiamb.resignFederationExecution(ResignAction.DELETE_OBJECTS);
+        log("Resigned from Federation");
+        try {
+            rtiamb.destroyFederationExecution("ExampleFederation");
+            log("Destroyed Federation");
+        } catch (FederationExecutionDoesNotExist dne) {
+            log("No need to destroy federation, it doesn't exist");
+        } catch (FederatesCurrentlyJoined fcj) {
+            log("Didn't destroy federation, federates still joined");
+        }
+    }
+
+    /**
+     * Joins {@code federationName} without the start-up handshake or a time policy, so that
+     * benchmarks can feed callbacks to the returned ambassador and run the federate's logic directly.
+     */
+    QueueAmbassador attach(RtiFactory rtiFactory, String federationName, String federateName) throws RTIexception {
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
+        fedamb = new QueueAmbassador(this, false);
+        fedamb.roster = roster;
+        rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
+        rtiamb.joinFederationExecution(federateName, federationName);
+        this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
+        publishAndSubscribe();
+        return fedamb;
     }
 
     private void enableTimePolicy() throws Exception {
         HLAfloat64Interval lookahead = timeFactory.makeInterval(fedamb.federateLookahead);
         this.rtiamb.enableTimeRegulation(lookahead);
-        while (!fedamb.isRegulating) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isRegulating);
         this.rtiamb.enableTimeConstrained();
-        while (!fedamb.isConstrained) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isConstrained);
     }
 
     private void publishAndSubscribe() throws RTIexception {
+        fom = new ShopFom(rtiamb);
+        fedamb.dispatcher = new ShopFomDispatcher(fom, fedamb);
+
         // register object kolejka
-        queueObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Queue");
-        queueMaxSize = rtiamb.getAttributeHandle(queueObjectHandle, "maxSize");
-        queueCurrentSize = rtiamb.getAttributeHandle(queueObjectHandle, "currentSize");
-        queueId = rtiamb.getAttributeHandle(queueObjectHandle, "queueId");
-        AttributeHandleSet queueAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        queueAttributes.add(queueMaxSize);
-        queueAttributes.add(queueCurrentSize);
-        queueAttributes.add(queueId);
+        queueObjectHandle = fom.queue.handle;
+        AttributeHandleSet queueAttributes = fom.queue.attributeSet(rtiamb);
         rtiamb.publishObjectClassAttributes(queueObjectHandle, queueAttributes);
         rtiamb.subscribeObjectClassAttributes(queueObjectHandle, queueAttributes);
 
         // otwarcie kasy
-        openCheckoutInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.OpenCheckout");
-        openCheckoutCheckoutId = rtiamb.getParameterHandle(openCheckoutInteractionHandle, "checkoutId");
-        rtiamb.subscribeInteractionClass(openCheckoutInteractionHandle);
+        fom.openCheckout.subscribe(rtiamb);
 
         // wybranie kolejki
-        chooseQueueInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.ChooseQueue");
-        chooseQueueCheckoutId = rtiamb.getParameterHandle(chooseQueueInteractionHandle, "checkoutId");
-        chooseQueueClientId = rtiamb.getParameterHandle(chooseQueueInteractionHandle, "clientId");
-        rtiamb.subscribeInteractionClass(chooseQueueInteractionHandle);
+        fom.chooseQueue.subscribe(rtiamb);
 
         // zakoczenie obslugi
-        endServiceInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.EndService");
-        endServiceCheckoutId = rtiamb.getParameterHandle(endServiceInteractionHandle, "checkoutId");
-        endServiceClientId = rtiamb.getParameterHandle(endServiceInteractionHandle, "clientId");
-        rtiamb.subscribeInteractionClass(endServiceInteractionHandle);
+        fom.endService.subscribe(rtiamb);
 
         // zamkniecie kasy
-        closeCheckoutInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.CloseCheckout");
-        closeCheckoutCheckoutId = rtiamb.getParameterHandle(closeCheckoutInteractionHandle, "checkoutId");
-        rtiamb.subscribeInteractionClass(closeCheckoutInteractionHandle);
+        fom.closeCheckout.subscribe(rtiamb);
 
         // discover object klient
-        clientObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Client");
-        clientIsPrivileged = rtiamb.getAttributeHandle(clientObjectHandle, "isPrivileged");
-        clientEndShoppingTime = rtiamb.getAttributeHandle(clientObjectHandle, "endShoppingTime");
-        clientId = rtiamb.getAttributeHandle(clientObjectHandle, "clientId");
-        AttributeHandleSet clientAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        clientAttributes.add(clientIsPrivileged);
-        clientAttributes.add(clientEndShoppingTime);
-        clientAttributes.add(clientId);
+        clientObjectHandle = fom.client.handle;
+        clientAttributes = fom.client.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(clientObjectHandle, clientAttributes);
 
         // rozpoczecie obslugi
-        clientExitInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.ClientExit");
-        clientExitCheckoutId = rtiamb.getParameterHandle(clientExitInteractionHandle, "checkoutId");
-        clientExitClientId = rtiamb.getParameterHandle(clientExitInteractionHandle, "clientId");
-        rtiamb.publishInteractionClass(clientExitInteractionHandle);
+        fom.clientExit.publish(rtiamb);
     }
 
     private void updateQueueAttributeValues(Queue queue, LogicalTime time) throws RTIexception {
-        AttributeHandleValueMap attributes = rtiamb.getAttributeHandleValueMapFactory().create(3);
-        attributes.put(queueId, DecoderUtils.encodeInt(encoderFactory, queue.getQueueId()));
-        attributes.put(queueCurrentSize, DecoderUtils.encodeInt(encoderFactory, queue.getCurrentSize()));
-        attributes.put(queueMaxSize, DecoderUtils.encodeInt(encoderFactory, queue.getMaxSize()));
+        if (!queue.isDirty()) {
+            return;
+        }
+        AttributeHandleValueMap attributes = fom.queue.createValueMap(rtiamb);
+        if (queue.isDirty(Queue.QUEUE_ID)) {
+            fom.queue.putQueueId(attributes, queue.getQueueId());
+        }
+        if (queue.isDirty(Queue.CURRENT_SIZE)) {
+            fom.queue.putCurrentSize(attributes, queue.getCurrentSize());
+        }
+        if (queue.isDirty(Queue.MAX_SIZE_ATTRIBUTE)) {
+            fom.queue.putMaxSize(attributes, queue.getMaxSize());
+        }
         rtiamb.updateAttributeValues(queue.getRtiHandler(), attributes, generateTag(), time);
+        queue.clearDirty();
     }
 
-    private void advanceTime(double timestep) throws RTIexception {
+    private void advanceTime(double requestedTime) throws RTIexception {
         fedamb.isAdvancing = true;
-        HLAfloat64Time time = timeFactory.makeTime(fedamb.federateTime + timestep);
-        rtiamb.timeAdvanceRequest(time);
-        while (fedamb.isAdvancing) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        HLAfloat64Time time = timeFactory.makeTime(requestedTime);
+        timeAdvance.request(rtiamb, time);
+        callbackWaiter.awaitGrant(rtiamb, () -> !fedamb.isAdvancing);
     }
 
-    private void doThings() throws RTIexception {
+    /**
+     * This federate only reacts to reflections and interactions, so in event-driven
+     * mode it waits for the next message.
+     */
+    private double nextEventTime() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    void doThings() throws RTIexception {
         queues.forEach(System.out::println);
         HLAfloat64Time time = timeFactory.makeTime(fedamb.federateTime + fedamb.federateLookahead);
+        for (ObjectInstanceHandle handle : clients.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, clientAttributes, generateTag());
+        }
         for (Client client : clientsToDelete) {
             sendDeleteClientInteraction(client, time);
         }
@@ -230,11 +290,7 @@ public class QueueFederate {
     private void sendDeleteClientInteraction(Client client, HLAfloat64Time time) throws RTIexception {
         log("DELETING (" + client.getClientId() + ") " + "CLIENT");
         log("START SERVICE CHECKOUT: ");
-        ParameterHandleValueMap parameterHandleValueMap = rtiamb.getParameterHandleValueMapFactory().create(2);
-        parameterHandleValueMap.put(clientExitCheckoutId, encoderFactory.createHLAinteger32BE(0).toByteArray());
-        parameterHandleValueMap.put(clientExitClientId,
-                encoderFactory.createHLAinteger32BE(client.getClientId()).toByteArray());
-        rtiamb.sendInteraction(clientExitInteractionHandle, parameterHandleValueMap, generateTag(), time);
+        fom.clientExit.send(rtiamb, 0, client.getClientId(), generateTag(), time);
     }
 
     private byte[] generateTag() {
@@ -242,21 +298,21 @@ public class QueueFederate {
     }
 
     void receiveOpenCheckoutInteraction(int checkoutId) {
-        Optional<Queue> first = queues.stream().filter(queue -> queue.getQueueId() == checkoutId).findFirst();
-        if (first.isPresent()) {
-            openExistingQueue(first);
+        Queue queue = queues.getById(checkoutId);
+        if (queue != null) {
+            openExistingQueue(queue);
         } else {
             openNewQueue();
         }
     }
 
-    private void openExistingQueue(Optional<Queue> first) {
-        first.get().setMaxSize(first.get().getOriginalMaxSize());
-        System.out.println("OPEN EXISTING QUEUE (" + first.get().getQueueId() + ")");
+    private void openExistingQueue(Queue queue) {
+        queue.setMaxSize(queue.getOriginalMaxSize());
+        System.out.println("OPEN EXISTING QUEUE (" + queue.getQueueId() + ")");
     }
 
     private void openNewQueue() {
-        Queue queue = new Queue(Queue.count.getAndIncrement(), random.nextInt(Queue.MAX_SIZE) + 1);
+        Queue queue = new Queue(queueIds.getAndIncrement(), random.nextInt(Queue.MAX_SIZE) + 1);
         queue.setOriginalMaxSize(queue.getMaxSize());
         queuesToMake.add(queue);
         System.out.println("TO CREATE: " + queuesToMake);
@@ -280,51 +336,73 @@ public class QueueFederate {
 
     void addNewClientToQueue(int queueId, int clientId, LogicalTime time) {
         System.out.println("ADD NEW CLIENT TO QUEUE: (" + clientId + ")");
-        System.out.println(queues.get(queueId));
-        Optional<Client> client = clients.stream().filter(c -> c.getClientId() == clientId).findFirst();
-        if (client.isPresent()) {
-            Queue queue = queues.get(queueId);
-            if (!client.get().isPrivileged()) {
-                queue.setCurrentSize(queue.getCurrentSize() + 1);
-                queue.getClients().add(client.get());
-            } else {
-                queue.setCurrentSize(queue.getCurrentSize() + 1);
-                queue.getClients().add(0, client.get());
-            }
+        Queue queue = queues.getById(queueId);
+        System.out.println(queue);
+        Client client = clients.getById(clientId);
+        if (client != null && queue != null) {
+            queue.addClient(client);
+            queueOfClient.put(clientId, queueId);
         }
-        System.out.println(queues.get(queueId));
+        System.out.println(queue);
     }
 
     void removeClientFromQueue(int queueId, int clientId) {
         System.out.println("REMOVE CLIENT (" + clientId + ") FROM QUEUE (" + queueId + ")");
-        Optional<Queue> first = queues.stream().filter(q -> q.getQueueId() == queueId).findFirst();
-        System.out.println(first.get());
-        if (!first.get().getClients().isEmpty()) {
-            Client removed = first.get().getClients().remove(0);
-            if (removed != null) {
-                first.get().setCurrentSize(first.get().getCurrentSize() - 1);
-            }
-            System.out.println(first.get());
+        Queue queue = queues.getById(queueId);
+        System.out.println(queue);
+        Client removed = queue == null ? null : queue.pollClient();
+        if (removed != null) {
+            System.out.println(queue);
+            queueOfClient.remove(removed.getClientId());
             clientsToDelete.add(removed);
         }
     }
 
     void closeCheckout(int queueId) {
-        Optional<Queue> first = queues.stream().filter(queue -> queue.getQueueId() == queueId).findFirst();
-        first.ifPresent(queue -> queue.setMaxSize(0));
+        Queue queue = queues.getById(queueId);
+        if (queue != null) {
+            queue.setMaxSize(0);
+        }
+    }
+
+    void provideQueueAttributeValues(ObjectInstanceHandle handle) {
+        Queue queue = queues.get(handle);
+        if (queue != null) {
+            queue.markDirty(Queue.ALL_ATTRIBUTES);
+        }
     }
 
     void updateClient(ObjectInstanceHandle handle, int clientId, boolean isPrivileged, int endShoppingTime) {
-        for (Client client : clients) {
-            if (client.getRtiHandler().equals(handle)) {
-                client.setClientId(clientId);
-                client.setPrivileged(isPrivileged);
-                client.setEndShoppingTime(endShoppingTime);
-            }
+        Client client = clients.get(handle);
+        if (client != null) {
+            client.setClientId(clientId);
+            client.setPrivileged(isPrivileged);
+            client.setEndShoppingTime(endShoppingTime);
+            clients.index(client);
         }
     }
 
     void discoverClient(ObjectInstanceHandle client) {
-        clients.add(new Client(client));
+        clients.discover(client);
+    }
+
+    /**
+     * Evicts a deleted client, also from the line it may still be standing in.
+     */
+    void removeClient(ObjectInstanceHandle handle) {
+        Client client = clients.remove(handle);
+        if (client == null) {
+            return;
+        }
+        Integer queueId = queueOfClient.remove(client.getClientId());
+        Queue queue = queueId == null ? null : queues.getById(queueId);
+        if (queue != null) {
+            queue.removeClient(client.getClientId());
+        }
+    }
+
+    @Override
+    public int getLiveObjects() {
+        return clients.size() + queues.size();
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package shop.rti.statistic;
+
+import shop.object.Client;
+import shop.utils.FederateConfig;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Appends the raw record of every client that left the store to the CSV file named by
+ * {@code statistic.spill}, so the federate itself can drop the client and keep aggregates only.
+ * Without the key nothing is written. A failed write is logged once and ends the spill.
+ */
+final class ClientSpill implements Closeable {
+
+    private static final String HEADER = "client_id,privileged,arrival_time,end_shopping_time,left_time";
+
+    private final String path;
+    private Writer writer;
+
+    private ClientSpill(String path, Writer writer) {
+        this.path = path;
+        this.writer = writer;
+    }
+
+    static ClientSpill fromConfig(FederateConfig config) {
+        String path = config.get("statistic.spill", "").trim();
+        if (path.isEmpty()) {
+            return new ClientSpill(path, null);
+        }
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path),
+                    StandardCharsets.UTF_8), 1 << 16);
+            writer.write(HEADER);
+            writer.write('\n');
+            return new ClientSpill(path, writer);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot open statistic.spill " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    boolean isEnabled() {
+        return writer != null;
+    }
+
+    void write(Client client, double leftTime) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(client.getClientId() + "," + client.isPrivileged() + "," + client.getArrivalTime() + ","
+                    + client.getEndShoppingTime() + "," + leftTime + "\n");
+        } catch (IOException e) {
+            System.out.println("Statistic   : Spill to " + path + " failed, no more client records: " + e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.out.println("Statistic   : Closing spill " + path + " failed: " + e.getMessage());
+        }
+        writer = null;
+    }
+
+    @Override
+    public String toString() {
+        return writer == null ? "off" : path;
+    }
+}
@@ -0,0 +1,228 @@
+package shop.rti.statistic;
+
+import shop.object.Checkout;
+import shop.object.Client;
+import shop.object.Queue;
+import shop.utils.Histogram;
+import shop.utils.RunningStatistic;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.TreeMap;
+
+/**
+ * The figures of the statistic report, kept up to date as reflections and interactions arrive
+ * so that printing them does not depend on how many objects have been seen.
+ * <p>
+ * Queues and checkouts contribute their current state: the federate calls {@code remove}
+ * before changing a replica and {@code add} afterwards. Shopping times and interactions are
+ * history and are only ever added.
+ * <p>
+ * A client that leaves the store is folded into the totals and into the bucket of the time it
+ * left, so the federate can drop it. Only the latest {@code bucketsKept} buckets are kept.
+ */
+final class StatisticAggregates {
+
+    // clients in the store
+    long privilegedClients = 0;
+    final RunningStatistic shoppingTime = new RunningStatistic();
+    final Histogram shoppingTimes = new Histogram();
+    // clients that left
+    long clientsLeft = 0;
+    long privilegedClientsLeft = 0;
+    final RunningStatistic timeInStore = new RunningStatistic();
+    final Histogram timesInStore = new Histogram();
+    private final double bucketLength;
+    private final int bucketsKept;
+    private final Deque<Bucket> buckets = new ArrayDeque<>();
+    // queues
+    long openQueueSizeSum = 0;
+    long queueSizeSum = 0;
+    long currentSizeSum = 0;
+    long nonEmptyQueues = 0;
+    final RunningStatistic queueLength = new RunningStatistic();
+    final Histogram queueLengths = new Histogram();
+    private final TreeMap<Integer, Integer> maxSizes = new TreeMap<>();
+    // checkouts
+    long openCheckouts = 0;
+    // interactions
+    final RunningStatistic interactionsPerTick = new RunningStatistic();
+    private double tickTime = Double.NaN;
+    private long interactionsInTick = 0;
+    private long mostInteractions = 0;
+    private double mostInteractionsTime = 0;
+
+    StatisticAggregates(double bucketLength, int bucketsKept) {
+        this.bucketLength = bucketLength;
+        this.bucketsKept = Math.max(1, bucketsKept);
+    }
+
+    void clientPrivilegeChanged(boolean wasPrivileged, boolean privileged) {
+        if (wasPrivileged != privileged) {
+            privilegedClients += privileged ? 1 : -1;
+        }
+    }
+
+    void clientArrived(int arrivalTime, int endShoppingTime) {
+        shoppingTime.add(endShoppingTime - arrivalTime);
+        shoppingTimes.record(endShoppingTime - arrivalTime);
+    }
+
+    /**
+     * Removals are delivered in timestamp order, so a client that leaves after the newest
+     * bucket opens the next one.
+     */
+    void clientLeft(Client client, double time) {
+        clientDropped(client);
+        if (client.isPrivileged()) {
+            privilegedClientsLeft++;
+        }
+        clientsLeft++;
+        long start = (long) Math.floor(time / bucketLength);
+        Bucket bucket = buckets.peekLast();
+        if (bucket == null || bucket.index < start) {
+            bucket = new Bucket(start);
+            buckets.addLast(bucket);
+            if (buckets.size() > bucketsKept) {
+                buckets.removeFirst();
+            }
+        }
+        bucket.clients++;
+        if (client.isPrivileged()) {
+            bucket.privilegedClients++;
+        }
+        if (client.getArrivalTime() >= 0) {
+            double inStore = time - client.getArrivalTime();
+            timeInStore.add(inStore);
+            timesInStore.record(Math.round(inStore));
+            bucket.timeInStore.add(inStore);
+        }
+    }
+
+    /**
+     * A client deleted without leaving, e.g. when its owner resigns, is not part of the history.
+     */
+    void clientDropped(Client client) {
+        if (client.isPrivileged()) {
+            privilegedClients--;
+        }
+    }
+
+    Bucket getLatestBucket() {
+        return buckets.peekLast();
+    }
+
+    Iterable<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    void add(Queue queue) {
+        openQueueSizeSum += queue.getMaxSize();
+        queueSizeSum += queue.getOriginalMaxSize();
+        currentSizeSum += queue.getCurrentSize();
+        if (queue.getCurrentSize() > 0) {
+            nonEmptyQueues++;
+        }
+        maxSizes.merge(queue.getMaxSize(), 1, Integer::sum);
+    }
+
+    void remove(Queue queue) {
+        openQueueSizeSum -= queue.getMaxSize();
+        queueSizeSum -= queue.getOriginalMaxSize();
+        currentSizeSum -= queue.getCurrentSize();
+        if (queue.getCurrentSize() > 0) {
+            nonEmptyQueues--;
+        }
+        maxSizes.computeIfPresent(queue.getMaxSize(), (size, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Samples the length of a queue as it is reflected.
+     */
+    void queueReflected(Queue queue) {
+        queueLength.add(queue.getCurrentSize());
+        queueLengths.record(queue.getCurrentSize());
+    }
+
+    int getOpenQueueMaxSize() {
+        return maxSizes.isEmpty() ? 0 : maxSizes.lastKey();
+    }
+
+    double getAverageQueueSize() {
+        return nonEmptyQueues == 0 ? 0 : (double) currentSizeSum / nonEmptyQueues;
+    }
+
+    void add(Checkout checkout) {
+        if (checkout.isOpen()) {
+            openCheckouts++;
+        }
+    }
+
+    void remove(Checkout checkout) {
+        if (checkout.isOpen()) {
+            openCheckouts--;
+        }
+    }
+
+    /**
+     * Interactions are delivered in timestamp order, so a new time closes the previous tick.
+     */
+    void interaction(double time) {
+        if (time != tickTime) {
+            closeTick();
+            tickTime = time;
+        }
+        interactionsInTick++;
+    }
+
+    private void closeTick() {
+        if (interactionsInTick == 0) {
+            return;
+        }
+        interactionsPerTick.add(interactionsInTick);
+        if (interactionsInTick > mostInteractions) {
+            mostInteractions = interactionsInTick;
+            mostInteractionsTime = tickTime;
+        }
+        interactionsInTick = 0;
+    }
+
+    /**
+     * Interactions of the busiest tick so far, including the one still open.
+     */
+    long getMostInteractions() {
+        return Math.max(mostInteractions, interactionsInTick);
+    }
+
+    double getMostInteractionsTime() {
+        return interactionsInTick > mostInteractions ? tickTime : mostInteractionsTime;
+    }
+
+    /**
+     * Clients that left the store between {@code start} and {@code end}.
+     */
+    final class Bucket {
+        private final long index;
+        long clients = 0;
+        long privilegedClients = 0;
+        final RunningStatistic timeInStore = new RunningStatistic();
+
+        private Bucket(long index) {
+            this.index = index;
+        }
+
+        double getStart() {
+            return index * bucketLength;
+        }
+
+        double getEnd() {
+            return (index + 1) * bucketLength;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + getStart() + ", " + getEnd() + ") clients=" + clients + " privileged=" + privilegedClients
+                    + " time in store: " + timeInStore;
+        }
+    }
+}
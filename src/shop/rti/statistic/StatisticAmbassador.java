@@ -3,10 +3,23 @@ package shop.rti.statistic;
 import hla.rti1516e.*;
 import hla.rti1516e.exceptions.FederateInternalError;
 import hla.rti1516e.time.HLAfloat64Time;
-import shop.utils.DecoderUtils;
+import shop.fom.CheckoutObject;
+import shop.fom.ChooseQueueInteraction;
+import shop.fom.ClientExitInteraction;
+import shop.fom.ClientObject;
+import shop.fom.CloseCheckoutInteraction;
+import shop.fom.EndServiceInteraction;
+import shop.fom.OpenCheckoutInteraction;
+import shop.fom.QueueObject;
+import shop.fom.ShopFomDispatcher;
+import shop.fom.ShopFomListener;
+import shop.object.Checkout;
+import shop.object.Client;
+import shop.object.Queue;
+import shop.utils.FederationRoster;
 
 @SuppressWarnings("Duplicates")
-public class StatisticAmbassador extends NullFederateAmbassador {
+public class StatisticAmbassador extends NullFederateAmbassador implements ShopFomListener {
     protected double federateTime = 0.0;
     protected double federateLookahead = 1.0;
 
@@ -18,9 +31,13 @@ public class StatisticAmbassador extends NullFederateAmbassador {
     protected boolean isReadyToRun = false;
     protected boolean running = true;
     private StatisticFederate federate;
+    private final boolean debug;
+    ShopFomDispatcher dispatcher;
+    FederationRoster roster;
 
-    StatisticAmbassador(StatisticFederate federate) {
+    StatisticAmbassador(StatisticFederate federate, boolean debug) {
         this.federate = federate;
+        this.debug = debug;
     }
 
     private void log(String message) {
@@ -70,6 +87,17 @@ public class StatisticAmbassador extends NullFederateAmbassador {
         this.isAdvancing = false;
     }
 
+    @Override
+    public void discoverObjectInstance(ObjectInstanceHandle theObject,
+                                       ObjectClassHandle theObjectClass,
+                                       String objectName) throws FederateInternalError {
+        if (roster.discover(theObject, theObjectClass)) {
+            return;
+        }
+        StatisticFederate.objectsCounter.merge(theObjectClass, 1, Integer::sum);
+        dispatcher.discover(theObject, theObjectClass, objectName);
+    }
+
     @Override
     public void reflectAttributeValues(ObjectInstanceHandle theObject,
                                        AttributeHandleValueMap theAttributes,
@@ -94,113 +122,26 @@ public class StatisticAmbassador extends NullFederateAmbassador {
                                        OrderType receivedOrdering,
                                        SupplementalReflectInfo reflectInfo)
             throws FederateInternalError {
-        StringBuilder builder = new StringBuilder("Reflection for object:");
-        if (federate.instanceClassMap.get(theObject).equals(federate.clientObjectHandle)) {
-            int clientId = 0;
-            int endShoppingTime = 0;
-            boolean isPrivileged = false;
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.clientId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" id:");
-                    int val = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    clientId = val;
-                } else if (attributeHandle.equals(federate.clientEndShoppingTime)) {
-                    builder.append(attributeHandle);
-                    builder.append(" endShoppingTime:");
-                    int val = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    endShoppingTime = val;
-                } else if (attributeHandle.equals(federate.clientIsPrivileged)) {
-                    builder.append(attributeHandle);
-                    builder.append(" isPrivileged:");
-                    boolean val = DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                    builder.append(val);
-                    isPrivileged = val;
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-                builder.append("\n");
-            }
-            this.federate.updateClient(theObject, clientId, isPrivileged, endShoppingTime, time);
-        } else if (federate.instanceClassMap.get(theObject).equals(federate.queueObjectHandle)) {
-            int queueId = 0;
-            int queueCurrentSize = 0;
-            int queueMaxSize = 0;
-            builder.append("CHECKOUT");
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.queueId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.queueCurrentSize)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueCurrentSize:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueCurrentSize = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.queueMaxSize)) {
-                    builder.append(attributeHandle);
-                    builder.append(" queueMaxSize:");
-                    builder.append(DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    queueMaxSize = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-                builder.append("\n");
-            }
-            federate.updateQueue(theObject, queueId, queueMaxSize, queueCurrentSize);
-        } else if (federate.instanceClassMap.get(theObject).equals(federate.checkoutObjectHandle)) {
-            int checkoutId = 0;
-            int checkoutQueueId = 0;
-            boolean checkoutIsOpened = false;
-            builder.append("CHECKOUT");
-            builder.append(" handle=" + theObject);
-            builder.append(", attributeCount=" + theAttributes.size());
-            builder.append("\n");
-            for (AttributeHandle attributeHandle : theAttributes.keySet()) {
-                builder.append("\tattributeHandle=");
-                if (attributeHandle.equals(federate.checkoutId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.checkoutQueueId)) {
-                    builder.append(attributeHandle);
-                    builder.append(" checkoutQueueId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    checkoutQueueId = DecoderUtils.decodeInt(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else if (attributeHandle.equals(federate.checkoutIsOpened)) {
-                    builder.append(attributeHandle);
-                    builder.append(" checkoutIsOpened:");
-                    builder.append(DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle)));
-                    checkoutIsOpened = DecoderUtils.decodeBoolean(federate.encoderFactory, theAttributes.getValueReference(attributeHandle));
-                } else {
-                    builder.append(attributeHandle);
-                    builder.append(" (Unknown)   ");
-                }
-                builder.append("\n");
-            }
-            federate.updateCheckout(theObject, checkoutId, checkoutIsOpened, checkoutQueueId);
+        if (roster.reflect(theObject, theAttributes)) {
+            return;
         }
+        if (debug) {
+            log("Reflection for object: handle=" + theObject + ", attributeCount=" + theAttributes.size());
+        }
+        dispatcher.reflect(theObject, theAttributes, time);
     }
 
     @Override
-    public void receiveInteraction(InteractionClassHandle interactionClass, ParameterHandleValueMap theParameters,
-                                   byte[] tag, OrderType sentOrdering,
+    public void receiveInteraction(InteractionClassHandle interactionClass,
+                                   ParameterHandleValueMap theParameters,
+                                   byte[] tag,
+                                   OrderType sentOrdering,
                                    TransportationTypeHandle theTransport,
-                                   SupplementalReceiveInfo receiveInfo) throws FederateInternalError {
+                                   SupplementalReceiveInfo receiveInfo)
+            throws FederateInternalError {
+        // just pass it on to the other method for printing purposes
+        // passing null as the time will let the other method know it
+        // it from us, not from the RTI
         this.receiveInteraction(interactionClass, theParameters, tag, sentOrdering, theTransport, null,
                 sentOrdering, receiveInfo);
     }
@@ -213,120 +154,129 @@ public class StatisticAmbassador extends NullFederateAmbassador {
                                    TransportationTypeHandle theTransport,
                                    LogicalTime time,
                                    OrderType receivedOrdering,
-                                   SupplementalReceiveInfo receiveInfo) throws FederateInternalError {
-        StringBuilder builder = new StringBuilder("Interaction Received:");
-        StatisticFederate.interactionsCounter.merge(interactionClass, 1, Integer::sum);
-        if (interactionClass.equals(federate.openCheckoutInteractionHandle)) {
-            builder.append("openCheckoutInteractionHandle");
-            int checkoutId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.openCheckoutCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.receiveOpenCheckoutInteraction(interactionClass, time, checkoutId);
-        } else if (interactionClass.equals(federate.chooseQueueInteractionHandle)) {
-            builder.append("chooseQueueInteractionHandle");
-            int queueId = 0;
-            int clientId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.chooseQueueClientId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" clientId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    clientId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                } else if (parameterHandle.equals(federate.chooseQueueCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    queueId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.receiveChooseQueueInteraction(interactionClass, time, queueId, clientId);
-        } else if (interactionClass.equals(federate.closeCheckoutInteractionHandle)) {
-            builder.append("closeCheckoutInteractionHandle");
-            int checkoutId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.closeCheckoutCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.receiveCloseCheckoutInteraction(interactionClass, time, checkoutId);
-        } else if (interactionClass.equals(federate.endServiceInteractionHandle)) {
-            builder.append("endServiceInteractionHandle");
-            int checkoutId = 0;
-            int clientId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.endServiceCheckoutId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-
-                } else if (parameterHandle.equals(federate.endServiceClientId)) {
-                    builder.append(parameterHandle);
-                    builder.append(" clientId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    clientId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.receiveEndServiceInteraction(interactionClass, time, checkoutId, clientId);
-        } else if (interactionClass.equals(federate.clientExitInteractionHandle)) {
-            builder.append("START SERVICE.");
-            int checkoutId = 0;
-            int clientId = 0;
-            for (ParameterHandle parameterHandle : theParameters.keySet()) {
-                builder.append("\tparameter=");
-                if (parameterHandle.equals(federate.clientExitCheckoutIdParameter)) {
-                    builder.append(parameterHandle);
-                    builder.append(" checkoutId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    checkoutId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-
-                } else if (parameterHandle.equals(federate.clientExitClientIdParameter)) {
-                    builder.append(parameterHandle);
-                    builder.append(" clientId:");
-                    builder.append(DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle)));
-                    clientId = DecoderUtils.decodeInt(federate.encoderFactory, theParameters.getValueReference(parameterHandle));
-                }
-            }
-            federate.receiveClientExitInteraction(interactionClass, time, checkoutId, clientId);
+                                   SupplementalReceiveInfo receiveInfo)
+            throws FederateInternalError {
+        if (debug) {
+            log("Interaction Received: " + interactionClass + " " + receiveInfo);
         }
+        StatisticFederate.interactionsCounter.merge(interactionClass, 1, Integer::sum);
+        dispatcher.receive(interactionClass, theParameters, time);
+    }
 
+    @Override
+    public void removeObjectInstance(ObjectInstanceHandle theObject,
+                                     byte[] tag,
+                                     OrderType sentOrdering,
+                                     SupplementalRemoveInfo removeInfo)
+            throws FederateInternalError {
+        removeObjectInstance(theObject, tag, sentOrdering, null, sentOrdering, removeInfo);
     }
 
     @Override
     public void removeObjectInstance(ObjectInstanceHandle theObject,
                                      byte[] tag,
                                      OrderType sentOrdering,
-                                     SupplementalRemoveInfo removeInfo) throws FederateInternalError {
-        log("XD " + theObject);
+                                     LogicalTime time,
+                                     OrderType receivedOrdering,
+                                     SupplementalRemoveInfo removeInfo)
+            throws FederateInternalError {
+        dispatcher.remove(theObject, time);
     }
 
     @Override
-    public void discoverObjectInstance(ObjectInstanceHandle theObject,
-                                       ObjectClassHandle theObjectClass,
-                                       String objectName) throws FederateInternalError {
-        this.federate.instanceClassMap.put(theObject, theObjectClass);
-        StatisticFederate.objectsCounter.merge(theObjectClass, 1, Integer::sum);
-        if (theObjectClass.equals(this.federate.clientObjectHandle)) {
-            this.federate.addNewClientObject(theObject);
+    public void discoverClient(ObjectInstanceHandle handle, String objectName) {
+        federate.addNewClientObject(handle);
+    }
+
+    @Override
+    public void discoverCheckout(ObjectInstanceHandle handle, String objectName) {
+        federate.addNewCheckoutObject(handle);
+    }
+
+    @Override
+    public void discoverQueue(ObjectInstanceHandle handle, String objectName) {
+        federate.addNewQueueObject(handle);
+    }
+
+    @Override
+    public void removeClient(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeClientObject(handle, time);
+    }
+
+    @Override
+    public void removeCheckout(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeCheckoutObject(handle);
+    }
+
+    @Override
+    public void removeQueue(ObjectInstanceHandle handle, LogicalTime time) {
+        federate.removeQueueObject(handle);
+    }
+
+    @Override
+    public void reflectClient(ObjectInstanceHandle handle, ClientObject.Values values, LogicalTime time) {
+        Client client = federate.clients.get(handle);
+        if (client == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for client " + handle + ": " + values);
+        }
+        federate.updateClient(handle, values.clientIdOr(client.getClientId()),
+                values.isPrivilegedOr(client.isPrivileged()),
+                values.endShoppingTimeOr(client.getEndShoppingTime()), time);
+    }
+
+    @Override
+    public void reflectQueue(ObjectInstanceHandle handle, QueueObject.Values values, LogicalTime time) {
+        Queue queue = federate.queues.get(handle);
+        if (queue == null) {
+            return;
+        }
+        if (debug) {
+            log("Reflection for queue " + handle + ": " + values);
         }
-        if (theObjectClass.equals(this.federate.checkoutObjectHandle)) {
-            this.federate.addNewCheckoutObject(theObject);
+        federate.updateQueue(handle, values.queueIdOr(queue.getQueueId()),
+                values.maxSizeOr(queue.getMaxSize()),
+                values.currentSizeOr(queue.getCurrentSize()));
+    }
+
+    @Override
+    public void reflectCheckout(ObjectInstanceHandle handle, CheckoutObject.Values values, LogicalTime time) {
+        Checkout checkout = federate.checkouts.get(handle);
+        if (checkout == null) {
+            return;
         }
-        if (theObjectClass.equals(this.federate.queueObjectHandle)) {
-            this.federate.addNewQueueObject(theObject);
+        if (debug) {
+            log("Reflection for checkout " + handle + ": " + values);
         }
+        federate.updateCheckout(handle, values.checkoutIdOr(checkout.getCheckoutId()),
+                values.isOpenedOr(checkout.isOpen()),
+                values.queueIdOr(checkout.getQueueId()));
+    }
+
+    @Override
+    public void receiveOpenCheckout(OpenCheckoutInteraction.Values values, LogicalTime time) {
+        federate.receiveOpenCheckoutInteraction(federate.fom.openCheckout.handle, time, values.checkoutId);
+    }
+
+    @Override
+    public void receiveChooseQueue(ChooseQueueInteraction.Values values, LogicalTime time) {
+        federate.receiveChooseQueueInteraction(federate.fom.chooseQueue.handle, time, values.checkoutId, values.clientId);
+    }
+
+    @Override
+    public void receiveCloseCheckout(CloseCheckoutInteraction.Values values, LogicalTime time) {
+        federate.receiveCloseCheckoutInteraction(federate.fom.closeCheckout.handle, time, values.checkoutId);
+    }
+
+    @Override
+    public void receiveEndService(EndServiceInteraction.Values values, LogicalTime time) {
+        federate.receiveEndServiceInteraction(federate.fom.endService.handle, time, values.checkoutId, values.clientId);
+    }
+
+    @Override
+    public void receiveClientExit(ClientExitInteraction.Values values, LogicalTime time) {
+        federate.receiveClientExitInteraction(federate.fom.clientExit.handle, time, values.checkoutId, values.clientId);
     }
 }
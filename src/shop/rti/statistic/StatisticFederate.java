@@ -2,102 +2,130 @@ package shop.rti.statistic;
 
 import hla.rti1516e.*;
 import hla.rti1516e.encoding.EncoderFactory;
+import hla.rti1516e.exceptions.FederatesCurrentlyJoined;
 import hla.rti1516e.exceptions.FederationExecutionAlreadyExists;
+import hla.rti1516e.exceptions.FederationExecutionDoesNotExist;
 import hla.rti1516e.exceptions.RTIexception;
 import hla.rti1516e.time.HLAfloat64Interval;
 import hla.rti1516e.time.HLAfloat64Time;
 import hla.rti1516e.time.HLAfloat64TimeFactory;
+import shop.fom.ShopFom;
+import shop.fom.ShopFomDispatcher;
 import shop.object.Checkout;
 import shop.object.Client;
+import shop.object.ObjectRegistry;
 import shop.object.Queue;
+import shop.rti.ShopFederate;
+import shop.utils.CallbackWaiter;
+import shop.utils.FederateConfig;
+import shop.utils.FederationRoster;
+import shop.utils.Pacer;
+import shop.utils.RtiBackend;
+import shop.utils.TickMetrics;
+import shop.utils.TimeAdvance;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings("Duplicates")
-public class StatisticFederate {
+public class StatisticFederate implements ShopFederate {
 
     public static final String READY_TO_RUN = "ReadyToRun";
     static HashMap<InteractionClassHandle, Integer> interactionsCounter = new HashMap<>();
-    private static ConcurrentHashMap<Double, Integer> timeInteractionsNoMap = new ConcurrentHashMap<>();
     static ConcurrentHashMap<ObjectClassHandle, Integer> objectsCounter = new ConcurrentHashMap<>();
-    protected AttributeHandle queueId;
-    protected AttributeHandle clientId;
-    protected AttributeHandle checkoutId;
-    protected Map<ObjectInstanceHandle, ObjectClassHandle> instanceClassMap = new HashMap<>();
     protected EncoderFactory encoderFactory;
-    ParameterHandle openCheckoutCheckoutId;
+    ShopFom fom;
     InteractionClassHandle openCheckoutInteractionHandle;
     ObjectClassHandle queueObjectHandle;
-    AttributeHandle queueMaxSize;
-    AttributeHandle queueCurrentSize;
     ObjectClassHandle clientObjectHandle;
-    AttributeHandle clientIsPrivileged;
-    AttributeHandle clientEndShoppingTime;
     ObjectClassHandle checkoutObjectHandle;
-    AttributeHandle checkoutIsOpened;
-    AttributeHandle checkoutQueueId;
     InteractionClassHandle chooseQueueInteractionHandle;
-    ParameterHandle chooseQueueCheckoutId;
-    ParameterHandle chooseQueueClientId;
     InteractionClassHandle closeCheckoutInteractionHandle;
-    ParameterHandle closeCheckoutCheckoutId;
     InteractionClassHandle endServiceInteractionHandle;
-    ParameterHandle endServiceCheckoutId;
-    ParameterHandle endServiceClientId;
     InteractionClassHandle clientExitInteractionHandle;
-    ParameterHandle clientExitCheckoutIdParameter;
-    ParameterHandle clientExitClientIdParameter;
-    private List<Checkout> checkouts = Collections.synchronizedList(new ArrayList<Checkout>());
-    private List<Queue> queues = Collections.synchronizedList(new ArrayList<Queue>());
-    private List<Client> clients = Collections.synchronizedList(new ArrayList<Client>());
+    AttributeHandleSet clientAttributes;
+    AttributeHandleSet checkoutAttributes;
+    AttributeHandleSet queueAttributes;
+    ObjectRegistry<Checkout> checkouts = ObjectRegistry.forCheckouts();
+    ObjectRegistry<Queue> queues = ObjectRegistry.forQueues();
+    ObjectRegistry<Client> clients = ObjectRegistry.forClients();
+    final StatisticAggregates aggregates;
+    private final ClientSpill spill;
     private RTIambassador rtiamb;
     private StatisticAmbassador fedamb;
     private HLAfloat64TimeFactory timeFactory;
+    private final FederateConfig config;
+    private final TimeAdvance timeAdvance;
+    private final CallbackWaiter callbackWaiter;
+    private final TickMetrics tickMetrics;
+    private final FederationRoster roster;
+    private final boolean observer;
+    private Runnable firstGrantListener = () -> {
+    };
+
+    public StatisticFederate(FederateConfig config) {
+        this.config = config;
+        this.timeAdvance = TimeAdvance.fromConfig(config);
+        this.callbackWaiter = CallbackWaiter.fromConfig(config);
+        this.tickMetrics = TickMetrics.fromConfig(config);
+        this.roster = FederationRoster.fromConfig(config);
+        this.observer = config.getBoolean("statistic.observer", true);
+        this.aggregates = new StatisticAggregates(config.getDouble("statistic.bucket-length", 60.0),
+                config.getInt("statistic.buckets", 24));
+        this.spill = ClientSpill.fromConfig(config);
+    }
 
     public static void main(String[] args) {
-        String federateName = "statistic";
-        if (args.length != 0) {
-            federateName = args[0];
-        }
+        FederateConfig config = FederateConfig.load(args);
+        String federateName = config.getFederateName("statistic");
         try {
-            new StatisticFederate().runFederate(federateName);
+            new StatisticFederate(config).runFederate(federateName);
         } catch (Exception rtie) {
             rtie.printStackTrace();
         }
     }
 
-    private void log(String message) {
-        System.out.println("Statistic   : " + message);
+    @Override
+    public void setFirstGrantListener(Runnable listener) {
+        this.firstGrantListener = listener;
     }
 
-    private void waitForUser() {
-        log(" >>>>>>>>>> Press Enter to Continue <<<<<<<<<<");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        try {
-            reader.readLine();
-        } catch (Exception e) {
-            log("Error while waiting for user input: " + e.getMessage());
-            e.printStackTrace();
-        }
+    @Override
+    public CallbackWaiter getCallbackWaiter() {
+        return callbackWaiter;
+    }
+
+    @Override
+    public TickMetrics getTickMetrics() {
+        return tickMetrics;
+    }
+
+    @Override
+    public ShopFomDispatcher getDispatcher() {
+        return fedamb == null ? null : fedamb.dispatcher;
+    }
+
+    private void log(String message) {
+        System.out.println("Statistic   : " + message);
     }
 
-    private void runFederate(String federateName) throws Exception {
+    @Override
+    public void runFederate(String federateName) throws Exception {
+        long startNanos = System.nanoTime();
         log("Creating RTIambassador");
-        rtiamb = RtiFactoryFactory.getRtiFactory().getRtiAmbassador();
-        encoderFactory = RtiFactoryFactory.getRtiFactory().getEncoderFactory();
+        RtiFactory rtiFactory = RtiBackend.fromConfig(config);
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
         log("Connecting...");
-        fedamb = new StatisticAmbassador(this);
+        fedamb = new StatisticAmbassador(this, config.getBoolean("log.debug", false));
+        fedamb.roster = roster;
         rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
         log("Creating Federation...");
 
         try {
-            URL[] modules = new URL[]{(new File("FOM.xml")).toURI().toURL()};
+            URL[] modules = config.getFomModules();
 
             rtiamb.createFederationExecution("ExampleFederation", modules);
             log("Created Federation");
@@ -115,20 +143,16 @@ public class StatisticFederate {
         this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
         rtiamb.registerFederationSynchronizationPoint(READY_TO_RUN, null);
 
-        while (!fedamb.isAnnounced) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isAnnounced);
 
-        waitForUser();
+        roster.await(rtiamb, encoderFactory);
 
         rtiamb.synchronizationPointAchieved(READY_TO_RUN);
         log("Achieved sync point: " + READY_TO_RUN + ", waiting for federation...");
-        while (!fedamb.isReadyToRun) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isReadyToRun);
 
         enableTimePolicy();
-        log("Time Policy Enabled");
+        log("Time Policy Enabled" + (observer ? " (observer: constrained only)" : ""));
 //
         publishAndSubscribe();
         log("Published and Subscribed");
@@ -136,11 +160,49 @@ public class StatisticFederate {
         showStatisticLegend();
         System.out.println("***************************************************" +
                 "***********************************************");
-        while (fedamb.running) {
-            advanceTime(1.0);
+        tickMetrics.start(federateName, fom, fedamb.dispatcher);
+        Pacer pacer = Pacer.fromConfig(config);
+        log("Pacing: " + pacer + ", time advance: " + timeAdvance + ", startup: " + roster + ", spill: " + spill);
+        long reportEvery = Math.max(1, config.getLong("callbacks.report-every", 100));
+        while (fedamb.running && !timeAdvance.isFinished(fedamb.federateTime)) {
+            double nextTime = timeAdvance.nextRequestTime(fedamb.federateTime, nextEventTime());
+            pacer.pace(fedamb.federateTime, nextTime);
+            advanceTime(nextTime);
+            tickMetrics.granted(callbackWaiter.getLastGrantWaitNanos());
+            if (callbackWaiter.getGrants() == 1) {
+                log("First time advance granted " + (System.nanoTime() - startNanos) / 1_000_000 + " ms after startup");
+                firstGrantListener.run();
+            }
             System.out.println("");
-            log("Time Advanced to " + fedamb.federateTime);
+            log("Time Advanced to " + fedamb.federateTime + " (grant wait " + callbackWaiter.getLastGrantWaitMillis() + " ms)");
+            if (callbackWaiter.getGrants() % reportEvery == 0) {
+                log("Time advance summary: " + callbackWaiter.report());
+                log("Live objects: " + getLiveObjects());
+            }
             doThings();
+            tickMetrics.computed();
+        }
+
+        cleanUpAfterSimulation();
+    }
+
+    private void cleanUpAfterSimulation() throws RTIexception {
+        log("Time advance summary: " + callbackWaiter.report());
+        log("Tick summary: " + tickMetrics.getSummary());
+        tickMetrics.stop();
+        for (StatisticAggregates.Bucket bucket : aggregates.getBuckets()) {
+            log("Clients left " + bucket);
+        }
+        spill.close();
+        rtiamb.resignFederationExecution(ResignAction.DELETE_OBJECTS);
+        log("Resigned from Federation");
+        try {
+            rtiamb.destroyFederationExecution("ExampleFederation");
+            log("Destroyed Federation");
+        } catch (FederationExecutionDoesNotExist dne) {
+            log("No need to destroy federation, it doesn't exist");
+        } catch (FederatesCurrentlyJoined fcj) {
+            log("Didn't destroy federation, federates still joined");
         }
     }
 
@@ -160,35 +222,57 @@ public class StatisticFederate {
         log("---------------------------------------------------------------------------------------");
     }
 
-    private void doThings() {
+    private void doThings() throws RTIexception {
+        requestDiscoveredAttributeValues();
         checkouts.forEach(System.out::println);
         log("");
         log("INTERACTIONS COUNTER");
         log(interactionsCounter.toString());
         log("OBJECTS COUNTER");
         log(objectsCounter.toString());
-        Optional<Map.Entry<Double, Integer>> maxInteractionsInTime =
-                timeInteractionsNoMap.entrySet().stream().max(Map.Entry.comparingByValue());
-        maxInteractionsInTime.ifPresent(logicalTimeIntegerEntry ->
-                log("MOST INTERACTIONS (" + logicalTimeIntegerEntry.getValue()
-                        + ") OCCURRED IN " + logicalTimeIntegerEntry.getKey() + " TIME UNIT"));
+        if (aggregates.getMostInteractions() > 0) {
+            log("MOST INTERACTIONS (" + aggregates.getMostInteractions()
+                    + ") OCCURRED IN " + aggregates.getMostInteractionsTime() + " TIME UNIT");
+            log("INTERACTIONS PER TICK: (" + aggregates.interactionsPerTick + ")");
+        }
         log("AVERAGE SERVICE TIME");
         clientStatistic();
         checkoutStatistic();
         queueStatistic();
     }
 
+    private void requestDiscoveredAttributeValues() throws RTIexception {
+        for (ObjectInstanceHandle handle : clients.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, clientAttributes, generateTag());
+        }
+        for (ObjectInstanceHandle handle : checkouts.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, checkoutAttributes, generateTag());
+        }
+        for (ObjectInstanceHandle handle : queues.drainDiscovered()) {
+            rtiamb.requestAttributeValueUpdate(handle, queueAttributes, generateTag());
+        }
+    }
+
+    private byte[] generateTag() {
+        return ("(timestamp) " + System.currentTimeMillis()).getBytes();
+    }
+
     private void clientStatistic() {
         log("");
         log("CLIENT STATISTIC");
         log("---------------------------------------------------------------------------------------");
-        long privilegedClients = clients.stream().filter(Client::isPrivileged).count();
+        long privilegedClients = aggregates.privilegedClients;
         log("              CLIENTS: (" + clients.size() + ")");
         log("   PRIVILEGED CLIENTS: (" + privilegedClients + ")");
         log(" UNPRIVILEGED CLIENTS: (" + (clients.size() - privilegedClients) + ")");
-        double averageShoppingTime = clients.stream()
-                .mapToDouble(c -> c.getEndShoppingTime() - c.getArrivalTime()).average().orElse(0);
-        log("AVERAGE SHOPPING TIME: (" + (averageShoppingTime) + ")");
+        log("AVERAGE SHOPPING TIME: (" + aggregates.shoppingTime.getMean() + ")");
+        log("        SHOPPING TIME: (" + aggregates.shoppingTime + ")");
+        log("SHOPPING TIME PCTILES: (" + aggregates.shoppingTimes + ")");
+        log("         CLIENTS LEFT: (" + aggregates.clientsLeft + ")");
+        log("      PRIVILEGED LEFT: (" + aggregates.privilegedClientsLeft + ")");
+        log("        TIME IN STORE: (" + aggregates.timeInStore + ")");
+        log("TIME IN STORE PCTILES: (" + aggregates.timesInStore + ")");
+        log("   LATEST LEFT BUCKET: (" + aggregates.getLatestBucket() + ")");
     }
 
     private void queueStatistic() {
@@ -196,16 +280,13 @@ public class StatisticFederate {
         log("QUEUE STATISTIC");
         log("---------------------------------------------------------------------------------------");
         log("               QUEUES: (" + queues.size() + ")");
-        int maxSizeOfOpenQueue = queues.stream().mapToInt(Queue::getMaxSize).max().orElse(0);
-        log("  OPEN QUEUE MAX SIZE: (" + maxSizeOfOpenQueue + ")");
-        int openQueuesSizeSum = queues.stream().mapToInt(Queue::getMaxSize).sum();
-        log("  OPEN QUEUE SIZE SUM: (" + openQueuesSizeSum + ")");
-        int allQueuesSizeSum = queues.stream().mapToInt(Queue::getOriginalMaxSize).sum();
-        log("       QUEUE SIZE SUM: (" + allQueuesSizeSum + ")");
-        int currentSizeSum = queues.stream().mapToInt(Queue::getCurrentSize).sum();
-        log("     CURRENT SIZE SUM: (" + currentSizeSum + ")");
-        double averageQueueSize = queues.stream().filter(queue -> queue.getCurrentSize() > 0).mapToInt(Queue::getCurrentSize).average().orElse(0);
-        log("   AVERAGE QUEUE SIZE: (" + averageQueueSize + ")");
+        log("  OPEN QUEUE MAX SIZE: (" + aggregates.getOpenQueueMaxSize() + ")");
+        log("  OPEN QUEUE SIZE SUM: (" + aggregates.openQueueSizeSum + ")");
+        log("       QUEUE SIZE SUM: (" + aggregates.queueSizeSum + ")");
+        log("     CURRENT SIZE SUM: (" + aggregates.currentSizeSum + ")");
+        log("   AVERAGE QUEUE SIZE: (" + aggregates.getAverageQueueSize() + ")");
+        log("     REFLECTED LENGTH: (" + aggregates.queueLength + ")");
+        log(" QUEUE LENGTH PCTILES: (" + aggregates.queueLengths + ")");
     }
 
     private void checkoutStatistic() {
@@ -213,169 +294,215 @@ public class StatisticFederate {
         log("CHECKOUT STATISTIC");
         log("---------------------------------------------------------------------------------------");
         log("            CHECKOUTS: (" + checkouts.size() + ")");
-        long openCheckouts = checkouts.stream().filter(Checkout::isOpen).count();
+        long openCheckouts = aggregates.openCheckouts;
         log("       OPEN CHECKOUTS: (" + openCheckouts + ")");
         log("     CLOSED CHECKOUTS: (" + (checkouts.size() - openCheckouts) + ")");
     }
 
+    /**
+     * Joins {@code federationName} without the start-up handshake or a time policy, so that
+     * benchmarks can feed callbacks to the returned ambassador and run the federate's logic directly.
+     */
+    StatisticAmbassador attach(RtiFactory rtiFactory, String federationName, String federateName) throws RTIexception {
+        rtiamb = rtiFactory.getRtiAmbassador();
+        encoderFactory = rtiFactory.getEncoderFactory();
+        fedamb = new StatisticAmbassador(this, false);
+        fedamb.roster = roster;
+        rtiamb.connect(fedamb, CallbackModel.HLA_EVOKED);
+        rtiamb.joinFederationExecution(federateName, federationName);
+        this.timeFactory = (HLAfloat64TimeFactory) rtiamb.getTimeFactory();
+        publishAndSubscribe();
+        return fedamb;
+    }
+
+    /**
+     * As an observer the federate is time-constrained only: it still receives every update in
+     * timestamp order and is granted tick by tick, but it never sends timestamped messages, so it
+     * stays out of everyone else's GALT and a slow report cannot hold back their grants.
+     */
     private void enableTimePolicy() throws Exception {
-        HLAfloat64Interval lookahead = timeFactory.makeInterval(fedamb.federateLookahead);
-        this.rtiamb.enableTimeRegulation(lookahead);
-        while (!fedamb.isRegulating) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
+        if (!observer) {
+            HLAfloat64Interval lookahead = timeFactory.makeInterval(fedamb.federateLookahead);
+            this.rtiamb.enableTimeRegulation(lookahead);
+            callbackWaiter.await(rtiamb, () -> fedamb.isRegulating);
         }
         this.rtiamb.enableTimeConstrained();
-        while (!fedamb.isConstrained) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        callbackWaiter.await(rtiamb, () -> fedamb.isConstrained);
     }
 
     private void publishAndSubscribe() throws RTIexception {
+        fom = new ShopFom(rtiamb);
+        fedamb.dispatcher = new ShopFomDispatcher(fom, fedamb);
+
         //otwarcie kasy
-        openCheckoutInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.OpenCheckout");
-        openCheckoutCheckoutId = rtiamb.getParameterHandle(openCheckoutInteractionHandle, "checkoutId");
-        rtiamb.subscribeInteractionClass(openCheckoutInteractionHandle);
+        openCheckoutInteractionHandle = fom.openCheckout.handle;
+        fom.openCheckout.subscribe(rtiamb);
 
         //wybranie kolejki
-        chooseQueueInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.ChooseQueue");
-        chooseQueueCheckoutId = rtiamb.getParameterHandle(chooseQueueInteractionHandle, "checkoutId");
-        chooseQueueClientId = rtiamb.getParameterHandle(chooseQueueInteractionHandle, "clientId");
-        rtiamb.subscribeInteractionClass(chooseQueueInteractionHandle);
+        chooseQueueInteractionHandle = fom.chooseQueue.handle;
+        fom.chooseQueue.subscribe(rtiamb);
 
         //zamkniecie kasy
-        closeCheckoutInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.CloseCheckout");
-        closeCheckoutCheckoutId = rtiamb.getParameterHandle(closeCheckoutInteractionHandle, "checkoutId");
-        rtiamb.subscribeInteractionClass(closeCheckoutInteractionHandle);
+        closeCheckoutInteractionHandle = fom.closeCheckout.handle;
+        fom.closeCheckout.subscribe(rtiamb);
 
         //zakonczenie obslugi
-        endServiceInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.EndService");
-        endServiceCheckoutId = rtiamb.getParameterHandle(endServiceInteractionHandle, "checkoutId");
-        endServiceClientId = rtiamb.getParameterHandle(endServiceInteractionHandle, "clientId");
-        rtiamb.subscribeInteractionClass(endServiceInteractionHandle);
+        endServiceInteractionHandle = fom.endService.handle;
+        fom.endService.subscribe(rtiamb);
 
         // rozpoczecie obslugi
-        clientExitInteractionHandle = rtiamb.getInteractionClassHandle("HLAinteractionRoot.ClientExit");
-        clientExitCheckoutIdParameter = rtiamb.getParameterHandle(clientExitInteractionHandle, "checkoutId");
-        clientExitClientIdParameter = rtiamb.getParameterHandle(clientExitInteractionHandle, "clientId");
-        rtiamb.subscribeInteractionClass(clientExitInteractionHandle);
+        clientExitInteractionHandle = fom.clientExit.handle;
+        fom.clientExit.subscribe(rtiamb);
 
         // discover object kasa
-        checkoutObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Checkout");
-        checkoutIsOpened = rtiamb.getAttributeHandle(checkoutObjectHandle, "isOpened");
-        checkoutQueueId = rtiamb.getAttributeHandle(checkoutObjectHandle, "queueId");
-        checkoutId = rtiamb.getAttributeHandle(checkoutObjectHandle, "checkoutId");
-        AttributeHandleSet checkoutAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        checkoutAttributes.add(checkoutIsOpened);
-        checkoutAttributes.add(checkoutId);
-        checkoutAttributes.add(checkoutQueueId);
+        checkoutObjectHandle = fom.checkout.handle;
+        checkoutAttributes = fom.checkout.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(checkoutObjectHandle, checkoutAttributes);
 
         // discover object kolejka
-        queueObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Queue");
-        queueMaxSize = rtiamb.getAttributeHandle(queueObjectHandle, "maxSize");
-        queueCurrentSize = rtiamb.getAttributeHandle(queueObjectHandle, "currentSize");
-        queueId = rtiamb.getAttributeHandle(queueObjectHandle, "queueId");
-        AttributeHandleSet queueAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        queueAttributes.add(queueMaxSize);
-        queueAttributes.add(queueCurrentSize);
-        queueAttributes.add(queueId);
+        queueObjectHandle = fom.queue.handle;
+        queueAttributes = fom.queue.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(queueObjectHandle, queueAttributes);
 
         // discover object klient
-        clientObjectHandle = rtiamb.getObjectClassHandle("HLAobjectRoot.Client");
-        clientIsPrivileged = rtiamb.getAttributeHandle(clientObjectHandle, "isPrivileged");
-        clientEndShoppingTime = rtiamb.getAttributeHandle(clientObjectHandle, "endShoppingTime");
-        clientId = rtiamb.getAttributeHandle(clientObjectHandle, "clientId");
-        AttributeHandleSet clientAttributes = rtiamb.getAttributeHandleSetFactory().create();
-        clientAttributes.add(clientIsPrivileged);
-        clientAttributes.add(clientEndShoppingTime);
-        clientAttributes.add(clientId);
+        clientObjectHandle = fom.client.handle;
+        clientAttributes = fom.client.attributeSet(rtiamb);
         rtiamb.subscribeObjectClassAttributes(clientObjectHandle, clientAttributes);
         rtiamb.publishObjectClassAttributes(clientObjectHandle, clientAttributes);
     }
 
-    private void advanceTime(double timestep) throws RTIexception {
+    private void advanceTime(double requestedTime) throws RTIexception {
         fedamb.isAdvancing = true;
-        HLAfloat64Time time = timeFactory.makeTime(fedamb.federateTime + timestep);
-        rtiamb.timeAdvanceRequest(time);
-        while (fedamb.isAdvancing) {
-            rtiamb.evokeMultipleCallbacks(0.1, 0.2);
-        }
+        HLAfloat64Time time = timeFactory.makeTime(requestedTime);
+        timeAdvance.request(rtiamb, time);
+        callbackWaiter.awaitGrant(rtiamb, () -> !fedamb.isAdvancing);
+    }
+
+    /**
+     * This federate only reacts to reflections and interactions, so in event-driven
+     * mode it waits for the next message.
+     */
+    private double nextEventTime() {
+        return Double.POSITIVE_INFINITY;
     }
 
     void addNewClientObject(ObjectInstanceHandle theObject) {
-        clients.add(new Client(theObject));
+        clients.discover(theObject);
+    }
+
+    /**
+     * Folds a client that left the store into the aggregates and drops it. A removal without a
+     * timestamp comes from the owner resigning, not from the client leaving.
+     */
+    void removeClientObject(ObjectInstanceHandle theObject, LogicalTime time) {
+        Client client = clients.remove(theObject);
+        if (client == null) {
+            return;
+        }
+        if (time == null) {
+            aggregates.clientDropped(client);
+        } else {
+            double leftTime = ((HLAfloat64Time) time).getValue();
+            aggregates.clientLeft(client, leftTime);
+            spill.write(client, leftTime);
+        }
     }
 
     void addNewCheckoutObject(ObjectInstanceHandle theObject) {
-        checkouts.add(new Checkout(theObject));
+        aggregates.add(checkouts.discover(theObject));
     }
 
     void addNewQueueObject(ObjectInstanceHandle theObject) {
-        queues.add(new Queue(theObject));
+        aggregates.add(queues.discover(theObject));
+    }
+
+    void removeCheckoutObject(ObjectInstanceHandle theObject) {
+        Checkout checkout = checkouts.remove(theObject);
+        if (checkout != null) {
+            aggregates.remove(checkout);
+        }
+    }
+
+    void removeQueueObject(ObjectInstanceHandle theObject) {
+        Queue queue = queues.remove(theObject);
+        if (queue != null) {
+            aggregates.remove(queue);
+        }
+    }
+
+    @Override
+    public int getLiveObjects() {
+        return clients.size() + queues.size() + checkouts.size();
     }
 
     void updateClient(ObjectInstanceHandle handle, int clientId, boolean isPrivileged, int endShoppingTime,
                       LogicalTime time) {
         Double timeInDouble = Double.valueOf(time.toString());
-        for (Client client : clients) {
-            if (client.getRtiHandler().equals(handle)) {
-                client.setClientId(clientId);
-                client.setPrivileged(isPrivileged);
-                client.setEndShoppingTime(endShoppingTime);
-                if (client.getArrivalTime() == -1) {
-                    client.setArrivalTime(timeInDouble.intValue() - 1);
-                }
+        Client client = clients.get(handle);
+        if (client != null) {
+            aggregates.clientPrivilegeChanged(client.isPrivileged(), isPrivileged);
+            client.setClientId(clientId);
+            client.setPrivileged(isPrivileged);
+            client.setEndShoppingTime(endShoppingTime);
+            if (client.getArrivalTime() == -1) {
+                client.setArrivalTime(timeInDouble.intValue() - 1);
+                aggregates.clientArrived(client.getArrivalTime(), endShoppingTime);
             }
+            clients.index(client);
         }
     }
 
     void updateQueue(ObjectInstanceHandle handle, int queueId, int queueMaxSize, int queueCurrentSize) {
-        for (Queue queue : queues) {
-            if (queue.getRtiHandler().equals(handle)) {
-                queue.setQueueId(queueId);
-                queue.setMaxSize(queueMaxSize);
-                queue.setCurrentSize(queueCurrentSize);
-                if (queueMaxSize != 0) {
-                    queue.setOriginalMaxSize(queueMaxSize);
-                }
+        Queue queue = queues.get(handle);
+        if (queue != null) {
+            aggregates.remove(queue);
+            queue.setQueueId(queueId);
+            queue.setMaxSize(queueMaxSize);
+            queue.setCurrentSize(queueCurrentSize);
+            if (queueMaxSize != 0) {
+                queue.setOriginalMaxSize(queueMaxSize);
             }
+            queues.index(queue);
+            aggregates.add(queue);
+            aggregates.queueReflected(queue);
         }
     }
 
     void updateCheckout(ObjectInstanceHandle handle, int checkoutId, boolean open, int queueId) {
-        for (Checkout queue : checkouts) {
-            if (queue.getRtiHandler().equals(handle)) {
-                queue.setQueueId(queueId);
-                queue.setOpen(open);
-                queue.setCheckoutId(checkoutId);
-            }
+        Checkout checkout = checkouts.get(handle);
+        if (checkout != null) {
+            aggregates.remove(checkout);
+            checkout.setQueueId(queueId);
+            checkout.setOpen(open);
+            checkout.setCheckoutId(checkoutId);
+            checkouts.index(checkout);
+            aggregates.add(checkout);
         }
     }
 
     void receiveEndServiceInteraction(InteractionClassHandle interactionClass, LogicalTime time,
                                       int checkoutId, int clientId) {
-        timeInteractionsNoMap.merge(Double.valueOf(time.toString()), 1, Integer::sum);
+        aggregates.interaction(((HLAfloat64Time) time).getValue());
 
     }
 
     void receiveOpenCheckoutInteraction(InteractionClassHandle interactionClass, LogicalTime time,
                                         int checkoutId) {
-        timeInteractionsNoMap.merge(Double.valueOf(time.toString()), 1, Integer::sum);
+        aggregates.interaction(((HLAfloat64Time) time).getValue());
     }
 
     void receiveCloseCheckoutInteraction(InteractionClassHandle interactionClass, LogicalTime time,
                                          int checkoutId) {
-        timeInteractionsNoMap.merge(Double.valueOf(time.toString()), 1, Integer::sum);
+        aggregates.interaction(((HLAfloat64Time) time).getValue());
     }
 
     void receiveClientExitInteraction(InteractionClassHandle interactionClass, LogicalTime time,
                                         int checkoutId, int clientId) {
-        timeInteractionsNoMap.merge(Double.valueOf(time.toString()), 1, Integer::sum);
+        aggregates.interaction(((HLAfloat64Time) time).getValue());
     }
 
     void receiveChooseQueueInteraction(InteractionClassHandle interactionClass, LogicalTime time,
                                        int queueId, int clientId) {
-        timeInteractionsNoMap.merge(Double.valueOf(time.toString()), 1, Integer::sum);
+        aggregates.interaction(((HLAfloat64Time) time).getValue());
     }
 }
\ No newline at end of file
@@ -0,0 +1,289 @@
+package shop.sim;
+
+import shop.object.Checkout;
+import shop.object.Client;
+import shop.object.Queue;
+import shop.rti.client.ArrivalProcess;
+import shop.utils.EventScheduler;
+import shop.utils.FederateConfig;
+
+import java.util.*;
+
+import static shop.object.Client.PRIVILEGED_CLIENT_PROBABILITY;
+
+/**
+ * Runs the whole shop model inside one JVM without an RTI.
+ * <p>
+ * Every tick mirrors one time step of the federation: events that were sent with
+ * lookahead 1.0 are delivered first, then client, queue, checkout, manager and
+ * statistic logic run in that order. Interactions are scheduled one tick ahead,
+ * so the timing matches a federated run with TSO delivery. Clients arrive as the
+ * client federate's {@link ArrivalProcess} draws them, configured by the same
+ * {@code arrival.*} keys.
+ */
+public class ShopSimulation {
+
+    private static final double LOOKAHEAD = 1.0;
+
+    private final Random random;
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private long eventSequence = 0;
+    private double time = 0.0;
+
+    // client
+    private final Map<Integer, Client> clients = new LinkedHashMap<>();
+    private final List<Client> clientsToDelete = new ArrayList<>();
+    private final Map<Integer, Integer> chosenThisTick = new HashMap<>();
+    private final ArrivalProcess arrivals;
+    private int nextClientId = 0;
+    // queue
+    private final Map<Integer, Queue> queues = new LinkedHashMap<>();
+    private final List<Client> clientsToExit = new ArrayList<>();
+    // checkout
+    private final Map<Integer, Checkout> checkouts = new LinkedHashMap<>();
+    private final EventScheduler<Integer> serviceCompletions = new EventScheduler<>();
+    private final Set<Integer> queuesNowServicing = new HashSet<>();
+    private int nextCheckoutId = 0;
+    // manager
+    private int servicedClientsNo = 0;
+    private int arrivedClientsNo = 0;
+    // statistic
+    private final ShopStatistics statistics = new ShopStatistics(queues.values(), checkouts.values());
+
+    public ShopSimulation(long seed) {
+        this(seed, new FederateConfig());
+    }
+
+    public ShopSimulation(long seed, FederateConfig config) {
+        this.random = new Random(seed);
+        this.arrivals = ArrivalProcess.fromConfig(config, random);
+        arrivals.scheduleAfter(time);
+        openNewCheckout();
+    }
+
+    public static void main(String[] args) {
+        FederateConfig config = FederateConfig.load(args);
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                positional.add(arg);
+            }
+        }
+        long ticks = positional.size() > 0 ? Long.parseLong(positional.get(0)) : 1_000_000L;
+        long seed = positional.size() > 1 ? Long.parseLong(positional.get(1)) : System.nanoTime();
+        ShopSimulation simulation = new ShopSimulation(seed, config);
+        long start = System.nanoTime();
+        simulation.run(ticks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        simulation.getStatistics().print(System.out);
+        System.out.println("Simulation   : " + ticks + " ticks in " + seconds + " s ("
+                + (long) (ticks / seconds) + " ticks/s)");
+    }
+
+    public void run(long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            step();
+        }
+    }
+
+    public void step() {
+        time += 1.0;
+        deliverEvents();
+        clientTick();
+        queueTick();
+        checkoutTick();
+        managerTick();
+        statistics.endTick(time);
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public ShopStatistics getStatistics() {
+        return statistics;
+    }
+
+    private void deliverEvents() {
+        while (!events.isEmpty() && events.peek().time <= time) {
+            events.poll().action.run();
+            statistics.interaction(time);
+        }
+    }
+
+    private void send(Runnable action) {
+        events.add(new Event(time + LOOKAHEAD, eventSequence++, action));
+    }
+
+    private void clientTick() {
+        for (Client client : clientsToDelete) {
+            clients.remove(client.getClientId());
+        }
+        clientsToDelete.clear();
+        chosenThisTick.clear();
+        List<Queue> openQueues = new ArrayList<>();
+        for (Queue queue : queues.values()) {
+            if (queue.isOpen()) {
+                openQueues.add(queue);
+            }
+        }
+        for (Client client : clients.values()) {
+            if (client.isWaitingInQueue() || !client.hasFinishedShopping(time)) {
+                continue;
+            }
+            openQueues.sort(Comparator.comparingInt(this::viewedSize));
+            for (Queue queue : openQueues) {
+                if (queue.getMaxSize() > viewedSize(queue) + 1) {
+                    chosenThisTick.merge(queue.getQueueId(), 1, Integer::sum);
+                    client.setWaitingInQueue(true);
+                    send(() -> queue.addClient(client));
+                    break;
+                }
+            }
+        }
+        if (arrivals.getNextTime() > time) {
+            return;
+        }
+        for (int i = 0; i < arrivals.getNextCount(); i++) {
+            Client client = new Client(nextClientId++, random.nextInt(PRIVILEGED_CLIENT_PROBABILITY) == 0,
+                    random.nextInt(Client.MAX_SHOPPING_TIME) + 1 + (int) time);
+            client.setArrivalTime((int) time);
+            clients.put(client.getClientId(), client);
+            arrivedClientsNo++;
+            statistics.clientArrived(client);
+        }
+        arrivals.scheduleAfter(time);
+    }
+
+    /**
+     * Queue size as seen by the client logic: the last published size plus the
+     * clients that already chose this queue during the current tick.
+     */
+    private int viewedSize(Queue queue) {
+        return queue.getCurrentSize() + chosenThisTick.getOrDefault(queue.getQueueId(), 0);
+    }
+
+    private void queueTick() {
+        for (Client client : clientsToExit) {
+            send(() -> clientsToDelete.add(client));
+        }
+        clientsToExit.clear();
+    }
+
+    private void checkoutTick() {
+        for (Checkout checkout : checkouts.values()) {
+            Queue queue = queues.get(checkout.getQueueId());
+            if (queue != null && queue.getCurrentSize() > 0 && queuesNowServicing.add(queue.getQueueId())) {
+                serviceCompletions.schedule(time + random.nextInt(Checkout.MAX_SERVICE_TIME), queue.getQueueId());
+            }
+        }
+        for (Integer queueId = serviceCompletions.pollDue(time); queueId != null;
+             queueId = serviceCompletions.pollDue(time)) {
+            queuesNowServicing.remove(queueId);
+            int id = queueId;
+            send(() -> endService(id));
+        }
+    }
+
+    private void endService(int queueId) {
+        servicedClientsNo++;
+        Queue queue = queues.get(queueId);
+        if (queue != null) {
+            Client client = queue.pollClient();
+            if (client != null) {
+                clientsToExit.add(client);
+                statistics.clientServiced(client, time);
+            }
+        }
+    }
+
+    private void managerTick() {
+        boolean hasBeenOpen = false;
+        int queuesMaxSizeSum = 0;
+        for (Queue queue : queues.values()) {
+            queuesMaxSizeSum += queue.getMaxSize();
+        }
+        if (queuesMaxSizeSum < arrivedClientsNo - servicedClientsNo) {
+            Checkout closedCheckout = null;
+            for (Checkout checkout : checkouts.values()) {
+                if (!checkout.isOpen()) {
+                    closedCheckout = checkout;
+                    break;
+                }
+            }
+            if (closedCheckout == null) {
+                send(this::openNewCheckout);
+            } else {
+                int id = closedCheckout.getQueueId();
+                send(() -> openExistingCheckout(id));
+            }
+            hasBeenOpen = true;
+        }
+        if (!hasBeenOpen && countOpenCheckouts() > 1) {
+            for (Checkout checkout : checkouts.values()) {
+                Queue queue = queues.get(checkout.getQueueId());
+                if (queue != null && queue.getCurrentSize() < 1 && checkout.isOpen()
+                        && queuesMaxSizeSum < arrivedClientsNo - queue.getMaxSize()) {
+                    int id = queue.getQueueId();
+                    send(() -> closeCheckout(id));
+                }
+            }
+        }
+    }
+
+    private int countOpenCheckouts() {
+        int open = 0;
+        for (Checkout checkout : checkouts.values()) {
+            if (checkout.isOpen()) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    private void openNewCheckout() {
+        int id = nextCheckoutId++;
+        checkouts.put(id, new Checkout(id, id, true));
+        queues.put(id, new Queue(id, random.nextInt(Queue.MAX_SIZE) + 1));
+    }
+
+    private void openExistingCheckout(int id) {
+        Checkout checkout = checkouts.get(id);
+        if (checkout != null) {
+            checkout.setOpen(true);
+        }
+        Queue queue = queues.get(id);
+        if (queue != null) {
+            queue.setMaxSize(queue.getOriginalMaxSize());
+        }
+    }
+
+    private void closeCheckout(int id) {
+        Checkout checkout = checkouts.get(id);
+        if (checkout != null) {
+            checkout.setOpen(false);
+        }
+        Queue queue = queues.get(id);
+        if (queue != null) {
+            queue.setMaxSize(0);
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+        private final double time;
+        private final long sequence;
+        private final Runnable action;
+
+        private Event(double time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Double.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
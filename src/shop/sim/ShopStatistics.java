@@ -0,0 +1,100 @@
+package shop.sim;
+
+import shop.object.Checkout;
+import shop.object.Client;
+import shop.object.Queue;
+
+import java.io.PrintStream;
+import java.util.Collection;
+
+/**
+ * Aggregates reported by {@link ShopSimulation}, laid out like the StatisticFederate console report
+ * so standalone and federated runs can be compared side by side.
+ */
+public class ShopStatistics {
+
+    private final Collection<Queue> queues;
+    private final Collection<Checkout> checkouts;
+    private long clients = 0;
+    private long privilegedClients = 0;
+    private long shoppingTimeSum = 0;
+    private long servicedClients = 0;
+    private double waitingTimeSum = 0;
+    private long interactions = 0;
+    private long interactionsInTick = 0;
+    private long maxInteractionsInTick = 0;
+    private double maxInteractionsTime = 0;
+
+    ShopStatistics(Collection<Queue> queues, Collection<Checkout> checkouts) {
+        this.queues = queues;
+        this.checkouts = checkouts;
+    }
+
+    void clientArrived(Client client) {
+        clients++;
+        if (client.isPrivileged()) {
+            privilegedClients++;
+        }
+        shoppingTimeSum += client.getEndShoppingTime() - client.getArrivalTime();
+    }
+
+    void clientServiced(Client client, double time) {
+        servicedClients++;
+        waitingTimeSum += time - client.getEndShoppingTime();
+    }
+
+    void interaction(double time) {
+        interactions++;
+        interactionsInTick++;
+    }
+
+    void endTick(double time) {
+        if (interactionsInTick > maxInteractionsInTick) {
+            maxInteractionsInTick = interactionsInTick;
+            maxInteractionsTime = time;
+        }
+        interactionsInTick = 0;
+    }
+
+    public long getClients() {
+        return clients;
+    }
+
+    public long getServicedClients() {
+        return servicedClients;
+    }
+
+    public double getAverageShoppingTime() {
+        return clients == 0 ? 0 : (double) shoppingTimeSum / clients;
+    }
+
+    public double getAverageWaitingTime() {
+        return servicedClients == 0 ? 0 : waitingTimeSum / servicedClients;
+    }
+
+    public void print(PrintStream out) {
+        out.println("Statistic   : INTERACTIONS: (" + interactions + ")");
+        out.println("Statistic   : MOST INTERACTIONS (" + maxInteractionsInTick
+                + ") OCCURRED IN " + maxInteractionsTime + " TIME UNIT");
+        out.println("Statistic   : CLIENT STATISTIC");
+        out.println("Statistic   :               CLIENTS: (" + clients + ")");
+        out.println("Statistic   :    PRIVILEGED CLIENTS: (" + privilegedClients + ")");
+        out.println("Statistic   :  UNPRIVILEGED CLIENTS: (" + (clients - privilegedClients) + ")");
+        out.println("Statistic   : AVERAGE SHOPPING TIME: (" + getAverageShoppingTime() + ")");
+        out.println("Statistic   :      SERVICED CLIENTS: (" + servicedClients + ")");
+        out.println("Statistic   :  AVERAGE WAITING TIME: (" + getAverageWaitingTime() + ")");
+        out.println("Statistic   : CHECKOUT STATISTIC");
+        long openCheckouts = checkouts.stream().filter(Checkout::isOpen).count();
+        out.println("Statistic   :             CHECKOUTS: (" + checkouts.size() + ")");
+        out.println("Statistic   :        OPEN CHECKOUTS: (" + openCheckouts + ")");
+        out.println("Statistic   :      CLOSED CHECKOUTS: (" + (checkouts.size() - openCheckouts) + ")");
+        out.println("Statistic   : QUEUE STATISTIC");
+        out.println("Statistic   :                QUEUES: (" + queues.size() + ")");
+        out.println("Statistic   :   OPEN QUEUE MAX SIZE: (" + queues.stream().mapToInt(Queue::getMaxSize).max().orElse(0) + ")");
+        out.println("Statistic   :   OPEN QUEUE SIZE SUM: (" + queues.stream().mapToInt(Queue::getMaxSize).sum() + ")");
+        out.println("Statistic   :        QUEUE SIZE SUM: (" + queues.stream().mapToInt(Queue::getOriginalMaxSize).sum() + ")");
+        out.println("Statistic   :      CURRENT SIZE SUM: (" + queues.stream().mapToInt(Queue::getCurrentSize).sum() + ")");
+        out.println("Statistic   :    AVERAGE QUEUE SIZE: (" + queues.stream().filter(queue -> queue.getCurrentSize() > 0)
+                .mapToInt(Queue::getCurrentSize).average().orElse(0) + ")");
+    }
+}
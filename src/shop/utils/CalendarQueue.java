@@ -0,0 +1,101 @@
+package shop.utils;
+
+import java.util.Arrays;
+
+/**
+ * Timer wheel of int items (e.g. client slots) keyed by integer tick.
+ * <p>
+ * Items are put into the bucket of their tick, so draining a tick only touches the items
+ * that are due at it. Ticks further away than the wheel size share a bucket with earlier
+ * ticks and simply stay there until their own tick comes round. Items scheduled in the
+ * past are due at the next drain. Buckets are primitive arrays that are reused, so
+ * scheduling does not allocate once they have grown to the steady-state load.
+ */
+public class CalendarQueue {
+
+    private final long[][] ticks;
+    private final int[][] items;
+    private final int[] counts;
+    private final int mask;
+    private long cursor;
+    private int size = 0;
+
+    public CalendarQueue(int wheelSize, long startTick) {
+        int capacity = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.ticks = new long[capacity][16];
+        this.items = new int[capacity][16];
+        this.counts = new int[capacity];
+        this.mask = capacity - 1;
+        this.cursor = startTick;
+    }
+
+    public void schedule(long tick, int item) {
+        long due = Math.max(tick, cursor);
+        int bucket = (int) (due & mask);
+        int count = counts[bucket];
+        if (count == items[bucket].length) {
+            ticks[bucket] = Arrays.copyOf(ticks[bucket], count * 2);
+            items[bucket] = Arrays.copyOf(items[bucket], count * 2);
+        }
+        ticks[bucket][count] = due;
+        items[bucket][count] = item;
+        counts[bucket] = count + 1;
+        size++;
+    }
+
+    /**
+     * Moves every item due at or before {@code now} into {@code out}, in tick order.
+     */
+    public void pollDue(long now, IntList out) {
+        if (now < cursor) {
+            return;
+        }
+        long last = Math.min(now, cursor + mask);
+        for (long tick = cursor; tick <= last && size > 0; tick++) {
+            int bucket = (int) (tick & mask);
+            long[] bucketTicks = ticks[bucket];
+            int[] bucketItems = items[bucket];
+            int kept = 0;
+            for (int i = 0; i < counts[bucket]; i++) {
+                if (bucketTicks[i] <= now) {
+                    out.add(bucketItems[i]);
+                    size--;
+                } else {
+                    bucketTicks[kept] = bucketTicks[i];
+                    bucketItems[kept] = bucketItems[i];
+                    kept++;
+                }
+            }
+            counts[bucket] = kept;
+        }
+        cursor = now + 1;
+    }
+
+    /**
+     * Returns the earliest scheduled tick, or {@link Long#MAX_VALUE} when nothing is scheduled.
+     */
+    public long nextTick() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        long next = Long.MAX_VALUE;
+        for (long tick = cursor; tick <= cursor + mask; tick++) {
+            int bucket = (int) (tick & mask);
+            for (int i = 0; i < counts[bucket]; i++) {
+                if (ticks[bucket][i] == tick) {
+                    return tick;
+                }
+                next = Math.min(next, ticks[bucket][i]);
+            }
+        }
+        return next;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
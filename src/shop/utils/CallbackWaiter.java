@@ -0,0 +1,94 @@
+package shop.utils;
+
+import hla.rti1516e.RTIambassador;
+import hla.rti1516e.exceptions.RTIexception;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Waits for RTI callbacks without a fixed polling interval.
+ * <p>
+ * Instead of {@code evokeMultipleCallbacks(0.1, 0.2)}, which always spends at least 100 ms
+ * per call, the waiter calls {@code evokeCallback} with a short timeout that returns as soon
+ * as a callback has been delivered. While nothing arrives the timeout grows by
+ * {@code callbacks.backoff} up to {@code callbacks.max-wait} seconds, and it goes back to
+ * {@code callbacks.min-wait} after every delivered callback.
+ * Time spent waiting for time advance grants is measured.
+ */
+public class CallbackWaiter {
+
+    private final double minWait;
+    private final double maxWait;
+    private final double backoff;
+    private long grants = 0;
+    private long lastGrantWaitNanos = 0;
+    private long totalGrantWaitNanos = 0;
+    private long maxGrantWaitNanos = 0;
+
+    public CallbackWaiter(double minWait, double maxWait, double backoff) {
+        this.minWait = minWait;
+        this.maxWait = maxWait;
+        this.backoff = backoff;
+    }
+
+    public static CallbackWaiter fromConfig(FederateConfig config) {
+        return new CallbackWaiter(config.getDouble("callbacks.min-wait", 0.001),
+                config.getDouble("callbacks.max-wait", 0.1),
+                config.getDouble("callbacks.backoff", 2.0));
+    }
+
+    /**
+     * Delivers callbacks until {@code condition} holds.
+     */
+    public void await(RTIambassador rtiamb, BooleanSupplier condition) throws RTIexception {
+        double wait = minWait;
+        while (!condition.getAsBoolean()) {
+            if (rtiamb.evokeCallback(wait)) {
+                wait = minWait;
+            } else {
+                wait = Math.min(wait * backoff, maxWait);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #await} but records the wall time spent as grant wait.
+     */
+    public void awaitGrant(RTIambassador rtiamb, BooleanSupplier granted) throws RTIexception {
+        long start = System.nanoTime();
+        await(rtiamb, granted);
+        lastGrantWaitNanos = System.nanoTime() - start;
+        totalGrantWaitNanos += lastGrantWaitNanos;
+        maxGrantWaitNanos = Math.max(maxGrantWaitNanos, lastGrantWaitNanos);
+        grants++;
+    }
+
+    public long getGrants() {
+        return grants;
+    }
+
+    public long getLastGrantWaitNanos() {
+        return lastGrantWaitNanos;
+    }
+
+    public double getLastGrantWaitMillis() {
+        return lastGrantWaitNanos / 1e6;
+    }
+
+    public double getTotalGrantWaitMillis() {
+        return totalGrantWaitNanos / 1e6;
+    }
+
+    public double getAverageGrantWaitMillis() {
+        return grants == 0 ? 0 : totalGrantWaitNanos / 1e6 / grants;
+    }
+
+    public double getMaxGrantWaitMillis() {
+        return maxGrantWaitNanos / 1e6;
+    }
+
+    public String report() {
+        return "grants=" + grants + ", grant wait total=" + getTotalGrantWaitMillis() + " ms"
+                + ", avg=" + getAverageGrantWaitMillis() + " ms, max=" + getMaxGrantWaitMillis() + " ms";
+    }
+}
@@ -0,0 +1,62 @@
+package shop.utils;
+
+import java.util.PriorityQueue;
+
+/**
+ * Pending events ordered by their (possibly fractional) time. Events with the same time
+ * come out in the order they were scheduled. Scheduling and popping are O(log n).
+ */
+public class EventScheduler<T> {
+
+    private final PriorityQueue<Event<T>> events = new PriorityQueue<>();
+    private long sequence = 0;
+
+    public void schedule(double time, T payload) {
+        events.add(new Event<>(time, sequence++, payload));
+    }
+
+    /**
+     * Removes and returns the earliest event due at or before {@code now}, or null if none is due.
+     */
+    public T pollDue(double now) {
+        Event<T> head = events.peek();
+        if (head == null || head.time > now) {
+            return null;
+        }
+        return events.poll().payload;
+    }
+
+    /**
+     * Returns the time of the earliest pending event, or {@link Double#POSITIVE_INFINITY}.
+     */
+    public double nextTime() {
+        Event<T> head = events.peek();
+        return head == null ? Double.POSITIVE_INFINITY : head.time;
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    private static final class Event<T> implements Comparable<Event<T>> {
+        private final double time;
+        private final long sequence;
+        private final T payload;
+
+        private Event(double time, long sequence, T payload) {
+            this.time = time;
+            this.sequence = sequence;
+            this.payload = payload;
+        }
+
+        @Override
+        public int compareTo(Event<T> other) {
+            int byTime = Double.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
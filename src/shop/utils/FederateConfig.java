@@ -0,0 +1,112 @@
+package shop.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Runtime settings shared by all federates.
+ * <p>
+ * Values are read from {@code federate.properties} in the working directory (or the file given
+ * with {@code --config=path}) and can be overridden on the command line with {@code --key=value}.
+ * Arguments without the {@code --} prefix are kept as positional arguments, the first one being
+ * the federate name.
+ */
+public class FederateConfig {
+
+    public static final String DEFAULT_CONFIG_FILE = "federate.properties";
+    private static final String OPTION_PREFIX = "--";
+
+    private final Properties properties = new Properties();
+    private final List<String> positional = new ArrayList<>();
+    private URL[] fomModules;
+
+    public static FederateConfig load(String[] args) {
+        FederateConfig config = new FederateConfig();
+        Properties overrides = new Properties();
+        String configFile = DEFAULT_CONFIG_FILE;
+        for (String arg : args) {
+            if (arg.startsWith(OPTION_PREFIX)) {
+                String option = arg.substring(OPTION_PREFIX.length());
+                int separator = option.indexOf('=');
+                String key = separator < 0 ? option : option.substring(0, separator);
+                String value = separator < 0 ? "true" : option.substring(separator + 1);
+                if (key.equals("config")) {
+                    configFile = value;
+                } else {
+                    overrides.setProperty(key, value);
+                }
+            } else {
+                config.positional.add(arg);
+            }
+        }
+        File file = new File(configFile);
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                config.properties.load(in);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot read federate config " + file + ": " + e.getMessage(), e);
+            }
+        }
+        config.properties.putAll(overrides);
+        return config;
+    }
+
+    public String getFederateName(String defaultName) {
+        return positional.isEmpty() ? defaultName : positional.get(0);
+    }
+
+    public String get(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue).trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Overrides a setting after loading, e.g. when a launcher has to force a value.
+     */
+    public void set(String key, String value) {
+        properties.setProperty(key, value);
+    }
+
+    /**
+     * The FOM modules listed in {@code fom.modules} (FOM.xml by default). They are resolved
+     * once, so federates sharing a config also share the result.
+     */
+    public synchronized URL[] getFomModules() throws MalformedURLException {
+        if (fomModules == null) {
+            List<URL> modules = new ArrayList<>();
+            for (String module : get("fom.modules", "FOM.xml").split(",")) {
+                if (!module.trim().isEmpty()) {
+                    modules.add(new File(module.trim()).toURI().toURL());
+                }
+            }
+            fomModules = modules.toArray(new URL[0]);
+        }
+        return fomModules.clone();
+    }
+}
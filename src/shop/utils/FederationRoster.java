@@ -0,0 +1,166 @@
+package shop.utils;
+
+import hla.rti1516e.AttributeHandle;
+import hla.rti1516e.AttributeHandleSet;
+import hla.rti1516e.AttributeHandleValueMap;
+import hla.rti1516e.ObjectClassHandle;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.RTIambassador;
+import hla.rti1516e.encoding.DecoderException;
+import hla.rti1516e.encoding.EncoderFactory;
+import hla.rti1516e.encoding.HLAunicodeString;
+import hla.rti1516e.exceptions.RTIexception;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a federate may achieve the ReadyToRun sync point.
+ * <ul>
+ * <li>{@code interactive} - waits for Enter on System.in (the original behaviour)</li>
+ * <li>{@code headless} - subscribes to the MOM class {@code HLAmanager.HLAfederate} and waits
+ * until every federate named in {@code startup.roster} has joined, failing after
+ * {@code startup.timeout} seconds</li>
+ * </ul>
+ * While waiting the ambassador hands its discoveries and reflections to {@link #discover} and
+ * {@link #reflect} first; both return false for anything that is not a MOM federate object.
+ */
+public class FederationRoster {
+
+    public enum Mode {
+        INTERACTIVE, HEADLESS
+    }
+
+    private static final String MOM_FEDERATE_CLASS = "HLAobjectRoot.HLAmanager.HLAfederate";
+    private static final String MOM_FEDERATE_NAME = "HLAfederateName";
+    private static final long REQUEST_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final double POLL_WAIT = 0.1;
+
+    private final Mode mode;
+    private final Set<String> expected;
+    private final long timeoutSeconds;
+    private final Set<String> joined = new HashSet<>();
+    private final Set<ObjectInstanceHandle> momFederates = new HashSet<>();
+    private ObjectClassHandle federateClass;
+    private AttributeHandle federateName;
+    private HLAunicodeString nameDecoder;
+
+    public FederationRoster(Mode mode, Set<String> expected, long timeoutSeconds) {
+        if (mode == Mode.HEADLESS && expected.isEmpty()) {
+            throw new IllegalArgumentException("startup.roster must name at least one federate in headless mode");
+        }
+        this.mode = mode;
+        this.expected = expected;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public static FederationRoster fromConfig(FederateConfig config) {
+        Mode mode = Mode.valueOf(config.get("startup.mode", "interactive").toUpperCase());
+        Set<String> expected = new LinkedHashSet<>();
+        for (String name : config.get("startup.roster", "client,queue,checkout,manager,statistic").split(",")) {
+            if (!name.trim().isEmpty()) {
+                expected.add(name.trim());
+            }
+        }
+        return new FederationRoster(mode, expected, config.getLong("startup.timeout", 60));
+    }
+
+    /**
+     * Blocks until the federate may achieve ReadyToRun.
+     *
+     * @throws IllegalStateException if the roster is not complete within the timeout
+     */
+    public void await(RTIambassador rtiamb, EncoderFactory encoderFactory) throws RTIexception {
+        if (mode == Mode.INTERACTIVE) {
+            waitForUser();
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        federateClass = rtiamb.getObjectClassHandle(MOM_FEDERATE_CLASS);
+        federateName = rtiamb.getAttributeHandle(federateClass, MOM_FEDERATE_NAME);
+        nameDecoder = encoderFactory.createHLAunicodeString();
+        AttributeHandleSet attributes = rtiamb.getAttributeHandleSetFactory().create();
+        attributes.add(federateName);
+        rtiamb.subscribeObjectClassAttributes(federateClass, attributes);
+        log("Waiting for federates " + expected + " (timeout " + timeoutSeconds + " s)");
+        try {
+            long nextRequest = start;
+            while (!joined.containsAll(expected)) {
+                long now = System.nanoTime();
+                if (now >= deadline) {
+                    throw new IllegalStateException("Timed out after " + timeoutSeconds + " s waiting for federates "
+                            + missing() + " to join, joined so far: " + joined);
+                }
+                // the MOM only reflects HLAfederateName when asked
+                if (now >= nextRequest) {
+                    rtiamb.requestAttributeValueUpdate(federateClass, attributes, null);
+                    nextRequest = now + REQUEST_INTERVAL_NANOS;
+                }
+                rtiamb.evokeCallback(POLL_WAIT);
+            }
+        } finally {
+            rtiamb.unsubscribeObjectClass(federateClass);
+        }
+        log("All federates joined after " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public boolean discover(ObjectInstanceHandle handle, ObjectClassHandle objectClass) {
+        if (federateClass == null || !federateClass.equals(objectClass)) {
+            return false;
+        }
+        momFederates.add(handle);
+        return true;
+    }
+
+    public boolean reflect(ObjectInstanceHandle handle, AttributeHandleValueMap attributes) {
+        if (!momFederates.contains(handle)) {
+            return false;
+        }
+        byte[] name = attributes.get(federateName);
+        if (name != null) {
+            try {
+                nameDecoder.decode(name);
+                if (joined.add(nameDecoder.getValue())) {
+                    log("Federate joined: " + nameDecoder.getValue() + ", still missing " + missing());
+                }
+            } catch (DecoderException e) {
+                log("Cannot decode " + MOM_FEDERATE_NAME + ": " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    private Set<String> missing() {
+        Set<String> missing = new LinkedHashSet<>(expected);
+        missing.removeAll(joined);
+        return missing;
+    }
+
+    private void waitForUser() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        try {
+            reader.readLine();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void log(String message) {
+        System.out.println("Roster   : " + message);
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.INTERACTIVE ? "interactive" : "headless, roster=" + expected + ", timeout=" + timeoutSeconds + " s";
+    }
+}
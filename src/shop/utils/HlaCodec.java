@@ -0,0 +1,81 @@
+package shop.utils;
+
+import hla.rti1516e.encoding.ByteWrapper;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Encodes and decodes the HLAinteger32BE and HLAboolean values used by the shop FOM
+ * without going through the encoder objects. Decoding reads the big-endian bytes in
+ * place. Encoding hands out shared, read-only arrays for booleans and for the small
+ * ints that ids and sizes normally take, so only larger values allocate a new array.
+ */
+@UtilityClass
+public class HlaCodec {
+
+    public final int INT32_SIZE = 4;
+    private final int CACHED_INTS = 4096;
+    private final byte[][] INT_CACHE = new byte[CACHED_INTS][];
+    private final byte[] TRUE = int32(1);
+    private final byte[] FALSE = int32(0);
+
+    static {
+        for (int i = 0; i < CACHED_INTS; i++) {
+            INT_CACHE[i] = int32(i);
+        }
+    }
+
+    public int decodeInt(byte[] bytes) {
+        return decodeInt(bytes, 0);
+    }
+
+    public int decodeInt(byte[] bytes, int offset) {
+        if (bytes == null || bytes.length < offset + INT32_SIZE) {
+            System.out.println("DecoderInt Exception: expected " + INT32_SIZE + " bytes");
+            return 0;
+        }
+        return (bytes[offset] & 0xff) << 24
+                | (bytes[offset + 1] & 0xff) << 16
+                | (bytes[offset + 2] & 0xff) << 8
+                | bytes[offset + 3] & 0xff;
+    }
+
+    public int decodeInt(ByteWrapper bytes) {
+        if (bytes.remaining() < INT32_SIZE) {
+            System.out.println("DecoderInt Exception: expected " + INT32_SIZE + " bytes");
+            return 0;
+        }
+        return bytes.getInt();
+    }
+
+    /**
+     * HLAboolean is encoded as HLAinteger32BE where 1 means true.
+     */
+    public boolean decodeBoolean(byte[] bytes) {
+        return decodeInt(bytes) != 0;
+    }
+
+    public boolean decodeBoolean(ByteWrapper bytes) {
+        return decodeInt(bytes) != 0;
+    }
+
+    /**
+     * The returned array may be shared and must not be modified.
+     */
+    public byte[] encodeInt(int value) {
+        if (value >= 0 && value < CACHED_INTS) {
+            return INT_CACHE[value];
+        }
+        return int32(value);
+    }
+
+    /**
+     * The returned array is shared and must not be modified.
+     */
+    public byte[] encodeBoolean(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    private byte[] int32(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+}
@@ -0,0 +1,136 @@
+package shop.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary min-heap that knows where each element sits, so an element whose key changed
+ * can be moved or removed in O(log n). Elements are tracked by identity because the shop
+ * objects have value-based equals over mutable fields. Equal keys keep insertion order.
+ */
+public class IndexedMinHeap<T> {
+
+    private final List<Node<T>> heap = new ArrayList<>();
+    private final Map<T, Node<T>> nodes = new IdentityHashMap<>();
+    private final Comparator<? super T> comparator;
+    private long sequence = 0;
+
+    public IndexedMinHeap(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Inserts the element, or restores heap order after its key has changed.
+     */
+    public void update(T item) {
+        Node<T> node = nodes.get(item);
+        if (node == null) {
+            node = new Node<>(item, heap.size(), sequence++);
+            nodes.put(item, node);
+            heap.add(node);
+            siftUp(node.index);
+        } else if (!siftUp(node.index)) {
+            siftDown(node.index);
+        }
+    }
+
+    public boolean remove(T item) {
+        Node<T> node = nodes.remove(item);
+        if (node == null) {
+            return false;
+        }
+        int index = node.index;
+        Node<T> last = heap.remove(heap.size() - 1);
+        if (last != node) {
+            place(last, index);
+            if (!siftUp(index)) {
+                siftDown(index);
+            }
+        }
+        return true;
+    }
+
+    public T peek() {
+        return heap.isEmpty() ? null : heap.get(0).item;
+    }
+
+    public boolean contains(T item) {
+        return nodes.containsKey(item);
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    public void clear() {
+        heap.clear();
+        nodes.clear();
+    }
+
+    private boolean siftUp(int index) {
+        Node<T> node = heap.get(index);
+        int start = index;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            Node<T> parentNode = heap.get(parent);
+            if (compare(node, parentNode) >= 0) {
+                break;
+            }
+            place(parentNode, index);
+            index = parent;
+        }
+        place(node, index);
+        return index != start;
+    }
+
+    private void siftDown(int index) {
+        Node<T> node = heap.get(index);
+        int size = heap.size();
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            Node<T> childNode = heap.get(child);
+            if (child + 1 < size && compare(heap.get(child + 1), childNode) < 0) {
+                child++;
+                childNode = heap.get(child);
+            }
+            if (compare(node, childNode) <= 0) {
+                break;
+            }
+            place(childNode, index);
+            index = child;
+        }
+        place(node, index);
+    }
+
+    private void place(Node<T> node, int index) {
+        heap.set(index, node);
+        node.index = index;
+    }
+
+    private int compare(Node<T> a, Node<T> b) {
+        int byKey = comparator.compare(a.item, b.item);
+        return byKey != 0 ? byKey : Long.compare(a.sequence, b.sequence);
+    }
+
+    private static final class Node<T> {
+        private final T item;
+        private final long sequence;
+        private int index;
+
+        private Node(T item, int index, long sequence) {
+            this.item = item;
+            this.index = index;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package shop.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controls how fast a federate's main loop requests time advances.
+ * <ul>
+ * <li>{@code afap} - as fast as possible, no waiting at all</li>
+ * <li>{@code realtime} - one time unit takes {@code 1000 / pacing.scale} ms of wall time</li>
+ * <li>{@code fixed} - sleeps {@code pacing.delay} ms before every advance (the original behaviour)</li>
+ * </ul>
+ */
+public class Pacer {
+
+    public enum Mode {
+        AFAP, REALTIME, FIXED
+    }
+
+    private final Mode mode;
+    private final double scale;
+    private final long delayMillis;
+    private long startNanos = -1;
+    private double startTime;
+
+    public Pacer(Mode mode, double scale, long delayMillis) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("pacing.scale must be positive: " + scale);
+        }
+        this.mode = mode;
+        this.scale = scale;
+        this.delayMillis = delayMillis;
+    }
+
+    public static Pacer fromConfig(FederateConfig config) {
+        Mode mode = Mode.valueOf(config.get("pacing.mode", "fixed").toUpperCase());
+        return new Pacer(mode, config.getDouble("pacing.scale", 1.0), config.getLong("pacing.delay", 1000));
+    }
+
+    /**
+     * Blocks until the federate may request an advance to {@code nextTime}.
+     */
+    public void pace(double currentTime, double nextTime) throws InterruptedException {
+        switch (mode) {
+            case FIXED:
+                TimeUnit.MILLISECONDS.sleep(delayMillis);
+                break;
+            case REALTIME:
+                if (startNanos < 0) {
+                    startNanos = System.nanoTime();
+                    startTime = currentTime;
+                }
+                long due = startNanos + (long) ((nextTime - startTime) * 1e9 / scale);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case FIXED:
+                return "fixed delay " + delayMillis + " ms";
+            case REALTIME:
+                return "real time x" + scale;
+            default:
+                return "as fast as possible";
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package shop.utils;
+
+import hla.rti1516e.RtiFactory;
+import hla.rti1516e.RtiFactoryFactory;
+import hla.rti1516e.exceptions.RTIinternalError;
+import shop.rti.local.LocalRti;
+
+/**
+ * Picks the RTI a federate connects to.
+ * <ul>
+ * <li>{@code portico} - the RTI found by RtiFactoryFactory (the original behaviour)</li>
+ * <li>{@code local} - {@link LocalRti}, in-memory and shared by all federates of one JVM,
+ * so it only makes sense with {@code FederationLauncher}</li>
+ * </ul>
+ */
+public class RtiBackend {
+
+    private RtiBackend() {
+    }
+
+    public static RtiFactory fromConfig(FederateConfig config) throws RTIinternalError {
+        String backend = config.get("rti.backend", "portico");
+        switch (backend) {
+            case "portico":
+                return RtiFactoryFactory.getRtiFactory();
+            case "local":
+                return LocalRti.getRtiFactory();
+            default:
+                throw new IllegalArgumentException("Unknown rti.backend: " + backend + ", expected portico or local");
+        }
+    }
+}
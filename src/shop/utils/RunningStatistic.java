@@ -0,0 +1,62 @@
+package shop.utils;
+
+import java.util.Locale;
+
+/**
+ * Count, mean, variance, minimum and maximum of a stream of values, updated in constant
+ * time per value with Welford's algorithm.
+ */
+public class RunningStatistic {
+
+    private long count = 0;
+    private double mean = 0;
+    private double squaredDeviations = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        squaredDeviations += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getSum() {
+        return mean * count;
+    }
+
+    /**
+     * Population variance, 0 until two values have been added.
+     */
+    public double getVariance() {
+        return count < 2 ? 0 : squaredDeviations / count;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "n=%d mean=%.3f sd=%.3f min=%.0f max=%.0f",
+                count, mean, getStandardDeviation(), getMin(), getMax());
+    }
+}
@@ -0,0 +1,186 @@
+package shop.utils;
+
+import shop.fom.ShopFom;
+import shop.fom.ShopFomDispatcher;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-tick phase timing of a federate's main loop.
+ * <p>
+ * A tick runs from the end of one {@code doThings()} to the end of the next. It records the
+ * wall time spent waiting for the grant, the compute time from the grant to the end of
+ * {@code doThings()}, and how many callbacks, encoded and decoded bytes and thread
+ * allocations the tick took. Allocations come from the JVM's ThreadMXBean and are skipped
+ * where it cannot measure them. Times are recorded in microseconds.
+ * <p>
+ * With {@code metrics.jmx=true} every histogram is registered as
+ * {@code shop:type=TickMetrics,federate=<name>,phase=<phase>} until the federate resigns.
+ */
+public class TickMetrics implements TickMetricsMBean {
+
+    private static final String DOMAIN = "shop:type=TickMetrics,federate=";
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final boolean jmx;
+    private final Histogram compute = new Histogram();
+    private final Histogram grantWait = new Histogram();
+    private final Histogram callbacks = new Histogram();
+    private final Histogram bytesEncoded = new Histogram();
+    private final Histogram bytesDecoded = new Histogram();
+    private final Histogram allocatedBytes = new Histogram();
+    private final Map<String, Histogram> phases = new LinkedHashMap<>();
+    private String federate = "";
+    private ShopFom fom;
+    private ShopFomDispatcher dispatcher;
+    private long computeStart;
+    private long lastCallbacks;
+    private long lastEncoded;
+    private long lastDecoded;
+    private long lastAllocated;
+
+    public TickMetrics(boolean jmx) {
+        this.jmx = jmx;
+        phases.put("compute", compute);
+        phases.put("grantWait", grantWait);
+        phases.put("callbacks", callbacks);
+        phases.put("bytesEncoded", bytesEncoded);
+        phases.put("bytesDecoded", bytesDecoded);
+        phases.put("allocatedBytes", allocatedBytes);
+    }
+
+    public static TickMetrics fromConfig(FederateConfig config) {
+        return new TickMetrics(config.getBoolean("metrics.jmx", true));
+    }
+
+    /**
+     * Starts counting on the calling thread, which must be the federate's main loop thread.
+     */
+    public void start(String federateName, ShopFom fom, ShopFomDispatcher dispatcher) {
+        this.federate = federateName;
+        this.fom = fom;
+        this.dispatcher = dispatcher;
+        lastCallbacks = dispatcher.getCallbacks();
+        lastEncoded = fom.getEncodedBytes();
+        lastDecoded = fom.getDecodedBytes();
+        lastAllocated = allocatedBytes();
+        if (jmx) {
+            register(DOMAIN + federate, this);
+            phases.forEach((phase, histogram) -> register(DOMAIN + federate + ",phase=" + phase, histogram));
+        }
+    }
+
+    /**
+     * Ends the wait phase of the tick; compute time starts now.
+     */
+    public void granted(long grantWaitNanos) {
+        grantWait.record(grantWaitNanos / 1000);
+        computeStart = System.nanoTime();
+    }
+
+    /**
+     * Ends the tick after {@code doThings()}.
+     */
+    public void computed() {
+        compute.record((System.nanoTime() - computeStart) / 1000);
+        long callbackCount = dispatcher.getCallbacks();
+        long encoded = fom.getEncodedBytes();
+        long decoded = fom.getDecodedBytes();
+        long allocated = allocatedBytes();
+        callbacks.record(callbackCount - lastCallbacks);
+        bytesEncoded.record(encoded - lastEncoded);
+        bytesDecoded.record(decoded - lastDecoded);
+        if (allocated >= 0 && lastAllocated >= 0) {
+            allocatedBytes.record(allocated - lastAllocated);
+        }
+        lastCallbacks = callbackCount;
+        lastEncoded = encoded;
+        lastDecoded = decoded;
+        lastAllocated = allocated;
+    }
+
+    /**
+     * Unregisters the MBeans, the histograms keep their values.
+     */
+    public void stop() {
+        if (jmx && fom != null) {
+            unregister(DOMAIN + federate);
+            phases.keySet().forEach(phase -> unregister(DOMAIN + federate + ",phase=" + phase));
+        }
+    }
+
+    @Override
+    public String getFederate() {
+        return federate;
+    }
+
+    @Override
+    public long getTicks() {
+        return compute.getCount();
+    }
+
+    @Override
+    public double getComputeMillis() {
+        return compute.getSum() / 1000.0;
+    }
+
+    @Override
+    public double getGrantWaitMillis() {
+        return grantWait.getSum() / 1000.0;
+    }
+
+    public Histogram getHistogram(String phase) {
+        return phases.get(phase);
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                "%d ticks, compute %.1f ms, grant wait %.1f ms", getTicks(), getComputeMillis(), getGrantWaitMillis()));
+        phases.forEach((phase, histogram) -> summary.append(String.format(Locale.ROOT, "%n  %-14s %s",
+                phase + (phase.equals("compute") || phase.equals("grantWait") ? " us" : ""), histogram)));
+        return summary.toString();
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void register(String name, Object bean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register MBean " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void unregister(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister MBean " + name + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package shop.utils;
+
+/**
+ * JMX view of a federate's {@link TickMetrics}. The histograms are registered next to it,
+ * one per phase.
+ */
+public interface TickMetricsMBean {
+
+    String getFederate();
+
+    long getTicks();
+
+    double getComputeMillis();
+
+    double getGrantWaitMillis();
+
+    String getSummary();
+}
@@ -0,0 +1,81 @@
+package shop.utils;
+
+import hla.rti1516e.LogicalTime;
+import hla.rti1516e.RTIambassador;
+import hla.rti1516e.exceptions.RTIexception;
+
+/**
+ * Chooses how a federate moves its logical time forward.
+ * <ul>
+ * <li>{@code tar} - timeAdvanceRequest in fixed steps of 1.0 (the original behaviour)</li>
+ * <li>{@code ner} - nextMessageRequest up to the federate's next internal event, so the
+ * federation skips over intervals in which nothing is scheduled</li>
+ * </ul>
+ * In {@code ner} mode a jump is never shorter than one step and never longer than {@code time.max-step}.
+ * With {@code sim.end-time} set, no request goes past that time and the federate stops once it is granted.
+ */
+public class TimeAdvance {
+
+    public static final double STEP = 1.0;
+
+    public enum Mode {
+        TAR, NER
+    }
+
+    private final Mode mode;
+    private final double maxStep;
+    private final double endTime;
+
+    public TimeAdvance(Mode mode, double maxStep) {
+        this(mode, maxStep, Double.POSITIVE_INFINITY);
+    }
+
+    public TimeAdvance(Mode mode, double maxStep, double endTime) {
+        this.mode = mode;
+        this.maxStep = maxStep;
+        this.endTime = endTime;
+    }
+
+    public static TimeAdvance fromConfig(FederateConfig config) {
+        Mode mode = Mode.valueOf(config.get("time.advance", "tar").toUpperCase());
+        double endTime = config.getDouble("sim.end-time", 0.0);
+        return new TimeAdvance(mode, config.getDouble("time.max-step", 1000.0),
+                endTime > 0 ? endTime : Double.POSITIVE_INFINITY);
+    }
+
+    public boolean isEventDriven() {
+        return mode == Mode.NER;
+    }
+
+    public double nextRequestTime(double now, double nextEventTime) {
+        if (mode == Mode.TAR) {
+            return Math.min(now + STEP, endTime);
+        }
+        return Math.min(Math.max(now + STEP, Math.min(nextEventTime, now + maxStep)), endTime);
+    }
+
+    /**
+     * True once the federate has been granted {@code sim.end-time}.
+     */
+    public boolean isFinished(double now) {
+        return now >= endTime;
+    }
+
+    public double getEndTime() {
+        return endTime;
+    }
+
+    public void request(RTIambassador rtiamb, LogicalTime time) throws RTIexception {
+        if (mode == Mode.NER) {
+            rtiamb.nextMessageRequest(time);
+        } else {
+            rtiamb.timeAdvanceRequest(time);
+        }
+    }
+
+    @Override
+    public String toString() {
+        String advance = mode == Mode.NER ? "next event (max step " + maxStep + ")" : "fixed step " + STEP;
+        return endTime == Double.POSITIVE_INFINITY ? advance : advance + " until " + endTime;
+    }
+}